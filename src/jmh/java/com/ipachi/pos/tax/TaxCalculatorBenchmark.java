@@ -0,0 +1,78 @@
+// src/jmh/java/com/ipachi/pos/tax/TaxCalculatorBenchmark.java
+package com.ipachi.pos.tax;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-line VAT split: BigDecimal {@link TaxCalculator#line} against fixed-point {@link TaxCalculator#lineCents},
+ * over a basket of till-like lines (prices up to 10 000.00, quantities 1-12, rates 0 / 14 / 15.5%).
+ * The BigDecimal variant includes turning the till's double price into a BigDecimal, as checkout did.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaxCalculatorBenchmark {
+
+    private static final int LINES = 1024;
+    private static final BigDecimal[] RATES = {BigDecimal.ZERO, new BigDecimal("14.00"), new BigDecimal("15.50")};
+
+    @Param({"false", "true"})
+    public boolean pricesIncludeVat;
+
+    private double[] prices;
+    private int[] qty;
+    private BigDecimal[] percent;
+    private long[] units;
+
+    @Setup
+    public void basket() {
+        Random rnd = new Random(42);
+        prices = new double[LINES];
+        qty = new int[LINES];
+        percent = new BigDecimal[LINES];
+        units = new long[LINES];
+        for (int i = 0; i < LINES; i++) {
+            prices[i] = (1 + rnd.nextInt(1_000_000)) / 100d;
+            qty[i] = 1 + rnd.nextInt(12);
+            percent[i] = RATES[rnd.nextInt(RATES.length)];
+            units[i] = Money.rate(percent[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void bigDecimal(Blackhole bh) {
+        for (int i = 0; i < LINES; i++) {
+            BigDecimal unit = BigDecimal.valueOf(prices[i]).setScale(2, RoundingMode.HALF_UP);
+            bh.consume(TaxCalculator.line(unit, qty[i], pricesIncludeVat, percent[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void fixedPoint(Blackhole bh) {
+        for (int i = 0; i < LINES; i++) {
+            bh.consume(TaxCalculator.lineCents(Money.ofPrice(prices[i]), qty[i], pricesIncludeVat, units[i]));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.ipachi.pos.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+// src/main/java/com/ipachi/pos/config/LowStockConfig.java
+@Configuration
+public class LowStockConfig {
+
+    /** Bounded pool for low-stock re-evaluation and SSE sends, off the committing request thread. */
+    @Bean(name = "lowStockExecutor")
+    public ThreadPoolTaskExecutor lowStockExecutor(@Value("${inventory.low-stock.threads:2}") int threads,
+                                                   @Value("${inventory.low-stock.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setCorePoolSize(threads);
+        ex.setMaxPoolSize(threads);
+        ex.setQueueCapacity(queueCapacity);
+        ex.setThreadNamePrefix("low-stock-");
+        ex.setWaitForTasksToCompleteOnShutdown(true);
+        ex.setAwaitTerminationSeconds(10);
+        return ex;
+    }
+}
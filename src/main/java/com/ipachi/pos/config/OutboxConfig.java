@@ -0,0 +1,25 @@
+package com.ipachi.pos.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+// src/main/java/com/ipachi/pos/config/OutboxConfig.java
+@Configuration
+public class OutboxConfig {
+
+    /** Bounded pool for outbox side effects; a full queue just defers events to the next poll. */
+    @Bean(name = "outboxExecutor")
+    public ThreadPoolTaskExecutor outboxExecutor(@Value("${outbox.threads:2}") int threads,
+                                                 @Value("${outbox.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setCorePoolSize(threads);
+        ex.setMaxPoolSize(threads);
+        ex.setQueueCapacity(queueCapacity);
+        ex.setThreadNamePrefix("outbox-");
+        ex.setWaitForTasksToCompleteOnShutdown(true);
+        ex.setAwaitTerminationSeconds(10);
+        return ex;
+    }
+}
@@ -0,0 +1,89 @@
+package com.ipachi.pos.controller;
+
+import com.ipachi.pos.dto.CartItemRequest;
+import com.ipachi.pos.dto.CartView;
+import com.ipachi.pos.dto.CheckoutResponse;
+import com.ipachi.pos.model.Transaction;
+import com.ipachi.pos.service.CartService;
+import com.ipachi.pos.service.CheckoutService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+/** Scan-as-you-go carts: the basket lives on the server and is priced/validated on every scan. */
+@RestController
+@RequestMapping("/api/cash-till/carts")
+public class CartController {
+
+    private final CartService carts;
+    private final CheckoutService checkoutService;
+
+    public CartController(CartService carts, CheckoutService checkoutService) {
+        this.carts = carts;
+        this.checkoutService = checkoutService;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public CartView create(@RequestBody(required = false) Map<String, String> body) {
+        return carts.create(body == null ? null : body.get("customerName"));
+    }
+
+    @GetMapping("/{id}")
+    public CartView get(@PathVariable("id") String id) {
+        return carts.get(id);
+    }
+
+    @PostMapping("/{id}/items")
+    public CartView add(@PathVariable("id") String id, @RequestBody CartItemRequest req) {
+        return carts.add(id, req);
+    }
+
+    @DeleteMapping("/{id}/items/{sku}")
+    public CartView remove(@PathVariable("id") String id,
+                           @PathVariable("sku") String sku,
+                           @RequestParam(value = "qty", required = false) Integer qty) {
+        return carts.remove(id, sku, qty);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void discard(@PathVariable("id") String id) {
+        carts.discard(id);
+    }
+
+    @PostMapping("/{id}/checkout")
+    public ResponseEntity<CheckoutResponse> checkout(
+            @PathVariable("id") String id,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKeyHeader
+    ) {
+        String idempotencyKey = (idempotencyKeyHeader == null || idempotencyKeyHeader.isBlank())
+                ? null : idempotencyKeyHeader.trim();
+        if (idempotencyKey != null && idempotencyKey.length() > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Idempotency-Key too long (max 100)");
+        }
+
+        // a retry after the cart was already committed (and closed) replays the saved sale
+        if (idempotencyKey != null) {
+            CheckoutResponse replay = checkoutService.replay(idempotencyKey);
+            if (replay != null) return ResponseEntity.ok(replay);
+        }
+
+        Transaction tx;
+        try {
+            tx = carts.checkout(id, idempotencyKey);
+        } catch (DataIntegrityViolationException ex) {
+            CheckoutResponse replay = idempotencyKey == null ? null : checkoutService.replay(idempotencyKey);
+            if (replay == null) throw ex;
+            return ResponseEntity.ok(replay);
+        }
+
+        CheckoutResponse resp = checkoutService.toResponse(tx);
+        checkoutService.remember(idempotencyKey, resp);
+        return ResponseEntity.ok(resp);
+    }
+}
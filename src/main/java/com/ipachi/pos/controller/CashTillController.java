@@ -1,55 +1,77 @@
 package com.ipachi.pos.controller;
 
 
-import com.ipachi.pos.dto.CashMovementType;
 import com.ipachi.pos.dto.CheckoutRequest;
 import com.ipachi.pos.dto.CheckoutResponse;
-import com.ipachi.pos.dto.MovementRequest;
-import com.ipachi.pos.model.TillSession;
+import com.ipachi.pos.dto.OfflineSyncRequest;
+import com.ipachi.pos.dto.OfflineSyncResponse;
 import com.ipachi.pos.model.Transaction;
 import com.ipachi.pos.service.CheckoutService;
-import com.ipachi.pos.service.TillService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 @RestController
 @RequestMapping("/api/cash-till")
 public class CashTillController {
 
     private final CheckoutService checkoutService;
-    private final TillService tillService;
 
-    public CashTillController(CheckoutService checkoutService, TillService tillService) {
+    public CashTillController(CheckoutService checkoutService) {
         this.checkoutService = checkoutService;
-        this.tillService = tillService;
     }
 
     @PostMapping("/checkout")
-    public ResponseEntity<CheckoutResponse> checkout(@RequestBody CheckoutRequest req) {
+    public ResponseEntity<CheckoutResponse> checkout(
+            @RequestBody CheckoutRequest req,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKeyHeader
+    ) {
+        String idempotencyKey = (idempotencyKeyHeader == null || idempotencyKeyHeader.isBlank())
+                ? null : idempotencyKeyHeader.trim();
+        if (idempotencyKey != null && idempotencyKey.length() > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Idempotency-Key too long (max 100)");
+        }
+
+        // 0) A retry of a checkout we already completed: replay it, skip the write path
+        if (idempotencyKey != null) {
+            CheckoutResponse replay = checkoutService.replay(idempotencyKey);
+            if (replay != null) return ResponseEntity.ok(replay);
+        }
+
         // 1) Persist transaction + lines, update inventory
-        Transaction tx = checkoutService.checkout(req);
-
-        // 2) If a till is open for the terminal, record SALE
-        Long terminalId = tx.getTerminalId(); // terminal is resolved & stamped in the service
-        if (terminalId != null) {
-            TillSession active = tillService.getActive(terminalId);
-            if (active != null) {
-                MovementRequest mr = new MovementRequest();
-                mr.amount = tx.getTotal();
-                mr.reference = "TX-" + tx.getId();
-                mr.reason = "Checkout";
-                tillService.addMovement(active.getId(), CashMovementType.SALE, mr);
-            }
+        Transaction tx;
+        try {
+            tx = checkoutService.checkout(req, idempotencyKey);
+        } catch (DataIntegrityViolationException ex) {
+            // a concurrent retry with the same key won the race on uk_tx_head_idempotency
+            CheckoutResponse replay = idempotencyKey == null ? null : checkoutService.replay(idempotencyKey);
+            if (replay == null) throw ex;
+            return ResponseEntity.ok(replay);
         }
 
-        CheckoutResponse resp = new CheckoutResponse(
-                tx.getId(),
-                tx.getCreatedAt(),
-                tx.getTotal(),
-                tx.getCustomerName(),
-                "Checkout saved"
-        );
+        // 2) Till SALE movement and other side effects are applied from the outbox after commit
+        CheckoutResponse resp = checkoutService.toResponse(tx);
+        checkoutService.remember(idempotencyKey, resp);
         return ResponseEntity.ok(resp);
     }
 
+    /**
+     * Upload sales a terminal queued while offline, in the order they were rung up.
+     * Returns one result per sale; re-uploading sales that carry an idempotencyKey is safe.
+     */
+    @PostMapping("/sync")
+    public ResponseEntity<OfflineSyncResponse> sync(@RequestBody OfflineSyncRequest req) {
+        if (req.getSales() != null) {
+            for (var sale : req.getSales()) {
+                String key = sale.getIdempotencyKey();
+                if (key != null && key.trim().length() > 100) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "idempotencyKey too long (max 100)");
+                }
+            }
+        }
+        return ResponseEntity.ok(checkoutService.syncOffline(req));
+    }
+
 }
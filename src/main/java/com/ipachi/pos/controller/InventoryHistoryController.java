@@ -3,14 +3,26 @@ package com.ipachi.pos.controller;
 
 import com.ipachi.pos.dto.ReceiptItemView;
 import com.ipachi.pos.dto.RestockHistoryView;
+import com.ipachi.pos.dto.StockArchiveResult;
+import com.ipachi.pos.model.StockArchiveRun;
 import com.ipachi.pos.model.StockReceipt;
 import com.ipachi.pos.repo.RestockHistoryRepository;
 import com.ipachi.pos.repo.StockReceiptRepository;
 import com.ipachi.pos.security.CurrentRequest;
+import com.ipachi.pos.service.StockArchiveService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
@@ -23,11 +35,14 @@ public class InventoryHistoryController {
     private final RestockHistoryRepository historyRepo;
     private final StockReceiptRepository receiptRepo;
     private final CurrentRequest currentRequest;
+    private final StockArchiveService archiveService;
 
-    public InventoryHistoryController(RestockHistoryRepository historyRepo, StockReceiptRepository receiptRepo, CurrentRequest currentRequest) {
+    public InventoryHistoryController(RestockHistoryRepository historyRepo, StockReceiptRepository receiptRepo,
+                                      CurrentRequest currentRequest, StockArchiveService archiveService) {
         this.historyRepo = historyRepo;
         this.receiptRepo = receiptRepo;
         this.currentRequest = currentRequest;
+        this.archiveService = archiveService;
     }
 
     private Long biz() {
@@ -57,4 +72,82 @@ public class InventoryHistoryController {
                 .orElseThrow(() -> new org.springframework.web.server.ResponseStatusException(HttpStatus.NOT_FOUND, "Receipt not found"));
         return ResponseEntity.ok(historyRepo.receiptItems(biz(), r.getId()));
     }
+
+    /**
+     * POST /api/inventory/movements/archive?before=yyyy-MM-dd — compact this business's ledger now.
+     * Without {@code before} the configured horizon (inventory.archive.horizon-days) is used; an
+     * earlier date is allowed, a later one is not (compaction cannot be undone).
+     */
+    @PostMapping("/movements/archive")
+    public StockArchiveResult archive(@RequestParam(value = "before", required = false) LocalDate before) {
+        OffsetDateTime cutoff = before == null
+                ? archiveService.defaultCutoff()
+                : before.atStartOfDay().atOffset(ZoneOffset.UTC);
+        OffsetDateTime horizon = archiveService.defaultCutoff();
+        if (cutoff.isAfter(horizon)) {
+            throw new org.springframework.web.server.ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "before must be on or before " + horizon.toLocalDate() + " (inventory.archive.horizon-days)");
+        }
+        StockArchiveRun run = archiveService.archive(biz(), cutoff, currentRequest.getUserId());
+        return run == null
+                ? new StockArchiveResult(biz(), cutoff, false, 0, 0)
+                : new StockArchiveResult(biz(), cutoff, true, run.getMovementsArchived(), run.getOpeningRows());
+    }
+
+    /**
+     * GET /api/inventory/movements/export — audit CSV of archived and live movements (all filters optional),
+     * written to the response row by row as the query streams them.
+     */
+    @GetMapping("/movements/export")
+    public ResponseEntity<StreamingResponseBody> exportMovements(
+            @RequestParam(value = "from", required = false) LocalDate from,
+            @RequestParam(value = "to", required = false) LocalDate to,
+            @RequestParam(value = "receiptId", required = false) Long receiptId
+    ) {
+        OffsetDateTime fromTs = (from == null) ? null : from.atStartOfDay().atOffset(ZoneOffset.UTC);
+        OffsetDateTime toTs   = (to   == null) ? null : to.plusDays(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+
+        Long businessId = biz(); // request-scoped; the body is written on another thread
+
+        StreamingResponseBody body = os -> {
+            Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 64 * 1024);
+            out.write("source,id,createdAt,productId,sku,name,quantityDelta,receiptId,terminalId,createdByUserId,note\n");
+            archiveService.export(businessId, fromTs, toTs, receiptId, rs -> {
+                Timestamp at = rs.getTimestamp("created_at");
+                BigDecimal qty = rs.getBigDecimal("quantity_delta");
+                try {
+                    out.write(String.join(",",
+                            rs.getString("source"),
+                            String.valueOf(rs.getLong("id")),
+                            at == null ? "" : at.toInstant().toString(),
+                            String.valueOf(rs.getLong("product_id")),
+                            csv(rs.getString("sku")),
+                            csv(rs.getString("name")),
+                            qty == null ? "" : qty.stripTrailingZeros().toPlainString(),
+                            n(rs.getObject("receipt_id")),
+                            n(rs.getObject("terminal_id")),
+                            n(rs.getObject("created_by_user_id")),
+                            csv(rs.getString("note"))) + "\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); // client went away: stop reading the result set
+                }
+            });
+            out.flush();
+        };
+
+        var headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=stock-movements.csv");
+        headers.setContentType(MediaType.parseMediaType("text/csv"));
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    private static String n(Object v) {
+        return v == null ? "" : v.toString();
+    }
+
+    private static String csv(String v) {
+        if (v == null) return "";
+        if (v.indexOf(',') < 0 && v.indexOf('"') < 0 && v.indexOf('\n') < 0) return v;
+        return '"' + v.replace("\"", "\"\"") + '"';
+    }
 }
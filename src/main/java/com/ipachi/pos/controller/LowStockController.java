@@ -0,0 +1,39 @@
+package com.ipachi.pos.controller;
+
+// src/main/java/com/ipachi/pos/controller/LowStockController.java
+
+import com.ipachi.pos.dto.LowStockAlert;
+import com.ipachi.pos.security.CurrentRequest;
+import com.ipachi.pos.service.LowStockMonitor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/inventory/low-stock")
+@RequiredArgsConstructor
+public class LowStockController {
+    private final LowStockMonitor monitor;
+    private final CurrentRequest ctx;
+
+    private Long biz() {
+        Long id = ctx.getBusinessId();
+        if (id == null) throw new IllegalStateException("X-Business-Id missing");
+        return id;
+    }
+
+    /** GET /api/inventory/low-stock — products currently at or below their low-stock threshold. */
+    @GetMapping
+    public List<LowStockAlert> currentlyLow() {
+        return monitor.currentlyLow(biz());
+    }
+
+    /** GET /api/inventory/low-stock/stream — SSE: "snapshot" once, then "low-stock" on every threshold crossing. */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        return monitor.subscribe(biz());
+    }
+}
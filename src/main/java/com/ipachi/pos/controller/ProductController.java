@@ -3,7 +3,9 @@ package com.ipachi.pos.controller;
 
 import com.ipachi.pos.dto.*;
 import com.ipachi.pos.model.Product;
+import com.ipachi.pos.model.ProductMedia;
 import com.ipachi.pos.repo.ProductRepository;
+import com.ipachi.pos.service.CatalogCache;
 import com.ipachi.pos.service.ProductService;
 import com.ipachi.pos.service.StockService;
 import com.ipachi.pos.security.CurrentRequest;
@@ -13,11 +15,13 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.*;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Enumeration;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/inventory/products")
@@ -27,6 +31,7 @@ public class ProductController {
     private final StockService stockService;
     private final CurrentRequest ctx;
     private final ProductRepository productRepository;
+    private final CatalogCache catalog;
 
     private String base(HttpServletRequest req) {
         var url = req.getRequestURL().toString();
@@ -86,12 +91,17 @@ public class ProductController {
         }
 
         try {
-            var bytes = service.imageBytes(id, businessId);
-            var type  = service.imageContentType(id, businessId);
+            var img = service.media(id, businessId, ProductMedia.Kind.IMAGE);
+            String etag = "\"" + img.getSha256() + "\"";
+            if (new ServletWebRequest(http).checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            var type = img.getContentType() == null ? "application/octet-stream" : img.getContentType();
             return ResponseEntity.ok()
                     .contentType(MediaType.parseMediaType(type))
                     .cacheControl(CacheControl.noCache())
-                    .body(bytes);
+                    .eTag(etag)
+                    .body(img.getData());
         } catch (ResponseStatusException ex) {
             if (ex.getStatusCode() == HttpStatus.NOT_FOUND) {
                 return ResponseEntity.notFound().build();
@@ -104,10 +114,10 @@ public class ProductController {
     public ResponseEntity<byte[]> downloadQr(@PathVariable Long id) {
         Product p = productRepository.findByIdAndBusinessId(id, ctx.getBusinessId())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        byte[] data = p.getQrCodeData();
-        if (data == null || data.length == 0) {
+        if (p.getQrHash() == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No QR code for this product");
         }
+        byte[] data = service.media(id, p.getBusinessId(), ProductMedia.Kind.QR).getData();
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_TYPE, p.getQrContentType() == null ? "image/png" : p.getQrContentType())
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" +
@@ -121,22 +131,65 @@ public class ProductController {
         service.delete(id);
     }
 
+    /** Catalog reads carry the business's catalog/stock version as ETag; a matching If-None-Match is a 304 without DB work. */
     @GetMapping
-    public Page<ProductDto> list(
+    public ResponseEntity<Page<ProductDto>> list(
             @RequestParam(name = "q", required = false) String q,
             @RequestParam(name = "page", defaultValue = "0") int page,
             @RequestParam(name = "size", defaultValue = "20") int size,
-            @RequestParam(name = "sort", defaultValue = "name,asc") String sort,
+            @RequestParam(name = "sort", required = false) String sort, // none: name, or relevance with q
             HttpServletRequest http
     ) {
-        Sort sortObj = Sort.by(sort.split(",")[0]).ascending();
-        if (sort.toLowerCase().endsWith(",desc")) sortObj = sortObj.descending();
-        return service.list(q, PageRequest.of(page, size, sortObj), base(http));
+        Sort sortObj = Sort.unsorted();
+        if (sort != null && !sort.isBlank()) {
+            sortObj = Sort.by(sort.split(",")[0]).ascending();
+            if (sort.toLowerCase().endsWith(",desc")) sortObj = sortObj.descending();
+        }
+        var pageable = PageRequest.of(page, size, sortObj);
+        return catalogResponse(http, () -> service.list(q, pageable, base(http)));
     }
 
     @GetMapping("/all")
-    public List<ProductDto> all(HttpServletRequest http) {
-        return service.all(base(http));
+    public ResponseEntity<List<ProductDto>> all(HttpServletRequest http) {
+        return catalogResponse(http, () -> service.all(base(http)));
+    }
+
+    private <T> ResponseEntity<T> catalogResponse(HttpServletRequest http, Supplier<T> body) {
+        Long businessId = ctx.getBusinessId();
+        if (businessId == null) return ResponseEntity.ok(body.get()); // service rejects it
+        String etag = catalog.etag(businessId);
+        if (new ServletWebRequest(http).checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(body.get());
+    }
+
+    /**
+     * GET /api/inventory/products/snapshot — gzip-compressed binary catalog for till cold starts
+     * (format in CatalogSnapshotEncoder), with the same ETag/304 handling as /all.
+     */
+    @GetMapping("/snapshot")
+    public ResponseEntity<byte[]> snapshot(HttpServletRequest http) {
+        Long businessId = ctx.getBusinessId();
+        if (businessId == null) return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        if (new ServletWebRequest(http).checkNotModified(catalog.etag(businessId))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(catalog.etag(businessId)).build();
+        }
+        var encoded = service.binarySnapshot();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"catalog.bin.gz\"")
+                .cacheControl(CacheControl.noCache())
+                .eTag(catalog.etag(encoded.catalogVersion(), encoded.stockVersion()))
+                .body(encoded.bytes());
+    }
+
+    /** GET /api/inventory/products/changes?since={cursor} — products changed or deleted since the cursor. */
+    @GetMapping("/changes")
+    public CatalogChanges changes(@RequestParam(name = "since", required = false) String since,
+                                  @RequestParam(name = "limit", required = false) Integer limit,
+                                  HttpServletRequest http) {
+        return service.changes(since, limit, base(http));
     }
 
     @GetMapping("/{id}/components")
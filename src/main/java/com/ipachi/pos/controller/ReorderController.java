@@ -0,0 +1,36 @@
+package com.ipachi.pos.controller;
+
+// src/main/java/com/ipachi/pos/controller/ReorderController.java
+
+import com.ipachi.pos.dto.ReorderSuggestion;
+import com.ipachi.pos.security.CurrentRequest;
+import com.ipachi.pos.service.SalesVelocityService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/inventory/reorder")
+@RequiredArgsConstructor
+public class ReorderController {
+    private final SalesVelocityService velocity;
+    private final CurrentRequest ctx;
+
+    private Long biz() {
+        Long id = ctx.getBusinessId();
+        if (id == null) throw new IllegalStateException("X-Business-Id missing");
+        return id;
+    }
+
+    /**
+     * GET /api/inventory/reorder?leadDays=&coverDays=&all= — days of cover, sales rate and suggested
+     * order quantity per product, from precomputed velocities (defaults from inventory.reorder.*).
+     */
+    @GetMapping
+    public List<ReorderSuggestion> suggestions(@RequestParam(required = false) Integer leadDays,
+                                               @RequestParam(required = false) Integer coverDays,
+                                               @RequestParam(defaultValue = "false") boolean all) {
+        return velocity.suggestions(biz(), leadDays, coverDays, all);
+    }
+}
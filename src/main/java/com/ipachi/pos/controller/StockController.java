@@ -2,7 +2,17 @@ package com.ipachi.pos.controller;
 
 // src/main/java/com/ipachi/pos/controller/StockController.java
 
+import com.ipachi.pos.dto.BulkRestockRequest;
+import com.ipachi.pos.dto.BulkRestockResponse;
+import com.ipachi.pos.dto.StockBalanceCheck;
 import com.ipachi.pos.dto.StockItemDto;
+import com.ipachi.pos.dto.StockLotDto;
+import com.ipachi.pos.dto.StockMovementPage;
+import com.ipachi.pos.dto.StockTransferRequest;
+import com.ipachi.pos.dto.StockTransferResponse;
+import com.ipachi.pos.security.CurrentRequest;
+import com.ipachi.pos.service.StockLedgerService;
+import com.ipachi.pos.service.StockLotService;
 import com.ipachi.pos.service.StockService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
@@ -14,9 +24,66 @@ import java.util.List;
 @RequiredArgsConstructor
 public class StockController {
     private final StockService stock;
+    private final StockLedgerService ledger;
+    private final StockLotService lots;
+    private final CurrentRequest ctx;
 
+    private Long biz() {
+        Long id = ctx.getBusinessId();
+        if (id == null) throw new IllegalStateException("X-Business-Id missing");
+        return id;
+    }
+
+    /** GET /api/inventory/stock?q=&locationId= — business-wide on hand, or at one location (0 = unassigned). */
     @GetMapping
-    public List<StockItemDto> list(@RequestParam(name = "q", required = false) String q) {
-        return stock.list(q);
+    public List<StockItemDto> list(@RequestParam(name = "q", required = false) String q,
+                                   @RequestParam(name = "locationId", required = false) Long locationId) {
+        return stock.list(q, locationId);
+    }
+
+    /** POST /api/inventory/stock/transfers — move many products between locations in one batch. */
+    @PostMapping("/transfers")
+    public StockTransferResponse transfer(@RequestBody StockTransferRequest req) {
+        return stock.transfer(req);
+    }
+
+    /**
+     * GET /api/inventory/stock/movements — movement history, newest first, keyset-paged.
+     * Filters: productId or sku, receiptId, userId, terminalId, direction (IN|OUT); follow nextCursor for older rows.
+     */
+    @GetMapping("/movements")
+    public StockMovementPage movements(@RequestParam(name = "productId", required = false) Long productId,
+                                       @RequestParam(name = "sku", required = false) String sku,
+                                       @RequestParam(name = "receiptId", required = false) Long receiptId,
+                                       @RequestParam(name = "userId", required = false) Long userId,
+                                       @RequestParam(name = "terminalId", required = false) Long terminalId,
+                                       @RequestParam(name = "direction", required = false) String direction,
+                                       @RequestParam(name = "cursor", required = false) String cursor,
+                                       @RequestParam(name = "limit", required = false) Integer limit) {
+        return stock.movements(productId, sku, receiptId, userId, terminalId, direction, cursor, limit);
+    }
+
+    /** GET /api/inventory/stock/lots/expiring?days=7 — open lots already expired or expiring within N days. */
+    @GetMapping("/lots/expiring")
+    public List<StockLotDto> expiringLots(@RequestParam(name = "days", defaultValue = "0") int days) {
+        return lots.expiring(biz(), days);
+    }
+
+    /** POST /api/inventory/stock/restock/bulk — book a whole supplier delivery (receipt) in one request. */
+    @PostMapping("/restock/bulk")
+    public BulkRestockResponse restockBulk(@RequestBody BulkRestockRequest req) {
+        return stock.restockBulk(req);
+    }
+
+    /** GET /api/inventory/stock/balances/verify — compare inv_stock_balances with the movement ledger. */
+    @GetMapping("/balances/verify")
+    public StockBalanceCheck verifyBalances() {
+        return ledger.verify(biz());
+    }
+
+    /** POST /api/inventory/stock/balances/rebuild — recompute inv_stock_balances from the movement ledger. */
+    @PostMapping("/balances/rebuild")
+    public StockBalanceCheck rebuildBalances() {
+        return ledger.rebuild(biz());
     }
 }
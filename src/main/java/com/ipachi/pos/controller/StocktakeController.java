@@ -0,0 +1,63 @@
+package com.ipachi.pos.controller;
+
+// src/main/java/com/ipachi/pos/controller/StocktakeController.java
+
+import com.ipachi.pos.dto.StocktakeCountRequest;
+import com.ipachi.pos.dto.StocktakeStartRequest;
+import com.ipachi.pos.dto.StocktakeVarianceReport;
+import com.ipachi.pos.dto.StocktakeView;
+import com.ipachi.pos.service.StocktakeService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/inventory/stocktakes")
+@RequiredArgsConstructor
+public class StocktakeController {
+    private final StocktakeService stocktakes;
+
+    /** POST /api/inventory/stocktakes — open a count and freeze system quantities. */
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public StocktakeView start(@RequestBody(required = false) StocktakeStartRequest req) {
+        return stocktakes.start(req);
+    }
+
+    @GetMapping
+    public List<StocktakeView> list() {
+        return stocktakes.list();
+    }
+
+    @GetMapping("/{id}")
+    public StocktakeView get(@PathVariable Long id) {
+        return stocktakes.get(id);
+    }
+
+    /** POST /api/inventory/stocktakes/{id}/counts — one chunk of counts (mode SET or ADD). */
+    @PostMapping("/{id}/counts")
+    public StocktakeView count(@PathVariable Long id, @RequestBody StocktakeCountRequest req) {
+        return stocktakes.count(id, req);
+    }
+
+    /** GET /api/inventory/stocktakes/{id}/variances — counted vs frozen quantities with value at buy price. */
+    @GetMapping("/{id}/variances")
+    public StocktakeVarianceReport variances(@PathVariable Long id,
+                                             @RequestParam(defaultValue = "false") boolean uncountedAsZero) {
+        return stocktakes.variances(id, uncountedAsZero);
+    }
+
+    /** POST /api/inventory/stocktakes/{id}/commit — post the variances as adjustment movements and close. */
+    @PostMapping("/{id}/commit")
+    public StocktakeView commit(@PathVariable Long id,
+                                @RequestParam(defaultValue = "false") boolean uncountedAsZero) {
+        return stocktakes.commit(id, uncountedAsZero);
+    }
+
+    @PostMapping("/{id}/cancel")
+    public StocktakeView cancel(@PathVariable Long id) {
+        return stocktakes.cancel(id);
+    }
+}
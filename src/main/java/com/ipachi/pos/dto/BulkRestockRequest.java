@@ -0,0 +1,19 @@
+package com.ipachi.pos.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/** A whole supplier delivery: every line is booked against the same (optional) receipt. */
+public record BulkRestockRequest(
+        Long receiptId,
+        List<Line> lines
+) {
+    /** One delivered product, identified by productId or SKU. */
+    public record Line(
+            Long productId,
+            String sku,
+            BigDecimal quantity,
+            String note,
+            BigDecimal unitCost     // optional: cost per unit on the invoice (default: product buy price)
+    ) {}
+}
@@ -0,0 +1,9 @@
+package com.ipachi.pos.dto;
+
+import java.util.List;
+
+public record BulkRestockResponse(
+        Long receiptId,
+        int lines,
+        List<RestockResponse> balances   // one per product, current total after the delivery
+) {}
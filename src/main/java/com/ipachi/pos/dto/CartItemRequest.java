@@ -0,0 +1,10 @@
+package com.ipachi.pos.dto;
+
+import java.math.BigDecimal;
+
+/** Scan/add to a cart session. {@code price} is optional; the product's shelf price is used otherwise. */
+public record CartItemRequest(
+        String sku,
+        Integer qty,          // default 1
+        BigDecimal price      // optional till price override (same basis as TillItem.price)
+) {}
@@ -0,0 +1,15 @@
+package com.ipachi.pos.dto;
+
+import java.math.BigDecimal;
+
+public record CartLineView(
+        Long productId,
+        String sku,
+        String name,
+        int qty,
+        BigDecimal unitPrice,
+        BigDecimal vatRate,
+        BigDecimal net,
+        BigDecimal vat,
+        BigDecimal gross
+) {}
@@ -0,0 +1,20 @@
+package com.ipachi.pos.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/** Current state of a server-side cart; totals are kept up to date on every add/remove. */
+public record CartView(
+        String id,
+        String customerName,
+        List<CartLineView> lines,
+        int itemCount,
+        BigDecimal net,
+        BigDecimal vat,
+        BigDecimal gross,
+        @JsonFormat(shape = JsonFormat.Shape.STRING)
+        OffsetDateTime expiresAt
+) {}
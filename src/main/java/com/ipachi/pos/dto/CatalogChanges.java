@@ -0,0 +1,15 @@
+// src/main/java/com/ipachi/pos/dto/CatalogChanges.java
+package com.ipachi.pos.dto;
+
+import java.util.List;
+
+/**
+ * One page of the catalog change feed: products created or updated and ids deleted after the request's
+ * cursor, in change order. Pass {@code cursor} back as {@code since}; more pages follow while {@code hasMore}.
+ */
+public record CatalogChanges(
+        List<ProductDto> upserts,
+        List<Long> deleted,
+        String cursor,
+        boolean hasMore
+) {}
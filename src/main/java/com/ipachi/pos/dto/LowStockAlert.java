@@ -0,0 +1,18 @@
+package com.ipachi.pos.dto;
+
+// src/main/java/com/ipachi/pos/dto/LowStockAlert.java
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+public record LowStockAlert(
+        Long productId,
+        String sku,
+        String name,
+        BigDecimal onHand,
+        Integer threshold,           // Product.lowStock
+        State state,
+        OffsetDateTime at            // when the product entered this state
+) {
+    public enum State { LOW, OUT, CLEARED }
+}
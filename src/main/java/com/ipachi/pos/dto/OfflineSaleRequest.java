@@ -0,0 +1,14 @@
+package com.ipachi.pos.dto;
+
+import java.time.OffsetDateTime;
+
+/** A checkout queued on a terminal while offline, replayed through the sync endpoint. */
+public class OfflineSaleRequest extends CheckoutRequest {
+    private OffsetDateTime soldAt;      // original sale time on the terminal
+    private String idempotencyKey;      // optional; makes re-uploads of the same sale harmless
+
+    public OffsetDateTime getSoldAt() { return soldAt; }
+    public void setSoldAt(OffsetDateTime soldAt) { this.soldAt = soldAt; }
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+}
@@ -0,0 +1,14 @@
+package com.ipachi.pos.dto;
+
+import java.util.List;
+
+/** Ordered batch of offline sales from one terminal. */
+public class OfflineSyncRequest {
+    private Long terminalId; // optional; falls back to X-Terminal-Id
+    private List<OfflineSaleRequest> sales;
+
+    public Long getTerminalId() { return terminalId; }
+    public void setTerminalId(Long terminalId) { this.terminalId = terminalId; }
+    public List<OfflineSaleRequest> getSales() { return sales; }
+    public void setSales(List<OfflineSaleRequest> sales) { this.sales = sales; }
+}
@@ -0,0 +1,26 @@
+package com.ipachi.pos.dto;
+
+import java.util.List;
+
+/** Per-sale results of an offline sync, in upload order, with counts per status. */
+public record OfflineSyncResponse(
+        Long terminalId,
+        long saved,
+        long duplicates,
+        long rejected,
+        long failed,
+        List<OfflineSyncResult> results
+) {
+    public static OfflineSyncResponse of(Long terminalId, List<OfflineSyncResult> results) {
+        return new OfflineSyncResponse(terminalId,
+                count(results, OfflineSyncResult.Status.SAVED),
+                count(results, OfflineSyncResult.Status.DUPLICATE),
+                count(results, OfflineSyncResult.Status.REJECTED),
+                count(results, OfflineSyncResult.Status.FAILED),
+                results);
+    }
+
+    private static long count(List<OfflineSyncResult> results, OfflineSyncResult.Status status) {
+        return results.stream().filter(r -> r.status() == status).count();
+    }
+}
@@ -0,0 +1,15 @@
+package com.ipachi.pos.dto;
+
+import java.math.BigDecimal;
+
+/** Outcome of one offline sale; {@code index} is its position in the uploaded batch. */
+public record OfflineSyncResult(
+        int index,
+        String idempotencyKey,
+        Status status,
+        Long transactionId,
+        BigDecimal total,
+        String message
+) {
+    public enum Status { SAVED, DUPLICATE, REJECTED, FAILED }
+}
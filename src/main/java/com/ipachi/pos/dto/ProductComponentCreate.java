@@ -6,5 +6,7 @@ import java.math.BigDecimal;
 public record ProductComponentCreate(
         String name,
         String measurement,     // free text
-        BigDecimal unitCost     // item cost (line cost)
+        BigDecimal unitCost,    // item cost (line cost)
+        Long componentId,       // optional linked product; its stock is deducted when the recipe sells
+        BigDecimal quantity     // units of componentId per recipe unit (default 1)
 ) {}
@@ -14,5 +14,6 @@ public record ProductComponentDto(
         String measurement,     // FREE-TEXT
         BigDecimal unitCost,    // item cost
         BigDecimal lineCost,    // = unitCost
-        String name             // manual display name (fallback)
+        String name,            // manual display name (fallback)
+        BigDecimal quantity     // linked component units per recipe unit
 ) {}
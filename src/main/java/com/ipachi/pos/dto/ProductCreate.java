@@ -15,5 +15,7 @@ public record ProductCreate(
         ProductSaleMode saleMode,      // PER_UNIT/BY_WEIGHT
         Integer lifetime,               // nullable
         Integer lowStock,              // nullable
-        List<ProductComponentCreate> components // for RECIPE
+        List<ProductComponentCreate> components, // for RECIPE
+        TaxCategory taxCategory,       // nullable → STANDARD
+        BigDecimal vatRateOverride     // nullable → category rate
 ) {}
@@ -37,5 +37,7 @@ public record ProductDto(
         // NEW (server-calculated)
         BigDecimal priceInclVat,
         BigDecimal priceExclVat,
-        BigDecimal vatRateApplied   // e.g. 14.00
+        BigDecimal vatRateApplied,  // e.g. 14.00 (per product: category / override)
+        TaxCategory taxCategory,
+        BigDecimal vatRateOverride
 ) {}
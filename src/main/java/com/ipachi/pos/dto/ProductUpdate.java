@@ -16,5 +16,7 @@ public record ProductUpdate(
         ProductSaleMode saleMode,
         Integer lifetime,
         Integer lowStock,
-        List<ProductComponentCreate> components
+        List<ProductComponentCreate> components,
+        TaxCategory taxCategory,       // nullable → unchanged
+        BigDecimal vatRateOverride     // nullable → clears override
 ) {}
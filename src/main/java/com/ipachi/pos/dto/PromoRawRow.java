@@ -14,10 +14,10 @@ public class PromoRawRow {
     private String sku;
     private String barcode;
     private String name;
-    private BigDecimal currentStock;         // sum of movements
+    private BigDecimal currentStock;         // on-hand balance
     private String unitName;                 // measurement
     private Integer lifetimeDays;            // product.lifetimeDays
-    private OffsetDateTime lastRestockedAt;  // max createdAt where delta > 0
+    private OffsetDateTime lastRestockedAt;  // received_at of the oldest expired open lot
     private BigDecimal buyPrice;
     private BigDecimal sellPrice;
     private Boolean onSpecial;
@@ -0,0 +1,22 @@
+// src/main/java/com/ipachi/pos/dto/ReorderSuggestion.java
+package com.ipachi.pos.dto;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Reorder figures for one product: {@code daysOfCover} is on hand / daily rate (null when it does
+ * not sell), {@code suggestedQuantity} tops stock up to lead time + cover days of sales plus the
+ * low-stock threshold.
+ */
+public record ReorderSuggestion(
+        Long productId,
+        String sku,
+        String name,
+        BigDecimal onHand,
+        BigDecimal dailyRate,
+        BigDecimal daysOfCover,
+        BigDecimal suggestedQuantity,
+        Integer lowStock,
+        OffsetDateTime lastSaleAt
+) {}
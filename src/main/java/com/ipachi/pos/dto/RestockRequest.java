@@ -4,5 +4,6 @@ package com.ipachi.pos.dto;
 public record RestockRequest(
         java.math.BigDecimal quantity,
         Long receiptId,
-        String note
+        String note,
+        java.math.BigDecimal unitCost   // optional: cost per unit on the supplier invoice (default: product buy price)
 ) {}
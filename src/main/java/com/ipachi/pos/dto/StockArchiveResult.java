@@ -0,0 +1,13 @@
+package com.ipachi.pos.dto;
+
+// src/main/java/com/ipachi/pos/dto/StockArchiveResult.java
+
+import java.time.OffsetDateTime;
+
+public record StockArchiveResult(
+        Long businessId,
+        OffsetDateTime cutoff,
+        boolean archived,            // false when there was nothing before the cutoff
+        int movementsArchived,
+        int openingRows
+) {}
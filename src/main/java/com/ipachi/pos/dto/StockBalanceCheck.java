@@ -0,0 +1,12 @@
+package com.ipachi.pos.dto;
+
+// src/main/java/com/ipachi/pos/dto/StockBalanceCheck.java
+
+import java.util.List;
+
+public record StockBalanceCheck(
+        Long businessId,
+        boolean consistent,
+        List<StockBalanceDrift> drift,
+        Integer rebuiltRows          // null for verify-only runs
+) {}
@@ -0,0 +1,11 @@
+package com.ipachi.pos.dto;
+
+// src/main/java/com/ipachi/pos/dto/StockBalanceDrift.java
+
+import java.math.BigDecimal;
+
+public record StockBalanceDrift(
+        Long productId,
+        BigDecimal ledgerQuantity,   // SUM(quantity_delta) over inv_stock_movements
+        BigDecimal balanceQuantity   // inv_stock_balances.quantity (0 when the row is missing)
+) {}
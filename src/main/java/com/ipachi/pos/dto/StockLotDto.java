@@ -0,0 +1,18 @@
+package com.ipachi.pos.dto;
+
+// src/main/java/com/ipachi/pos/dto/StockLotDto.java
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+public record StockLotDto(
+        Long id,
+        Long productId,
+        String sku,
+        String name,
+        Long receiptId,
+        OffsetDateTime receivedAt,
+        OffsetDateTime expiresAt,
+        BigDecimal quantityReceived,
+        BigDecimal quantityRemaining
+) {}
@@ -12,5 +12,7 @@ public record StockMovementDto(
         Long receiptId,
         String receiptReference,
         String note,
-        OffsetDateTime createdAt
+        OffsetDateTime createdAt,
+        Long terminalId,
+        Long createdByUserId
 ) {}
\ No newline at end of file
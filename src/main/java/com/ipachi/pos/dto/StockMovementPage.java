@@ -0,0 +1,10 @@
+package com.ipachi.pos.dto;
+
+// src/main/java/com/ipachi/pos/dto/StockMovementPage.java
+
+import java.util.List;
+
+public record StockMovementPage(
+        List<StockMovementDto> items,
+        String nextCursor            // pass back as ?cursor= for the next (older) page; null on the last page
+) {}
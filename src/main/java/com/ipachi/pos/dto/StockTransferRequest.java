@@ -0,0 +1,19 @@
+package com.ipachi.pos.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/** Move stock of many products from one location to another (null location = unassigned stock). */
+public record StockTransferRequest(
+        Long fromLocationId,
+        Long toLocationId,
+        String note,
+        List<Line> lines
+) {
+    /** One product, identified by productId or SKU. */
+    public record Line(
+            Long productId,
+            String sku,
+            BigDecimal quantity
+    ) {}
+}
@@ -0,0 +1,17 @@
+package com.ipachi.pos.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public record StockTransferResponse(
+        Long fromLocationId,
+        Long toLocationId,
+        int lines,
+        List<Level> levels              // one per product, quantities after the transfer
+) {
+    public record Level(
+            Long productId,
+            BigDecimal fromQuantity,
+            BigDecimal toQuantity
+    ) {}
+}
@@ -0,0 +1,20 @@
+package com.ipachi.pos.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * A chunk of counted quantities. mode SET (default) replaces a product's count, ADD adds to it
+ * (several counters, same product in different aisles).
+ */
+public record StocktakeCountRequest(
+        String mode,
+        List<Line> lines
+) {
+    /** One counted product, identified by productId or SKU. */
+    public record Line(
+            Long productId,
+            String sku,
+            BigDecimal counted
+    ) {}
+}
@@ -0,0 +1,7 @@
+package com.ipachi.pos.dto;
+
+/** Open a count for the whole business (locationId null) or one location (0 = unassigned stock). */
+public record StocktakeStartRequest(
+        Long locationId,
+        String note
+) {}
@@ -0,0 +1,22 @@
+package com.ipachi.pos.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public record StocktakeVarianceReport(
+        Long stocktakeId,
+        String status,
+        List<Item> items,            // only products whose count differs from the frozen quantity
+        BigDecimal quantityVariance, // Σ (counted - system)
+        BigDecimal valueVariance     // Σ (counted - system) × buy price
+) {
+    public record Item(
+            Long productId,
+            String sku,
+            String name,
+            BigDecimal systemQuantity,
+            BigDecimal countedQuantity,
+            BigDecimal variance,
+            BigDecimal varianceValue
+    ) {}
+}
@@ -0,0 +1,15 @@
+package com.ipachi.pos.dto;
+
+import java.time.OffsetDateTime;
+
+public record StocktakeView(
+        Long id,
+        Long locationId,
+        String status,               // OPEN | COMMITTED | CANCELLED
+        String note,
+        OffsetDateTime startedAt,
+        OffsetDateTime closedAt,
+        long lines,                  // products frozen at start (plus any counted later)
+        long counted,
+        Integer adjustments          // movements posted on commit
+) {}
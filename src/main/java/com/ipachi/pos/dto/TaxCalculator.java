@@ -9,6 +9,9 @@ public final class TaxCalculator {
 
     public record Breakdown(BigDecimal net, BigDecimal vat, BigDecimal gross) {}
 
+    /** Same breakdown in cents (see {@link Money}); convert with {@link Money#toBigDecimal(long)} when persisting. */
+    public record Cents(long net, long vat, long gross) {}
+
     public static Breakdown line(
             BigDecimal unitPrice, int qty,
             boolean pricesIncludeVat,
@@ -38,4 +41,31 @@ public final class TaxCalculator {
             return new Breakdown(net, vat, gross);
         }
     }
+
+    /**
+     * {@link #line} on fixed-point inputs: unit price in cents and rate from {@link Money#rate}.
+     * Gives the same net/VAT/gross (HALF_UP at scale 2) without BigDecimal arithmetic.
+     */
+    public static Cents lineCents(long unitCents, int qty, boolean pricesIncludeVat, long rate) {
+        long base;
+        try {
+            base = Math.multiplyExact(unitCents, (long) Math.max(0, qty));
+            if (rate <= 0) {
+                // VAT disabled or zero
+                return new Cents(base, 0L, base);
+            }
+            if (pricesIncludeVat) {
+                long net = Money.divHalfUp(Math.multiplyExact(base, Money.RATE_ONE), Money.RATE_ONE + rate);
+                return new Cents(net, base - net, base);
+            } else {
+                long vat = Money.percentOf(base, rate);
+                return new Cents(base, vat, Math.addExact(base, vat));
+            }
+        } catch (ArithmeticException overflow) {
+            // amounts too large for exact long arithmetic: take the BigDecimal path
+            Breakdown b = line(Money.toBigDecimal(unitCents), qty, pricesIncludeVat,
+                    BigDecimal.valueOf(rate).movePointLeft(4));
+            return new Cents(Money.of(b.net()), Money.of(b.vat()), Money.of(b.gross()));
+        }
+    }
 }
@@ -8,4 +8,5 @@ public interface ProductQtyProfitView {
     String getName();
     BigDecimal getQty();     // SUM(...) as BigDecimal
     BigDecimal getProfit();  // SUM(...) as BigDecimal
+    BigDecimal getCost();    // SUM(cost), null when no line carries a cost snapshot
 }
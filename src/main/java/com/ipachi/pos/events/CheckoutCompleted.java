@@ -0,0 +1,18 @@
+package com.ipachi.pos.events;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Outbox payload written with every saved sale.
+ * {@code recordTillSale} is false when the till SALE movement was already written with the sale (offline sync).
+ */
+public record CheckoutCompleted(
+        Long transactionId,
+        Long businessId,
+        Long userId,
+        Long terminalId,
+        BigDecimal total,
+        List<Long> productIds,
+        boolean recordTillSale
+) { }
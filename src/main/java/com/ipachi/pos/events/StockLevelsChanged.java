@@ -0,0 +1,9 @@
+package com.ipachi.pos.events;
+
+import java.util.Set;
+
+/**
+ * Stock on hand (or the low-stock threshold) of some products of a business changed.
+ * Published inside the writing transaction; listeners react after commit.
+ */
+public record StockLevelsChanged(Long businessId, Set<Long> productIds) { }
@@ -0,0 +1,61 @@
+// src/main/java/com/ipachi/pos/model/OutboxEvent.java
+package com.ipachi.pos.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Side effect to run after a business transaction commits (transactional outbox).
+ * Written in the same transaction as the change it describes, then applied by
+ * {@code OutboxDispatcher} in the background with retry, so it survives crashes.
+ */
+@Entity
+@Table(name = "outbox_events",
+        indexes = @Index(name = "ix_outbox_status_next", columnList = "status, next_attempt_at"))
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class OutboxEvent {
+
+    public static final String CHECKOUT_COMPLETED = "CHECKOUT_COMPLETED";
+
+    public enum Status { PENDING, DONE, DEAD }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "business_id", nullable = false)
+    private Long businessId;
+
+    @Column(name = "event_type", nullable = false, length = 64)
+    private String type;
+
+    @Column(name = "aggregate_id")
+    private Long aggregateId;             // e.g. tx_head.id
+
+    @Lob
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;               // JSON
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private Status status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    // when the event may next be picked up (also the lease of an in-flight attempt)
+    @Column(name = "next_attempt_at", nullable = false)
+    private OffsetDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private OffsetDateTime processedAt;
+}
@@ -20,6 +20,10 @@ import java.util.Objects;
         uniqueConstraints = {
                 @UniqueConstraint(name="uk_inv_product_sku", columnNames = {"business_id", "sku"}),
                 @UniqueConstraint(name="uk_inv_product_barcode", columnNames = {"business_id", "barcode"})
+        },
+        indexes = {
+                // catalog change feed: rows after an (updated_at, id) cursor
+                @Index(name = "idx_inv_product_updated", columnList = "business_id, updated_at, id")
         })
 @Getter @Setter @SuperBuilder
 @NoArgsConstructor
@@ -49,9 +53,9 @@ public class Product extends BaseOwnedEntity {
 
     @Column(length = 64)
     private String barcode;
-    @Lob @Basic(fetch = FetchType.LAZY)
-    @Column(name = "qr_code_data", columnDefinition = "MEDIUMBLOB")
-    private byte[] qrCodeData;
+    // QR PNG bytes live in inv_product_media (kind QR); only metadata is kept on the row
+    @Column(name="qr_sha256", length = 64)
+    private String qrHash;
 
     @Column(name="qr_code_type", length = 100)
     private String qrContentType;
@@ -93,9 +97,12 @@ public class Product extends BaseOwnedEntity {
     @Builder.Default
     private List<ProductComponent> components = new ArrayList<>();
 
-    @Lob @Basic(fetch = FetchType.LAZY)
-    @Column(name = "image_data", columnDefinition = "MEDIUMBLOB")
-    private byte[] imageData;
+    // image bytes live in inv_product_media (kind IMAGE); a non-null hash means the product has one
+    @Column(name="image_sha256", length = 64)
+    private String imageHash;
+
+    @Column(name="image_size")
+    private Integer imageSize;
 
     @Column(name="image_type", length = 100)
     private String imageContentType;
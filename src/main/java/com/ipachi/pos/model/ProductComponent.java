@@ -39,6 +39,10 @@ public class ProductComponent extends BaseOwnedEntity {
     @Column(name = "measurement_text", length = 255)
     private String measurementText;
 
+    // Units of the linked component used per unit of the parent (stock deduction); null = 1
+    @Column(name = "quantity", precision = 19, scale = 4)
+    private BigDecimal quantity;
+
     // Item cost (NOT multiplied by measurementText)
     @Column(precision = 19, scale = 4)
     private BigDecimal unitCost;
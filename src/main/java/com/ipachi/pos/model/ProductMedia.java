@@ -0,0 +1,60 @@
+// src/main/java/com/ipachi/pos/model/ProductMedia.java
+package com.ipachi.pos.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+
+/**
+ * Binary payloads of a product (photo, generated QR PNG), one row per kind.
+ * Kept out of inv_products so catalog reads never touch the bytes; the product row only carries
+ * the metadata (content type, file name, size, SHA-256).
+ */
+@Entity
+@Table(name = "inv_product_media")
+@IdClass(ProductMedia.Key.class)
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class ProductMedia {
+
+    public enum Kind { IMAGE, QR }
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false, length = 8)
+    private Kind kind;
+
+    @Column(name = "business_id", nullable = false)
+    private Long businessId;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "file_name", length = 255)
+    private String fileName;
+
+    @Column(name = "sha256", nullable = false, length = 64)
+    private String sha256;
+
+    @Lob
+    @Column(name = "data", nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] data;
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long productId;
+        private Kind kind;
+    }
+}
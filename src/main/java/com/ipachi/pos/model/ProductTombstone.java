@@ -0,0 +1,31 @@
+// src/main/java/com/ipachi/pos/model/ProductTombstone.java
+package com.ipachi.pos.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/** A deleted product, kept so terminals syncing the catalog incrementally learn about the delete. */
+@Entity
+@Table(name = "inv_product_tombstones", indexes = {
+        // change feed: deletes after a (deleted_at, product_id) cursor
+        @Index(name = "idx_inv_tombstone_feed", columnList = "business_id, deleted_at, product_id")
+})
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class ProductTombstone {
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "business_id", nullable = false)
+    private Long businessId;
+
+    @Column(name = "sku", length = 64)
+    private String sku;
+
+    @Column(name = "deleted_at", nullable = false)
+    private OffsetDateTime deletedAt;
+}
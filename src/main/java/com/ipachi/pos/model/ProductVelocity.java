@@ -0,0 +1,51 @@
+// src/main/java/com/ipachi/pos/model/ProductVelocity.java
+package com.ipachi.pos.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Exponentially weighted sales rate per (business, product), in units per day as of {@code asOf}.
+ * Each sale adds {@code qty / window} after decaying the previous rate by {@code exp(-elapsed / window)},
+ * so the row is updated in place instead of scanning tx_line; readers decay it to "now" the same way.
+ */
+@Entity
+@Table(name = "inv_product_velocity")
+@IdClass(ProductVelocity.Key.class)
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class ProductVelocity {
+
+    @Id
+    @Column(name = "business_id", nullable = false)
+    private Long businessId;
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "daily_rate", nullable = false, precision = 19, scale = 6)
+    private BigDecimal dailyRate;
+
+    @Column(name = "as_of", nullable = false)
+    private OffsetDateTime asOf;
+
+    @Column(name = "last_sale_at")
+    private OffsetDateTime lastSaleAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long businessId;
+        private Long productId;
+    }
+}
@@ -0,0 +1,39 @@
+// src/main/java/com/ipachi/pos/model/StockArchiveRun.java
+package com.ipachi.pos.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * One compaction of a business's movement ledger.
+ * Movements dated before {@code cutoff} now live in inv_stock_movements_archive and are
+ * represented in inv_stock_movements by one opening-balance row per product dated at the cutoff.
+ */
+@Entity
+@Table(name = "inv_stock_archive_runs",
+        indexes = @Index(name = "ix_stock_arch_run_biz_cutoff", columnList = "business_id, cutoff"))
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class StockArchiveRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "business_id", nullable = false)
+    private Long businessId;
+
+    @Column(name = "cutoff", nullable = false)
+    private OffsetDateTime cutoff;
+
+    @Column(name = "movements_archived", nullable = false)
+    private int movementsArchived;
+
+    @Column(name = "opening_rows", nullable = false)
+    private int openingRows;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+}
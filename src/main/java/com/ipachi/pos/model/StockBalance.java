@@ -0,0 +1,49 @@
+// src/main/java/com/ipachi/pos/model/StockBalance.java
+package com.ipachi.pos.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Materialized on-hand quantity and inventory value at cost per (business, product).
+ * Maintained in the same transaction as every inv_stock_movements insert, so current-stock
+ * reads are a primary-key lookup instead of a SUM over the whole ledger.
+ */
+@Entity
+@Table(name = "inv_stock_balances")
+@IdClass(StockBalance.Key.class)
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class StockBalance {
+
+    @Id
+    @Column(name = "business_id", nullable = false)
+    private Long businessId;
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "quantity", nullable = false, precision = 19, scale = 4)
+    private BigDecimal quantity;
+
+    /** Cost of the units on hand: running sum of the movements' {@code cost_value}. */
+    @Column(name = "stock_value", nullable = false, precision = 19, scale = 4)
+    private BigDecimal stockValue;
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long businessId;
+        private Long productId;
+    }
+}
@@ -0,0 +1,51 @@
+// src/main/java/com/ipachi/pos/model/StockCheckpoint.java
+package com.ipachi.pos.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Closing quantity and value at cost per (business, product) as of a cut-off instant.
+ * Every checkpoint of a business is complete (one row per product that ever moved), so the
+ * quantity at any time is the nearest earlier checkpoint plus the movements after it.
+ */
+@Entity
+@Table(name = "inv_stock_checkpoints",
+        indexes = @Index(name = "ix_stock_cp_biz_asof", columnList = "business_id, as_of"))
+@IdClass(StockCheckpoint.Key.class)
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class StockCheckpoint {
+
+    @Id
+    @Column(name = "business_id", nullable = false)
+    private Long businessId;
+
+    @Id
+    @Column(name = "as_of", nullable = false)
+    private OffsetDateTime asOf;
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "quantity", nullable = false, precision = 19, scale = 4)
+    private BigDecimal quantity;
+
+    @Column(name = "stock_value", nullable = false, precision = 19, scale = 4)
+    private BigDecimal stockValue;
+
+    @Data
+    @NoArgsConstructor @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long businessId;
+        private OffsetDateTime asOf;
+        private Long productId;
+    }
+}
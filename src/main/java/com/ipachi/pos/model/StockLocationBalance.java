@@ -0,0 +1,53 @@
+// src/main/java/com/ipachi/pos/model/StockLocationBalance.java
+package com.ipachi.pos.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * On-hand quantity per (business, location, product), maintained with every movement like
+ * {@link StockBalance}. Movements without a location are booked to {@link #UNASSIGNED}, so the
+ * rows of a product always add up to its business-wide balance.
+ */
+@Entity
+@Table(name = "inv_stock_location_balances")
+@IdClass(StockLocationBalance.Key.class)
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class StockLocationBalance {
+
+    /** location_id of stock not booked to any location (the business-wide pool). */
+    public static final long UNASSIGNED = 0L;
+
+    @Id
+    @Column(name = "business_id", nullable = false)
+    private Long businessId;
+
+    @Id
+    @Column(name = "location_id", nullable = false)
+    private Long locationId;
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "quantity", nullable = false, precision = 19, scale = 4)
+    private BigDecimal quantity;
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long businessId;
+        private Long locationId;
+        private Long productId;
+    }
+}
@@ -0,0 +1,56 @@
+// src/main/java/com/ipachi/pos/model/StockLot.java
+package com.ipachi.pos.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * A quantity of one product received together (one per positive stock movement), at one unit cost.
+ * Sales take stock from the oldest open lots first (FIFO) and are costed at those lots' unit costs. Expiry is fixed when the lot is
+ * received, from {@code Product.lifetimeDays}; null when the product has no shelf life.
+ */
+@Entity
+@Table(name = "inv_stock_lots", indexes = {
+        // FIFO: open lots of a product, oldest first
+        @Index(name = "idx_inv_lot_fifo", columnList = "business_id, product_id, depleted, received_at, id"),
+        // "expired or expiring within N days" as a range scan
+        @Index(name = "idx_inv_lot_expiry", columnList = "business_id, depleted, expires_at")
+})
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class StockLot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "business_id", nullable = false)
+    private Long businessId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "receipt_id")
+    private Long receiptId;                 // nullable (adjustments, returns)
+
+    @Column(name = "received_at", nullable = false)
+    private OffsetDateTime receivedAt;
+
+    @Column(name = "expires_at")
+    private OffsetDateTime expiresAt;
+
+    @Column(name = "quantity_received", nullable = false, precision = 19, scale = 4)
+    private BigDecimal quantityReceived;
+
+    @Column(name = "quantity_remaining", nullable = false, precision = 19, scale = 4)
+    private BigDecimal quantityRemaining;
+
+    @Column(name = "unit_cost", nullable = false, precision = 19, scale = 4)
+    private BigDecimal unitCost;            // cost layer: what one unit of this lot cost when received
+
+    @Column(name = "depleted", nullable = false)
+    private boolean depleted;
+}
@@ -11,7 +11,13 @@ import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 
 @Entity
-@Table(name = "inv_stock_movements")
+@Table(name = "inv_stock_movements", indexes = {
+        // keyset paging of movement history: newest first per business / per product
+        @Index(name = "idx_inv_sm_biz_created_id", columnList = "business_id, created_at, id"),
+        @Index(name = "idx_inv_sm_biz_product_created_id", columnList = "business_id, product_id, created_at, id"),
+        @Index(name = "idx_inv_sm_biz_receipt", columnList = "business_id, receipt_id"),
+        @Index(name = "idx_inv_sm_biz_transaction", columnList = "business_id, transaction_id")
+})
 @Getter @Setter @SuperBuilder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -31,6 +37,14 @@ public class StockMovement extends BaseOwnedEntity {
     @Column(name = "terminal_id")
     private Long terminalId;
 
+    // sale that took the stock (tx_head.id); null for receipts, adjustments, transfers, stocktakes
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    // branch holding the stock (staff_locations.id); null = business-wide pool
+    @Column(name = "location_id")
+    private Long locationId;
+
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id")
     private Product product;
@@ -38,12 +52,20 @@ public class StockMovement extends BaseOwnedEntity {
     @Column(name = "quantity_delta", nullable = false, precision = 19, scale = 4)
     private BigDecimal quantityDelta;
 
+    // inventory value moved at cost: +qty x unit cost for stock in, -(FIFO cost taken) for stock out
+    @Column(name = "cost_value", precision = 19, scale = 4)
+    private BigDecimal costValue;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "receipt_id")
     private StockReceipt receipt; // nullable
 
     private String note;
 
+    // synthetic row written by a ledger compaction in place of the archived movements (see StockArchiveJdbcRepository)
+    @Column(name = "opening_balance", nullable = false, columnDefinition = "BOOLEAN NOT NULL DEFAULT FALSE")
+    private boolean openingBalance;
+
     // helpful for “recent” queries
     @CreationTimestamp
     @Column(name = "created_at", nullable = false)
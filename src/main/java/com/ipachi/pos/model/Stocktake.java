@@ -0,0 +1,51 @@
+// src/main/java/com/ipachi/pos/model/Stocktake.java
+package com.ipachi.pos.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A physical count. Opening it freezes the system quantity of every product (business-wide or
+ * at one location) into inv_stocktake_lines; counts are then posted in chunks, and committing
+ * books one adjustment movement per product whose count differs from the frozen quantity.
+ */
+@Entity
+@Table(name = "inv_stocktakes",
+        indexes = @Index(name = "ix_stocktake_biz_status", columnList = "business_id, status"))
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class Stocktake {
+
+    public enum Status { OPEN, COMMITTED, CANCELLED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "business_id", nullable = false)
+    private Long businessId;
+
+    @Column(name = "location_id")
+    private Long locationId;                // null = whole business
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private Status status;
+
+    @Column(name = "note")
+    private String note;
+
+    @Column(name = "started_by_user_id", nullable = false)
+    private Long startedByUserId;
+
+    @Column(name = "started_at", nullable = false)
+    private OffsetDateTime startedAt;
+
+    @Column(name = "closed_at")
+    private OffsetDateTime closedAt;
+
+    @Column(name = "adjustments")
+    private Integer adjustments;            // movements posted on commit
+}
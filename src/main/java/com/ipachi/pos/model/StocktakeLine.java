@@ -0,0 +1,44 @@
+// src/main/java/com/ipachi/pos/model/StocktakeLine.java
+package com.ipachi.pos.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/** Frozen system quantity and counted quantity of one product in a stocktake. */
+@Entity
+@Table(name = "inv_stocktake_lines")
+@IdClass(StocktakeLine.Key.class)
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class StocktakeLine {
+
+    @Id
+    @Column(name = "stocktake_id", nullable = false)
+    private Long stocktakeId;
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "system_qty", nullable = false, precision = 19, scale = 4)
+    private BigDecimal systemQuantity;
+
+    @Column(name = "counted_qty", precision = 19, scale = 4)
+    private BigDecimal countedQuantity;     // null until counted
+
+    @Column(name = "counted_at")
+    private OffsetDateTime countedAt;
+
+    @Data
+    @NoArgsConstructor @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long stocktakeId;
+        private Long productId;
+    }
+}
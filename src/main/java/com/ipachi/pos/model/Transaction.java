@@ -12,7 +12,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "tx_head")
+@Table(name = "tx_head",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_tx_head_idempotency", columnNames = {"business_id", "idempotency_key"})
+        })
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @SuperBuilder
@@ -31,6 +34,10 @@ public class Transaction extends BaseOwnedEntity {
     @Column(name = "terminal_id")
     private Long terminalId;           // optional terminal
 
+    // Client-supplied Idempotency-Key (retried checkouts replay instead of re-inserting)
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
     /* ====== Core fields ====== */
     @CreationTimestamp
     @Column(nullable = false)
@@ -61,7 +61,11 @@ public class TransactionLine extends BaseOwnedEntity {
     @Column(name = "vat_rate_applied", precision = 5, scale = 2)
     private BigDecimal vatRateApplied;
 
-    /* NEW: per-line profit = (unitPrice - product.buyPrice) * qty */
+    /* Cost of goods sold, snapshotted at sale time from the FIFO cost layers (ingredients for recipes) */
+    @Column(name = "cost", precision = 19, scale = 4)
+    private BigDecimal cost;
+
+    /* per-line profit = net amount - cost */
     @Column(name = "profit", nullable = false, precision = 18, scale = 2)
     private BigDecimal profit;
 
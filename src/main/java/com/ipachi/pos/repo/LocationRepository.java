@@ -17,4 +17,6 @@ public interface LocationRepository extends JpaRepository<Location, Long> {
     boolean existsByBusinessIdAndNameIgnoreCaseAndIdNot(Long businessId, String name, Long id);
 
     boolean existsByIdAndBusinessId(Long id, Long businessId);
+
+    boolean existsByBusinessId(Long businessId);
 }
@@ -0,0 +1,51 @@
+// src/main/java/com/ipachi/pos/repo/OutboxEventRepository.java
+package com.ipachi.pos.repo;
+
+import com.ipachi.pos.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /** Pending events that are due, oldest first. */
+    List<OutboxEvent> findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+            OutboxEvent.Status status, OffsetDateTime now, Pageable page);
+
+    /**
+     * Claim an event for one attempt: bumps attempts and pushes next_attempt_at out by the lease.
+     * Returns 0 if another dispatcher got there first. A crashed attempt becomes due again when the lease ends.
+     */
+    @Modifying
+    @Query("""
+           UPDATE OutboxEvent e
+              SET e.attempts = e.attempts + 1, e.nextAttemptAt = :leaseUntil
+            WHERE e.id = :id AND e.attempts = :attempts
+              AND e.status = com.ipachi.pos.model.OutboxEvent.Status.PENDING
+           """)
+    int claim(@Param("id") Long id,
+              @Param("attempts") int attempts,
+              @Param("leaseUntil") OffsetDateTime leaseUntil);
+
+    /**
+     * Undo a {@link #claim} whose attempt never started (dispatch rejected): restores attempts and
+     * makes the event due at {@code dueAt}. Matches only while the claim is still ours.
+     */
+    @Modifying
+    @Query("""
+           UPDATE OutboxEvent e
+              SET e.attempts = e.attempts - 1, e.nextAttemptAt = :dueAt
+            WHERE e.id = :id AND e.attempts = :attempts
+              AND e.status = com.ipachi.pos.model.OutboxEvent.Status.PENDING
+           """)
+    int release(@Param("id") Long id,
+                @Param("attempts") int attempts,
+                @Param("dueAt") OffsetDateTime dueAt);
+
+    long countByStatus(OutboxEvent.Status status);
+}
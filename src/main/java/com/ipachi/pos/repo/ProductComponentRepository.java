@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,6 +16,24 @@ public interface ProductComponentRepository extends JpaRepository<ProductCompone
     @Query("SELECT pc FROM ProductComponent pc WHERE pc.parent.id = :parentId AND pc.parent.businessId = :businessId")
     List<ProductComponent> findByParentIdAndBusinessId(@Param("parentId") Long parentId, @Param("businessId") Long businessId);
 
+    /** Linked (stock-holding) components of many recipes at once, with the component product fetched. */
+    @Query("""
+           SELECT pc FROM ProductComponent pc
+           JOIN FETCH pc.component c
+           WHERE pc.parent.id IN :parentIds AND pc.parent.businessId = :businessId
+           ORDER BY pc.parent.id, pc.id
+           """)
+    List<ProductComponent> findLinkedByParentIds(@Param("parentIds") Collection<Long> parentIds,
+                                                 @Param("businessId") Long businessId);
+
+    /** (parentId, sum of unit costs) for every recipe of a business, for catalog snapshots. */
+    @Query("""
+           SELECT pc.parent.id, COALESCE(SUM(pc.unitCost), 0) FROM ProductComponent pc
+           WHERE pc.parent.businessId = :businessId
+           GROUP BY pc.parent.id
+           """)
+    List<Object[]> sumUnitCostByParent(@Param("businessId") Long businessId);
+
     @Modifying(clearAutomatically = true, flushAutomatically = true)
     @Transactional
     @Query("DELETE FROM ProductComponent pc WHERE pc.parent.id = :parentId AND pc.parent.businessId = :businessId")
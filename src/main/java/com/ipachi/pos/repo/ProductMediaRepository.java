@@ -0,0 +1,23 @@
+// src/main/java/com/ipachi/pos/repo/ProductMediaRepository.java
+package com.ipachi.pos.repo;
+
+import com.ipachi.pos.model.ProductMedia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface ProductMediaRepository extends JpaRepository<ProductMedia, ProductMedia.Key> {
+
+    Optional<ProductMedia> findByProductIdAndKindAndBusinessId(Long productId, ProductMedia.Kind kind, Long businessId);
+
+    @Modifying
+    @Query("DELETE FROM ProductMedia m WHERE m.productId = :productId AND m.kind = :kind")
+    int deleteByProductIdAndKind(@Param("productId") Long productId, @Param("kind") ProductMedia.Kind kind);
+
+    @Modifying
+    @Query("DELETE FROM ProductMedia m WHERE m.productId = :productId")
+    int deleteByProductId(@Param("productId") Long productId);
+}
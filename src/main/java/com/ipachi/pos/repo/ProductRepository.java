@@ -1,45 +1,80 @@
 package com.ipachi.pos.repo;
 
 import com.ipachi.pos.dto.OutOfStockDto;
-import com.ipachi.pos.dto.PromoRawRow;
 import com.ipachi.pos.model.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
+    /** Products of a business matching any of the ids or (lower-cased) SKUs; callers pass a sentinel for an empty list. */
+    @Query("select p from Product p where p.businessId = :bizId and (p.id in :ids or lower(p.sku) in :skus)")
+    List<Product> findByIdsOrSkus(@Param("bizId") Long businessId,
+                                  @Param("ids") Collection<Long> ids,
+                                  @Param("skus") Collection<String> skus);
+
+    /** (productId, vatRateOverride) for products of a business that override the VAT rate. */
+    @Query("select p.id, p.vatRateOverride from Product p where p.businessId = :bizId and p.vatRateOverride is not null")
+    List<Object[]> findVatOverrides(@Param("bizId") Long businessId);
+
+    /** (id, sku, name, lowStock, on hand) for products with a low-stock threshold that are at or below it. */
+    @Query("""
+        select p.id, p.sku, p.name, p.lowStock, coalesce(b.quantity, 0)
+        from Product p
+        left join StockBalance b on b.businessId = p.businessId and b.productId = p.id
+        where p.businessId = :bizId and p.lowStock is not null and coalesce(b.quantity, 0) <= p.lowStock
+    """)
+    List<Object[]> findAtOrBelowLowStock(@Param("bizId") Long businessId);
+
+    /** (id, sku, name, lowStock, on hand) for the given products of a business. */
+    @Query("""
+        select p.id, p.sku, p.name, p.lowStock, coalesce(b.quantity, 0)
+        from Product p
+        left join StockBalance b on b.businessId = p.businessId and b.productId = p.id
+        where p.businessId = :bizId and p.id in :ids
+    """)
+    List<Object[]> findStockWatch(@Param("bizId") Long businessId, @Param("ids") Collection<Long> ids);
+
     @Query("""
         select new com.ipachi.pos.dto.OutOfStockDto(
             p.sku,
             p.barcode,
             p.name,
-            coalesce((select sum(m.quantityDelta)
-                      from StockMovement m
-                      where m.product = p and m.businessId = :bizId), 0),
+            coalesce(b.quantity, 0),
             coalesce(u.name, 'unit')
         )
         from Product p
         left join p.unit u
+        left join StockBalance b on b.businessId = p.businessId and b.productId = p.id
         where p.businessId = :bizId
-          and coalesce((select sum(m2.quantityDelta)
-                        from StockMovement m2
-                        where m2.product = p and m2.businessId = :bizId), 0) <= 0
-          and (
-               :q is null
-            or lower(p.sku) like concat('%', lower(:q), '%')
-            or lower(p.barcode) like concat('%', lower(:q), '%')
-            or lower(p.name) like concat('%', lower(:q), '%')
-          )
+          and coalesce(b.quantity, 0) <= 0
+        order by p.name asc
+    """)
+    List<OutOfStockDto> findOutOfStockForBusiness(@Param("bizId") Long businessId);
+
+    /** Out-of-stock rows among the given products (search hits from ProductSearchIndex). */
+    @Query("""
+        select new com.ipachi.pos.dto.OutOfStockDto(
+            p.sku,
+            p.barcode,
+            p.name,
+            coalesce(b.quantity, 0),
+            coalesce(u.name, 'unit')
+        )
+        from Product p
+        left join p.unit u
+        left join StockBalance b on b.businessId = p.businessId and b.productId = p.id
+        where p.businessId = :bizId and p.id in :ids
+          and coalesce(b.quantity, 0) <= 0
         order by p.name asc
     """)
-    List<OutOfStockDto> findOutOfStockForBusiness(
-            @Param("bizId") Long businessId,
-            @Param("q") String query
-    );
+    List<OutOfStockDto> findOutOfStockAmong(@Param("bizId") Long businessId, @Param("ids") Collection<Long> ids);
     Optional<Product> findByIdAndBusinessId(Long id, Long businessId);
 
     /* NEW: existence check for an id within a business */
@@ -50,19 +85,79 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     Optional<Product> findBySkuIgnoreCaseAndBusinessId(String sku, Long businessId);
 
+    /* NEW: resolve a whole basket of SKUs in one round trip (skus must already be lower-cased) */
+    @Query("SELECT p FROM Product p WHERE p.businessId = :businessId AND LOWER(p.sku) IN :skus")
+    List<Product> findBySkuInIgnoreCaseAndBusinessId(@Param("skus") Collection<String> skus,
+                                                     @Param("businessId") Long businessId);
+
+    /**
+     * Products of a business with their on-hand quantity at one location, in one query
+     * (primary-key lookups on inv_stock_location_balances). Rows are [Product, BigDecimal].
+     */
+    @Query("""
+           SELECT p, COALESCE(lb.quantity, 0) FROM Product p
+           LEFT JOIN FETCH p.unit
+           LEFT JOIN StockLocationBalance lb
+                  ON lb.businessId = p.businessId AND lb.locationId = :locationId AND lb.productId = p.id
+           WHERE p.businessId = :businessId
+           ORDER BY p.name ASC
+           """)
+    List<Object[]> findWithLocationQuantity(@Param("businessId") Long businessId,
+                                            @Param("locationId") Long locationId);
+
+    /** As {@link #findWithLocationQuantity} for the given products only (search hits), unordered. */
     @Query("""
-           SELECT p FROM Product p
-           WHERE p.businessId = :businessId AND
-                 (LOWER(p.name) LIKE LOWER(CONCAT('%', :q, '%'))
-               OR LOWER(p.sku)  LIKE LOWER(CONCAT('%', :q, '%'))
-               OR LOWER(p.barcode) LIKE LOWER(CONCAT('%', :q, '%')))
+           SELECT p, COALESCE(lb.quantity, 0) FROM Product p
+           LEFT JOIN FETCH p.unit
+           LEFT JOIN StockLocationBalance lb
+                  ON lb.businessId = p.businessId AND lb.locationId = :locationId AND lb.productId = p.id
+           WHERE p.businessId = :businessId AND p.id IN :ids
            """)
-    Page<Product> searchByBusiness(@Param("businessId") Long businessId,
-                                   @Param("q") String q,
-                                   Pageable pageable);
+    List<Object[]> findWithLocationQuantityAmong(@Param("businessId") Long businessId,
+                                                 @Param("locationId") Long locationId,
+                                                 @Param("ids") Collection<Long> ids);
+
+    /** (id, sku, barcode, name) of every product of a business, to build ProductSearchIndex. */
+    @Query("select p.id, p.sku, p.barcode, p.name from Product p where p.businessId = :bizId")
+    List<Object[]> findSearchRows(@Param("bizId") Long businessId);
+
+    /** Search hits in the caller's sort order (ids come from ProductSearchIndex). */
+    Page<Product> findByBusinessIdAndIdIn(Long businessId, Collection<Long> ids, Pageable pageable);
 
+    @EntityGraph(attributePaths = {"category", "unit"})
+    List<Product> findByBusinessIdAndIdIn(Long businessId, Collection<Long> ids);
+
+    @EntityGraph(attributePaths = {"category", "unit"})
     List<Product> findByBusinessIdOrderByNameAsc(Long businessId);
 
+    /** Products changed after the (updatedAt, id) cursor up to {@code until}, oldest first (catalog change feed). */
+    @EntityGraph(attributePaths = {"category", "unit"})
+    @Query("""
+           select p from Product p
+           where p.businessId = :bizId
+             and (p.updatedAt > :since or (p.updatedAt = :since and p.id > :afterId))
+             and p.updatedAt <= :until
+           order by p.updatedAt asc, p.id asc
+           """)
+    List<Product> findChangedSince(@Param("bizId") Long businessId,
+                                   @Param("since") OffsetDateTime since,
+                                   @Param("afterId") Long afterId,
+                                   @Param("until") OffsetDateTime until,
+                                   Pageable limit);
+
+    // category / unit / VAT changes alter the product DTOs, so the rows must show up in the change feed
+    @Modifying
+    @Query("update Product p set p.updatedAt = :now where p.businessId = :bizId and p.category.id = :categoryId")
+    int touchByCategory(@Param("bizId") Long businessId, @Param("categoryId") Long categoryId, @Param("now") OffsetDateTime now);
+
+    @Modifying
+    @Query("update Product p set p.updatedAt = :now where p.businessId = :bizId and p.unit.id = :unitId")
+    int touchByUnit(@Param("bizId") Long businessId, @Param("unitId") Long unitId, @Param("now") OffsetDateTime now);
+
+    @Modifying
+    @Query("update Product p set p.updatedAt = :now where p.businessId = :bizId")
+    int touchAll(@Param("bizId") Long businessId, @Param("now") OffsetDateTime now);
+
     @Query("SELECT COUNT(p) > 0 FROM Product p WHERE LOWER(p.sku) = LOWER(:sku) AND p.businessId = :businessId")
     boolean existsBySkuIgnoreCaseAndBusinessId(@Param("sku") String sku,
                                                @Param("businessId") Long businessId);
@@ -93,34 +188,4 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
                                                            @Param("businessId") Long businessId,
                                                            @Param("id") Long id);
     List<Product> findByBusinessId(Long businessId);
-    @Query("""
-        select new com.ipachi.pos.dto.PromoRawRow(
-          p.id,
-          p.sku,
-          p.barcode,
-          p.name,
-          coalesce((select sum(m.quantityDelta)
-                    from StockMovement m
-                    where m.product = p and m.businessId = :bizId), 0),
-          coalesce(u.name, 'unit'),
-          p.lifetimeDays,
-          (select max(m.createdAt)
-           from StockMovement m
-           where m.product = p and m.businessId = :bizId and m.quantityDelta > 0),
-          p.buyPrice,
-          p.sellPrice,
-          p.onSpecial
-        )
-        from Product p
-        left join p.unit u
-        where p.businessId = :bizId
-          and (:q is null or :q = '' or
-               lower(p.sku) like concat('%', lower(:q), '%') or
-               lower(p.barcode) like concat('%', lower(:q), '%') or
-               lower(p.name) like concat('%', lower(:q), '%'))
-        order by p.name asc
-    """)
-    List<PromoRawRow> promoCandidates(@Param("bizId") Long businessId,
-                                      @Param("q") String query);
-
 }
@@ -0,0 +1,28 @@
+// src/main/java/com/ipachi/pos/repo/ProductTombstoneRepository.java
+package com.ipachi.pos.repo;
+
+import com.ipachi.pos.model.ProductTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface ProductTombstoneRepository extends JpaRepository<ProductTombstone, Long> {
+
+    /** Deletes after the (deletedAt, productId) cursor up to {@code until}, oldest first. */
+    @Query("""
+           select t from ProductTombstone t
+           where t.businessId = :bizId
+             and (t.deletedAt > :since or (t.deletedAt = :since and t.productId > :afterId))
+             and t.deletedAt <= :until
+           order by t.deletedAt asc, t.productId asc
+           """)
+    List<ProductTombstone> findDeletedSince(@Param("bizId") Long businessId,
+                                            @Param("since") OffsetDateTime since,
+                                            @Param("afterId") Long afterId,
+                                            @Param("until") OffsetDateTime until,
+                                            Pageable limit);
+}
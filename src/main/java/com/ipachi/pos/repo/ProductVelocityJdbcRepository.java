@@ -0,0 +1,115 @@
+// src/main/java/com/ipachi/pos/repo/ProductVelocityJdbcRepository.java
+package com.ipachi.pos.repo;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental updates and reads for inv_product_velocity.
+ * The decay runs inside the upsert, so a sale costs one batched statement regardless of history.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductVelocityJdbcRepository {
+
+    // daily_rate is assigned before as_of, so it still sees the stored as_of; a back-dated sale
+    // (offline sync) is decayed to the stored as_of instead of moving it back
+    private static final String UPSERT_SQL = """
+        INSERT INTO inv_product_velocity (business_id, product_id, daily_rate, as_of, last_sale_at, updated_at)
+        VALUES (?,?,?,?,?,?)
+        ON DUPLICATE KEY UPDATE
+          daily_rate = IF(VALUES(as_of) >= as_of,
+                          daily_rate * EXP(-TIMESTAMPDIFF(SECOND, as_of, VALUES(as_of)) / ?) + VALUES(daily_rate),
+                          daily_rate + VALUES(daily_rate) * EXP(-TIMESTAMPDIFF(SECOND, VALUES(as_of), as_of) / ?)),
+          as_of = GREATEST(as_of, VALUES(as_of)),
+          last_sale_at = GREATEST(COALESCE(last_sale_at, VALUES(last_sale_at)), VALUES(last_sale_at)),
+          updated_at = VALUES(updated_at)
+        """;
+
+    private final JdbcTemplate jdbc;
+
+    /** An increment of the daily rate (already decayed to {@code at}) for one product. */
+    public record Increment(long productId, BigDecimal rate, OffsetDateTime at) {}
+
+    /** Apply increments as one batch, in product-id order like the balance rows of the same sale. */
+    public void apply(Long businessId, List<Increment> increments, long windowSeconds) {
+        if (increments == null || increments.isEmpty()) return;
+        List<Increment> rows = new ArrayList<>(increments);
+        rows.sort((a, b) -> Long.compare(a.productId(), b.productId()));
+        Timestamp now = ts(OffsetDateTime.now());
+        jdbc.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, r) -> {
+            ps.setLong(1, businessId);
+            ps.setLong(2, r.productId());
+            ps.setBigDecimal(3, r.rate());
+            ps.setTimestamp(4, ts(r.at()));
+            ps.setTimestamp(5, ts(r.at()));
+            ps.setTimestamp(6, now);
+            ps.setLong(7, windowSeconds);
+            ps.setLong(8, windowSeconds);
+        });
+    }
+
+    /**
+     * Recompute every rate of a business from the sale movements of the last {@code horizonDays}
+     * (older sales weigh less than e^-horizon/window). Products without sales in that range lose
+     * their row. Returns the rows written.
+     */
+    public int recalibrate(Long businessId, OffsetDateTime now, int windowDays, int horizonDays) {
+        jdbc.update("DELETE FROM inv_product_velocity WHERE business_id = ?", businessId);
+        // sale movements carry the transaction that took the stock; the range seeks on (business_id, created_at, id)
+        return jdbc.update("""
+            INSERT INTO inv_product_velocity (business_id, product_id, daily_rate, as_of, last_sale_at, updated_at)
+            SELECT m.business_id, m.product_id,
+                   SUM(-m.quantity_delta * EXP(-TIMESTAMPDIFF(SECOND, m.created_at, ?) / ?)) / ?,
+                   ?, MAX(m.created_at), ?
+            FROM inv_stock_movements m
+            WHERE m.business_id = ? AND m.quantity_delta < 0 AND m.transaction_id IS NOT NULL
+              AND m.created_at > ? AND m.created_at <= ?
+            GROUP BY m.business_id, m.product_id
+            """,
+                ts(now), windowDays * 86400L, windowDays,
+                ts(now), ts(now),
+                businessId, ts(now.minusDays(horizonDays)), ts(now));
+    }
+
+    /** Stored rate of every selling product with its current balance and reorder fields. */
+    public record Row(long productId, String sku, String name, Integer lowStock, BigDecimal onHand,
+                      BigDecimal dailyRate, OffsetDateTime asOf, OffsetDateTime lastSaleAt) {}
+
+    public List<Row> withStock(Long businessId) {
+        return jdbc.query("""
+            SELECT p.id AS product_id, p.sku, p.name, p.low_stock,
+                   COALESCE(b.quantity, 0) AS on_hand,
+                   v.daily_rate, v.as_of, v.last_sale_at
+            FROM inv_product_velocity v
+            JOIN inv_products p ON p.id = v.product_id AND p.business_id = v.business_id
+            LEFT JOIN inv_stock_balances b ON b.business_id = v.business_id AND b.product_id = v.product_id
+            WHERE v.business_id = ?
+            """, (rs, i) -> new Row(
+                    rs.getLong("product_id"),
+                    rs.getString("sku"),
+                    rs.getString("name"),
+                    rs.getObject("low_stock", Integer.class),
+                    rs.getBigDecimal("on_hand"),
+                    rs.getBigDecimal("daily_rate"),
+                    utc(rs.getTimestamp("as_of")),
+                    utc(rs.getTimestamp("last_sale_at"))
+            ), businessId);
+    }
+
+    private static OffsetDateTime utc(Timestamp t) {
+        return t == null ? null : t.toInstant().atOffset(ZoneOffset.UTC);
+    }
+
+    private static Timestamp ts(OffsetDateTime t) {
+        return Timestamp.from(t.toInstant());
+    }
+}
@@ -25,10 +25,12 @@ public class RestockHistoryRepository {
 
     /**
      * Dates removed: opening/new/closing are computed per receipt timestamp.
-     * - Opening: Σ(GREATEST(qty_delta, 0) * buy_price) for ALL movements before r.receipt_at
-     * - New:     Σ(GREATEST(qty_delta, 0) * buy_price) for movements in THIS receipt
+     * - Opening: Σ cost_value of positive movements before r.receipt_at
+     * - New:     Σ cost_value of positive movements in THIS receipt
      * - Closing: opening + new
-     * Negatives are ignored everywhere.
+     * Negatives are ignored everywhere. Values are the costs recorded when the stock was received,
+     * so a later buy-price change does not rewrite history. Stock-ins archived by a ledger compaction are read from
+     * the archive; the opening-balance rows it leaves (net of sales) are skipped, so values do not change when it runs.
      */
     public List<RestockHistoryView> restockHistory(Long biz, OffsetDateTime from, OffsetDateTime to, String q) {
         String sql = """
@@ -40,23 +42,36 @@ public class RestockHistoryRepository {
             (CASE WHEN r.file_size IS NOT NULL AND r.file_size > 0 THEN 1 ELSE 0 END) AS has_file,
             CONCAT('/api/inventory/receipts/', r.id, '/file')                          AS file_url,
 
-            /* OPENING: total value at the time of this receipt (ignore negatives) */
+            /* OPENING: total value at the time of this receipt (ignore negatives): archived plus live
+               stock-ins, without the compaction's opening-balance rows */
             COALESCE((
-                SELECT SUM(GREATEST(sm.quantity_delta, 0) * p.buy_price)
+                SELECT SUM(sa.cost_value)
+                FROM inv_stock_movements_archive sa
+                WHERE sa.business_id = :biz
+                  AND sa.created_at < r.receipt_at
+                  AND sa.quantity_delta > 0
+            ), 0) + COALESCE((
+                SELECT SUM(sm.cost_value)
                 FROM inv_stock_movements sm
-                JOIN inv_products p ON p.id = sm.product_id
                 WHERE sm.business_id = :biz
                   AND sm.created_at < r.receipt_at
+                  AND sm.quantity_delta > 0
+                  AND sm.opening_balance = FALSE
             ), 0) AS opening_value,
 
-            /* NEW (per receipt): value of positive adds in this receipt */
+            /* NEW (per receipt): value of positive adds in this receipt (live + archived) */
             COALESCE((
-                SELECT SUM(GREATEST(sm.quantity_delta, 0) * p.buy_price)
+                SELECT SUM(sm.cost_value)
                 FROM inv_stock_movements sm
-                JOIN inv_products p ON p.id = sm.product_id
                 WHERE sm.business_id = :biz
                   AND sm.receipt_id = r.id
                   AND sm.quantity_delta > 0
+            ), 0) + COALESCE((
+                SELECT SUM(sa.cost_value)
+                FROM inv_stock_movements_archive sa
+                WHERE sa.business_id = :biz
+                  AND sa.receipt_id = r.id
+                  AND sa.quantity_delta > 0
             ), 0) AS new_value_per_receipt
 
         FROM inv_stock_receipt r
@@ -101,7 +116,7 @@ public class RestockHistoryRepository {
                     hasFile,
                     fileUrl,
                     opening,              // opening stock value at receipt time
-                    addedThisReceipt,     // new stock value added by THIS receipt (buy price, positives only)
+                    addedThisReceipt,     // new stock value added by THIS receipt (received cost, positives only)
                     closing               // closing = opening + new
             ));
         }
@@ -115,14 +130,20 @@ public class RestockHistoryRepository {
             p.sku,
             p.name,
             SUM(sm.quantity_delta)                          AS qty,
-            p.buy_price                                     AS unit_price,
-            SUM(sm.quantity_delta) * p.buy_price            AS value
-        FROM inv_stock_movements sm
+            SUM(sm.cost_value) / SUM(sm.quantity_delta)     AS unit_price,
+            SUM(sm.cost_value)                              AS value
+        FROM (
+            SELECT product_id, quantity_delta, cost_value
+            FROM inv_stock_movements
+            WHERE business_id = :biz AND receipt_id = :receiptId
+            UNION ALL
+            SELECT product_id, quantity_delta, cost_value   -- receipts keep their lines after archival
+            FROM inv_stock_movements_archive
+            WHERE business_id = :biz AND receipt_id = :receiptId
+        ) sm
         JOIN inv_products p ON p.id = sm.product_id
-        WHERE sm.business_id = :biz
-          AND sm.receipt_id = :receiptId
-          AND sm.quantity_delta > 0           -- ignore negatives
-        GROUP BY p.id, p.sku, p.name, p.buy_price
+        WHERE sm.quantity_delta > 0           -- ignore negatives
+        GROUP BY p.id, p.sku, p.name
         ORDER BY p.name
         """;
 
@@ -140,8 +161,8 @@ public class RestockHistoryRepository {
                     (String) r[1],
                     (String) r[2],
                     (BigDecimal) r[3],
-                    (BigDecimal) r[4],  // buy price
-                    (BigDecimal) r[5]   // qty * buy price
+                    (BigDecimal) r[4],  // unit cost as received
+                    (BigDecimal) r[5]   // cost value received
             ));
         }
         return out;
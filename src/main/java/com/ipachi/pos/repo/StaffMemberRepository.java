@@ -4,8 +4,11 @@ package com.ipachi.pos.repo;
 import com.ipachi.pos.model.StaffMember;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,4 +20,8 @@ public interface StaffMemberRepository extends JpaRepository<StaffMember, Long>
     @EntityGraph(attributePaths = {"role", "role.permissions"})
     Optional<StaffMember> findByUserIdAndBusinessId(Long userId, Long businessId);
 
+
+    /** (userId, locationId) of the given staff users of a business. */
+    @Query("select s.user.id, s.location.id from StaffMember s where s.businessId = :biz and s.user.id in :userIds")
+    List<Object[]> findLocationIds(@Param("biz") Long businessId, @Param("userIds") Collection<Long> userIds);
 }
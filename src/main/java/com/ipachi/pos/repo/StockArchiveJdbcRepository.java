@@ -0,0 +1,233 @@
+// src/main/java/com/ipachi/pos/repo/StockArchiveJdbcRepository.java
+package com.ipachi.pos.repo;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compaction of inv_stock_movements into inv_stock_movements_archive.
+ * The archive keeps every original column except the opening-balance flag (archived rows are never
+ * opening rows), is compressed, and is only read for receipt drill-down, point-in-time questions
+ * older than the cutoff, and audit export. The table is not an entity because the DDL needs
+ * ROW_FORMAT=COMPRESSED, so columns added later are added by {@link #ensureTable} itself.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockArchiveJdbcRepository {
+
+    /**
+     * Note shown on the synthetic per-product row that replaces the archived movements. The rows are
+     * recognised by {@code opening_balance = TRUE}, never by this text (a user may write the same note).
+     */
+    public static final String OPENING_NOTE = "Opening balance";
+
+    private static final String CREATE_SQL = """
+        CREATE TABLE IF NOT EXISTS inv_stock_movements_archive (
+          id                 BIGINT        NOT NULL,
+          business_id        BIGINT        NOT NULL,
+          created_by_user_id BIGINT        NOT NULL,
+          terminal_id        BIGINT        NULL,
+          transaction_id     BIGINT        NULL,
+          location_id        BIGINT        NULL,
+          product_id         BIGINT        NOT NULL,
+          quantity_delta     DECIMAL(19,4) NOT NULL,
+          cost_value         DECIMAL(19,4) NULL,
+          receipt_id         BIGINT        NULL,
+          note               VARCHAR(255)  NULL,
+          created_at         DATETIME(6)   NOT NULL,
+          user_id            BIGINT        NULL,
+          updated_at         DATETIME(6)   NULL,
+          archived_at        DATETIME(6)   NOT NULL,
+          PRIMARY KEY (id),
+          KEY ix_sm_arch_biz_created (business_id, created_at),
+          KEY ix_sm_arch_biz_receipt (business_id, receipt_id),
+          KEY ix_sm_arch_biz_transaction (business_id, transaction_id)
+        ) ENGINE=InnoDB ROW_FORMAT=COMPRESSED
+        """;
+
+    // columns archives created by earlier versions lack (nullable: their existing rows have no value)
+    private static final Map<String, String> ADDED_COLUMNS = Map.of(
+            "transaction_id", "ADD COLUMN transaction_id BIGINT NULL AFTER terminal_id,"
+                    + " ADD KEY ix_sm_arch_biz_transaction (business_id, transaction_id)",
+            "user_id", "ADD COLUMN user_id BIGINT NULL AFTER created_at",
+            "updated_at", "ADD COLUMN updated_at DATETIME(6) NULL AFTER user_id");
+
+    // the rows being compacted: dated before the cutoff and no newer than the id read at the start
+    private static final String SCOPE = "m.business_id = ? AND m.created_at < ? AND m.id <= ?";
+
+    // opening rows of the previous run are folded into the new ones but not archived themselves
+    private static final String NOT_OPENING = "m.opening_balance = FALSE";
+
+    private final JdbcTemplate jdbc;
+
+    public void ensureTable() {
+        jdbc.execute(CREATE_SQL);
+        List<String> present = jdbc.queryForList("""
+            SELECT column_name FROM information_schema.columns
+            WHERE table_schema = DATABASE() AND table_name = 'inv_stock_movements_archive'
+            """, String.class);
+        // user_id goes after created_at and updated_at after user_id: add in that order
+        for (String column : List.of("transaction_id", "user_id", "updated_at")) {
+            if (present.stream().noneMatch(column::equalsIgnoreCase)) {
+                jdbc.execute("ALTER TABLE inv_stock_movements_archive " + ADDED_COLUMNS.get(column));
+            }
+        }
+    }
+
+    /** Cutoff of the latest compaction of this business, or null if it was never compacted. */
+    public OffsetDateTime lastCutoff(Long businessId) {
+        Timestamp t = jdbc.queryForObject(
+                "SELECT MAX(cutoff) FROM inv_stock_archive_runs WHERE business_id = ?",
+                Timestamp.class, businessId);
+        return t == null ? null : t.toInstant().atOffset(ZoneOffset.UTC);
+    }
+
+    /** Highest movement id dated before {@code cutoff}, or null if there is nothing to compact. */
+    public Long maxIdBefore(Long businessId, OffsetDateTime cutoff) {
+        return jdbc.queryForObject(
+                "SELECT MAX(id) FROM inv_stock_movements WHERE business_id = ? AND created_at < ?",
+                Long.class, businessId, ts(cutoff));
+    }
+
+    /** Copy the original movements in scope into the archive. */
+    public int copyToArchive(Long businessId, OffsetDateTime cutoff, long maxId) {
+        return jdbc.update("""
+            INSERT INTO inv_stock_movements_archive
+              (id, business_id, created_by_user_id, terminal_id, transaction_id, location_id, product_id, quantity_delta,
+               cost_value, receipt_id, note, created_at, user_id, updated_at, archived_at)
+            SELECT m.id, m.business_id, m.created_by_user_id, m.terminal_id, m.transaction_id, m.location_id, m.product_id,
+                   m.quantity_delta, m.cost_value, m.receipt_id, m.note, m.created_at, m.user_id, m.updated_at, UTC_TIMESTAMP(6)
+            FROM inv_stock_movements m
+            WHERE %s AND %s
+            """.formatted(SCOPE, NOT_OPENING),
+                businessId, ts(cutoff), maxId);
+    }
+
+    /**
+     * Insert one opening-balance movement per product and location, dated at the cutoff, carrying
+     * the net quantity and cost value of the rows in scope (slots that net to zero get none). Must run before {@link #deleteCompacted}.
+     */
+    public int insertOpeningBalances(Long businessId, OffsetDateTime cutoff, long maxId, Long userId) {
+        return jdbc.update("""
+            INSERT INTO inv_stock_movements
+              (business_id, created_by_user_id, terminal_id, location_id, product_id, quantity_delta,
+               cost_value, receipt_id, note, created_at, updated_at, user_id, opening_balance)
+            SELECT m.business_id, COALESCE(?, MAX(m.created_by_user_id)), NULL, m.location_id, m.product_id,
+                   SUM(m.quantity_delta), COALESCE(SUM(m.cost_value), 0), NULL, ?, ?, ?, COALESCE(?, MAX(m.created_by_user_id)),
+                   TRUE
+            FROM inv_stock_movements m
+            WHERE %s
+            GROUP BY m.business_id, m.location_id, m.product_id
+            HAVING SUM(m.quantity_delta) <> 0 OR SUM(m.cost_value) <> 0
+            """.formatted(SCOPE),
+                userId, OPENING_NOTE, ts(cutoff), ts(cutoff), userId,
+                businessId, ts(cutoff), maxId);
+    }
+
+    /** Delete the rows in scope (the opening rows are dated at the cutoff, so they are not in it). */
+    public int deleteCompacted(Long businessId, OffsetDateTime cutoff, long maxId) {
+        return jdbc.update("DELETE m FROM inv_stock_movements m WHERE " + SCOPE,
+                businessId, ts(cutoff), maxId);
+    }
+
+    /** Checkpoints before the cutoff do not see the opening rows and would double count them. */
+    public int deleteCheckpointsBefore(Long businessId, OffsetDateTime cutoff) {
+        return jdbc.update("DELETE FROM inv_stock_checkpoints WHERE business_id = ? AND as_of < ?",
+                businessId, ts(cutoff));
+    }
+
+    /**
+     * Quantity per product at {@code ts} for a time before the latest cutoff: archived movements
+     * plus any live ones back-dated into that range after the compaction.
+     */
+    public Map<Long, BigDecimal> quantitiesAt(Long businessId, OffsetDateTime ts) {
+        Map<Long, BigDecimal> out = new HashMap<>();
+        jdbc.query("""
+            SELECT x.product_id, SUM(x.qty) AS qty
+            FROM (
+                SELECT a.product_id, a.quantity_delta AS qty
+                FROM inv_stock_movements_archive a
+                WHERE a.business_id = ? AND a.created_at <= ?
+                UNION ALL
+                SELECT m.product_id, m.quantity_delta AS qty
+                FROM inv_stock_movements m
+                WHERE m.business_id = ? AND m.created_at <= ?
+            ) x
+            GROUP BY x.product_id
+            """, rs -> { out.put(rs.getLong("product_id"), rs.getBigDecimal("qty")); },
+                businessId, ts(ts), businessId, ts(ts));
+        return out;
+    }
+
+    /** Inventory value at cost at {@code ts} for a time before the latest cutoff (archive + back-dated live rows). */
+    public BigDecimal valueAt(Long businessId, OffsetDateTime ts) {
+        return jdbc.queryForObject("""
+            SELECT (SELECT COALESCE(SUM(a.cost_value), 0) FROM inv_stock_movements_archive a
+                    WHERE a.business_id = ? AND a.created_at <= ?)
+                 + (SELECT COALESCE(SUM(m.cost_value), 0) FROM inv_stock_movements m
+                    WHERE m.business_id = ? AND m.created_at <= ?)
+            """, BigDecimal.class, businessId, ts(ts), businessId, ts(ts));
+    }
+
+    /** Value at cost of the archived stock-in movements dated in [start, end] (purchases before the cutoff). */
+    public BigDecimal purchasesValue(Long businessId, OffsetDateTime start, OffsetDateTime end) {
+        return jdbc.queryForObject("""
+            SELECT COALESCE(SUM(a.cost_value), 0) FROM inv_stock_movements_archive a
+            WHERE a.business_id = ? AND a.created_at BETWEEN ? AND ? AND a.quantity_delta > 0
+            """, BigDecimal.class, businessId, ts(start), ts(end));
+    }
+
+    /**
+     * Archived and live movements of a business, oldest first, for audit export.
+     * Opening-balance rows are left out; the archive holds the movements they stand for.
+     * All filters are optional. Rows are streamed one at a time, not buffered by the driver.
+     */
+    public void export(Long businessId, OffsetDateTime from, OffsetDateTime to, Long receiptId, RowCallbackHandler rch) {
+        StringBuilder where = new StringBuilder("m.business_id = ?");
+        List<Object> args = new ArrayList<>();
+        args.add(businessId);
+        if (from != null) { where.append(" AND m.created_at >= ?"); args.add(ts(from)); }
+        if (to != null) { where.append(" AND m.created_at < ?"); args.add(ts(to)); }
+        if (receiptId != null) { where.append(" AND m.receipt_id = ?"); args.add(receiptId); }
+
+        List<Object> params = new ArrayList<>(args);
+        params.addAll(args);
+        String sql = """
+            SELECT x.*, p.sku, p.name FROM (
+                SELECT 'archive' AS source, m.id, m.created_at, m.product_id, m.quantity_delta, m.receipt_id,
+                       m.terminal_id, m.created_by_user_id, m.note
+                FROM inv_stock_movements_archive m
+                WHERE %1$s
+                UNION ALL
+                SELECT 'live' AS source, m.id, m.created_at, m.product_id, m.quantity_delta, m.receipt_id,
+                       m.terminal_id, m.created_by_user_id, m.note
+                FROM inv_stock_movements m
+                WHERE %1$s AND m.opening_balance = FALSE
+            ) x
+            LEFT JOIN inv_products p ON p.id = x.product_id
+            ORDER BY x.created_at, x.id
+            """.formatted(where);
+        jdbc.query(con -> {
+            var ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            for (int i = 0; i < params.size(); i++) ps.setObject(i + 1, params.get(i));
+            ps.setFetchSize(Integer.MIN_VALUE);   // MySQL Connector/J: stream rows instead of buffering the result
+            return ps;
+        }, rch);
+    }
+
+    private static Timestamp ts(OffsetDateTime t) {
+        return t == null ? null : Timestamp.from(t.toInstant());
+    }
+}
@@ -0,0 +1,11 @@
+// src/main/java/com/ipachi/pos/repo/StockArchiveRunRepository.java
+package com.ipachi.pos.repo;
+
+import com.ipachi.pos.model.StockArchiveRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface StockArchiveRunRepository extends JpaRepository<StockArchiveRun, Long> {
+    Optional<StockArchiveRun> findFirstByBusinessIdOrderByCutoffDesc(Long businessId);
+}
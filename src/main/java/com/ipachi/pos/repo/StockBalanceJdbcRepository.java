@@ -0,0 +1,158 @@
+// src/main/java/com/ipachi/pos/repo/StockBalanceJdbcRepository.java
+package com.ipachi.pos.repo;
+
+import com.ipachi.pos.dto.StockBalanceDrift;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes for inv_stock_balances (MySQL upserts) plus rebuild/verify against the movement ledger.
+ * Quantities are applied first (that is what locks the rows); the cost values are only known
+ * after the FIFO lots were consumed, so they are added to the same rows afterwards.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockBalanceJdbcRepository {
+
+    private static final String UPSERT_SQL = """
+        INSERT INTO inv_stock_balances (business_id, product_id, quantity, stock_value, updated_at)
+        VALUES (?,?,?,0,?)
+        ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), updated_at = VALUES(updated_at)
+        """;
+
+    // guarded decrement: only succeeds while the row holds enough stock (locks just this product's row)
+    private static final String DEDUCT_SQL = """
+        UPDATE inv_stock_balances
+           SET quantity = quantity - ?, updated_at = ?
+         WHERE business_id = ? AND product_id = ? AND quantity >= ?
+        """;
+
+    private final JdbcTemplate jdbc;
+
+    /** Add each delta to its product's balance (creating the row on first movement), as one batch. */
+    public void applyDeltas(Long businessId, Map<Long, BigDecimal> deltasByProduct) {
+        if (deltasByProduct == null || deltasByProduct.isEmpty()) return;
+
+        Timestamp now = Timestamp.from(OffsetDateTime.now().toInstant());
+        List<Map.Entry<Long, BigDecimal>> rows = new ArrayList<>(deltasByProduct.entrySet());
+        // stable key order keeps concurrent writers from deadlocking on each other's rows
+        rows.sort(Map.Entry.comparingByKey());
+
+        jdbc.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, e) -> {
+            ps.setLong(1, businessId);
+            ps.setLong(2, e.getKey());
+            ps.setBigDecimal(3, e.getValue());
+            ps.setTimestamp(4, now);
+        });
+    }
+
+    /** Add the movements' cost values to their (existing) balance rows as one batch. */
+    public void applyValues(Long businessId, Map<Long, BigDecimal> valuesByProduct) {
+        if (valuesByProduct == null || valuesByProduct.isEmpty()) return;
+
+        List<Map.Entry<Long, BigDecimal>> rows = new ArrayList<>(valuesByProduct.entrySet());
+        rows.sort(Map.Entry.comparingByKey());
+        jdbc.batchUpdate("UPDATE inv_stock_balances SET stock_value = stock_value + ? WHERE business_id = ? AND product_id = ?",
+                rows, rows.size(), (ps, e) -> {
+                    ps.setBigDecimal(1, e.getValue());
+                    ps.setLong(2, businessId);
+                    ps.setLong(3, e.getKey());
+                });
+    }
+
+    /**
+     * Subtract each quantity from its product's balance, but only where the balance covers it.
+     * Rows are updated in product-id order so concurrent sales cannot deadlock; sales of other
+     * products are never blocked. Returns the product ids that did not have enough stock
+     * (their rows are untouched; the caller is expected to roll back).
+     */
+    public List<Long> deductIfAvailable(Long businessId, Map<Long, BigDecimal> quantitiesByProduct) {
+        List<Long> shortOf = new ArrayList<>();
+        if (quantitiesByProduct == null || quantitiesByProduct.isEmpty()) return shortOf;
+
+        Timestamp now = Timestamp.from(OffsetDateTime.now().toInstant());
+        List<Map.Entry<Long, BigDecimal>> rows = new ArrayList<>(quantitiesByProduct.entrySet());
+        rows.sort(Map.Entry.comparingByKey());
+
+        int[][] counts = jdbc.batchUpdate(DEDUCT_SQL, rows, rows.size(), (ps, e) -> {
+            ps.setBigDecimal(1, e.getValue());
+            ps.setTimestamp(2, now);
+            ps.setLong(3, businessId);
+            ps.setLong(4, e.getKey());
+            ps.setBigDecimal(5, e.getValue());
+        });
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int n : batch) {
+                if (n == 0) shortOf.add(rows.get(i).getKey());
+                i++;
+            }
+        }
+        return shortOf;
+    }
+
+    /**
+     * Lock the products' balance rows (product-id order, like the writes) for the rest of the
+     * transaction and return their current quantities. Products without a row are absent.
+     */
+    public Map<Long, BigDecimal> lockQuantities(Long businessId, Collection<Long> productIds) {
+        Map<Long, BigDecimal> out = new HashMap<>();
+        if (productIds == null || productIds.isEmpty()) return out;
+        List<Long> ids = new ArrayList<>(productIds);
+        String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+        List<Object> args = new ArrayList<>(ids.size() + 1);
+        args.add(businessId);
+        args.addAll(ids);
+        jdbc.query("SELECT product_id, quantity FROM inv_stock_balances WHERE business_id = ? AND product_id IN ("
+                        + in + ") ORDER BY product_id FOR UPDATE",
+                rs -> { out.put(rs.getLong(1), rs.getBigDecimal(2)); }, args.toArray());
+        return out;
+    }
+
+    /** Recompute every balance of a business from the ledger. Returns the number of balance rows written. */
+    public int rebuild(Long businessId) {
+        jdbc.update("DELETE FROM inv_stock_balances WHERE business_id = ?", businessId);
+        return jdbc.update("""
+            INSERT INTO inv_stock_balances (business_id, product_id, quantity, stock_value, updated_at)
+            SELECT sm.business_id, sm.product_id, COALESCE(SUM(sm.quantity_delta), 0), COALESCE(SUM(sm.cost_value), 0), ?
+            FROM inv_stock_movements sm
+            WHERE sm.business_id = ?
+            GROUP BY sm.business_id, sm.product_id
+            """, Timestamp.from(OffsetDateTime.now().toInstant()), businessId);
+    }
+
+    /** Products whose stored balance differs from the ledger sum (missing rows count as zero). */
+    public List<StockBalanceDrift> verify(Long businessId) {
+        return jdbc.query("""
+            SELECT x.product_id, SUM(x.ledger_qty) AS ledger_qty, SUM(x.balance_qty) AS balance_qty
+            FROM (
+                SELECT sm.product_id, SUM(sm.quantity_delta) AS ledger_qty, 0 AS balance_qty
+                FROM inv_stock_movements sm
+                WHERE sm.business_id = ?
+                GROUP BY sm.product_id
+                UNION ALL
+                SELECT b.product_id, 0 AS ledger_qty, b.quantity AS balance_qty
+                FROM inv_stock_balances b
+                WHERE b.business_id = ?
+            ) x
+            GROUP BY x.product_id
+            HAVING SUM(x.ledger_qty) <> SUM(x.balance_qty)
+            ORDER BY x.product_id
+            """, (rs, i) -> new StockBalanceDrift(
+                    rs.getLong("product_id"),
+                    rs.getBigDecimal("ledger_qty"),
+                    rs.getBigDecimal("balance_qty")
+            ), businessId, businessId);
+    }
+}
@@ -0,0 +1,31 @@
+// src/main/java/com/ipachi/pos/repo/StockBalanceRepository.java
+package com.ipachi.pos.repo;
+
+import com.ipachi.pos.model.StockBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface StockBalanceRepository extends JpaRepository<StockBalance, StockBalance.Key> {
+
+    /** Primary-key lookup of the on-hand quantity; empty when the product never moved. */
+    @Query("""
+           SELECT b.quantity FROM StockBalance b
+           WHERE b.businessId = :businessId AND b.productId = :productId
+           """)
+    Optional<BigDecimal> findQuantity(@Param("businessId") Long businessId,
+                                      @Param("productId") Long productId);
+
+    List<StockBalance> findByBusinessIdAndProductIdIn(Long businessId, Collection<Long> productIds);
+
+    List<StockBalance> findByBusinessId(Long businessId);
+
+    /** Current inventory value at cost of a business. */
+    @Query("SELECT COALESCE(SUM(b.stockValue), 0) FROM StockBalance b WHERE b.businessId = :businessId")
+    BigDecimal sumStockValue(@Param("businessId") Long businessId);
+}
@@ -0,0 +1,137 @@
+// src/main/java/com/ipachi/pos/repo/StockCheckpointJdbcRepository.java
+package com.ipachi.pos.repo;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes for inv_stock_checkpoints.
+ * Point-in-time quantities are "nearest checkpoint at or before ts + movements in (checkpoint, ts]",
+ * so only the tail of the ledger is aggregated.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockCheckpointJdbcRepository {
+
+    private final JdbcTemplate jdbc;
+
+    /** Latest checkpoint instant at or before {@code ts}, or null if the business has none. */
+    public OffsetDateTime latestAtOrBefore(Long businessId, OffsetDateTime ts) {
+        Timestamp t = jdbc.queryForObject(
+                "SELECT MAX(as_of) FROM inv_stock_checkpoints WHERE business_id = ? AND as_of <= ?",
+                Timestamp.class, businessId, ts(ts));
+        return t == null ? null : t.toInstant().atOffset(ZoneOffset.UTC);
+    }
+
+    /** Quantity per product at {@code ts}: checkpoint + delta when a checkpoint exists, else the full ledger. */
+    public Map<Long, BigDecimal> quantitiesAt(Long businessId, OffsetDateTime ts) {
+        OffsetDateTime cp = latestAtOrBefore(businessId, ts);
+        Map<Long, BigDecimal> out = new HashMap<>();
+        if (cp == null) {
+            jdbc.query("""
+                SELECT product_id, SUM(quantity_delta) AS qty
+                FROM inv_stock_movements
+                WHERE business_id = ? AND created_at <= ?
+                GROUP BY product_id
+                """, rs -> { out.put(rs.getLong("product_id"), rs.getBigDecimal("qty")); },
+                    businessId, ts(ts));
+            return out;
+        }
+        jdbc.query("""
+            SELECT x.product_id, SUM(x.qty) AS qty
+            FROM (
+                SELECT c.product_id, c.quantity AS qty
+                FROM inv_stock_checkpoints c
+                WHERE c.business_id = ? AND c.as_of = ?
+                UNION ALL
+                SELECT m.product_id, SUM(m.quantity_delta) AS qty
+                FROM inv_stock_movements m
+                WHERE m.business_id = ? AND m.created_at > ? AND m.created_at <= ?
+                GROUP BY m.product_id
+            ) x
+            GROUP BY x.product_id
+            """, rs -> { out.put(rs.getLong("product_id"), rs.getBigDecimal("qty")); },
+                businessId, ts(cp), businessId, ts(cp), ts(ts));
+        return out;
+    }
+
+    /** Inventory value at cost at {@code ts}: checkpoint total + cost values of the movements since. */
+    public BigDecimal valueAt(Long businessId, OffsetDateTime ts) {
+        OffsetDateTime cp = latestAtOrBefore(businessId, ts);
+        if (cp == null) {
+            return jdbc.queryForObject("""
+                SELECT COALESCE(SUM(cost_value), 0) FROM inv_stock_movements
+                WHERE business_id = ? AND created_at <= ?
+                """, BigDecimal.class, businessId, ts(ts));
+        }
+        return jdbc.queryForObject("""
+            SELECT (SELECT COALESCE(SUM(c.stock_value), 0)
+                    FROM inv_stock_checkpoints c
+                    WHERE c.business_id = ? AND c.as_of = ?)
+                 + (SELECT COALESCE(SUM(m.cost_value), 0)
+                    FROM inv_stock_movements m
+                    WHERE m.business_id = ? AND m.created_at > ? AND m.created_at <= ?)
+            """, BigDecimal.class, businessId, ts(cp), businessId, ts(cp), ts(ts));
+    }
+
+    /**
+     * Write a complete checkpoint at {@code asOf}, rolled forward from the previous one (or from
+     * the whole ledger for the first). Returns rows written; no-op if it already exists.
+     */
+    public int write(Long businessId, OffsetDateTime asOf) {
+        Integer exists = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM inv_stock_checkpoints WHERE business_id = ? AND as_of = ?",
+                Integer.class, businessId, ts(asOf));
+        if (exists != null && exists > 0) return 0;
+
+        OffsetDateTime prev = latestAtOrBefore(businessId, asOf);
+        if (prev == null) {
+            return jdbc.update("""
+                INSERT INTO inv_stock_checkpoints (business_id, as_of, product_id, quantity, stock_value)
+                SELECT ?, ?, m.product_id, COALESCE(SUM(m.quantity_delta), 0), COALESCE(SUM(m.cost_value), 0)
+                FROM inv_stock_movements m
+                WHERE m.business_id = ? AND m.created_at <= ?
+                GROUP BY m.product_id
+                """, businessId, ts(asOf), businessId, ts(asOf));
+        }
+        return jdbc.update("""
+            INSERT INTO inv_stock_checkpoints (business_id, as_of, product_id, quantity, stock_value)
+            SELECT ?, ?, x.product_id, SUM(x.qty), SUM(x.val)
+            FROM (
+                SELECT c.product_id, c.quantity AS qty, c.stock_value AS val
+                FROM inv_stock_checkpoints c
+                WHERE c.business_id = ? AND c.as_of = ?
+                UNION ALL
+                SELECT m.product_id, SUM(m.quantity_delta) AS qty, COALESCE(SUM(m.cost_value), 0) AS val
+                FROM inv_stock_movements m
+                WHERE m.business_id = ? AND m.created_at > ? AND m.created_at <= ?
+                GROUP BY m.product_id
+            ) x
+            GROUP BY x.product_id
+            """, businessId, ts(asOf), businessId, ts(prev), businessId, ts(prev), ts(asOf));
+    }
+
+    /** Drop checkpoints at or after {@code from} (a movement was back-dated into their range). */
+    public int deleteFrom(Long businessId, OffsetDateTime from) {
+        return jdbc.update("DELETE FROM inv_stock_checkpoints WHERE business_id = ? AND as_of >= ?",
+                businessId, ts(from));
+    }
+
+    /** Businesses that have stock (candidates for the checkpoint job). */
+    public List<Long> businessesWithStock() {
+        return jdbc.queryForList("SELECT DISTINCT business_id FROM inv_stock_balances", Long.class);
+    }
+
+    private static Timestamp ts(OffsetDateTime t) {
+        return Timestamp.from(t.toInstant());
+    }
+}
@@ -0,0 +1,123 @@
+// src/main/java/com/ipachi/pos/repo/StockLocationBalanceJdbcRepository.java
+package com.ipachi.pos.repo;
+
+import com.ipachi.pos.model.StockLocationBalance;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes for inv_stock_location_balances (MySQL upserts), mirroring {@link StockBalanceJdbcRepository}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockLocationBalanceJdbcRepository {
+
+    /** Balance row key; {@code locationId} is {@link StockLocationBalance#UNASSIGNED} for unlocated stock. */
+    public record Slot(long locationId, long productId) {}
+
+    private static final Comparator<Slot> ORDER =
+            Comparator.comparingLong(Slot::locationId).thenComparingLong(Slot::productId);
+
+    private static final String UPSERT_SQL = """
+        INSERT INTO inv_stock_location_balances (business_id, location_id, product_id, quantity, updated_at)
+        VALUES (?,?,?,?,?)
+        ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), updated_at = VALUES(updated_at)
+        """;
+
+    private static final String DEDUCT_SQL = """
+        UPDATE inv_stock_location_balances
+           SET quantity = quantity - ?, updated_at = ?
+         WHERE business_id = ? AND location_id = ? AND product_id = ? AND quantity >= ?
+        """;
+
+    private final JdbcTemplate jdbc;
+
+    /** Add each delta to its (location, product) balance as one batch, in key order. */
+    public void applyDeltas(Long businessId, Map<Slot, BigDecimal> deltas) {
+        if (deltas == null || deltas.isEmpty()) return;
+
+        Timestamp now = Timestamp.from(OffsetDateTime.now().toInstant());
+        List<Map.Entry<Slot, BigDecimal>> rows = new ArrayList<>(deltas.entrySet());
+        rows.removeIf(e -> e.getValue().signum() == 0);
+        rows.sort(Map.Entry.comparingByKey(ORDER));
+
+        jdbc.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, e) -> {
+            ps.setLong(1, businessId);
+            ps.setLong(2, e.getKey().locationId());
+            ps.setLong(3, e.getKey().productId());
+            ps.setBigDecimal(4, e.getValue());
+            ps.setTimestamp(5, now);
+        });
+    }
+
+    /**
+     * Subtract quantities where the location holds enough, in key order. Returns the slots that
+     * were short (left untouched; the caller is expected to roll back).
+     */
+    public List<Slot> deductIfAvailable(Long businessId, Map<Slot, BigDecimal> quantities) {
+        List<Slot> shortOf = new ArrayList<>();
+        if (quantities == null || quantities.isEmpty()) return shortOf;
+
+        Timestamp now = Timestamp.from(OffsetDateTime.now().toInstant());
+        List<Map.Entry<Slot, BigDecimal>> rows = new ArrayList<>(quantities.entrySet());
+        rows.sort(Map.Entry.comparingByKey(ORDER));
+
+        int[][] counts = jdbc.batchUpdate(DEDUCT_SQL, rows, rows.size(), (ps, e) -> {
+            ps.setBigDecimal(1, e.getValue());
+            ps.setTimestamp(2, now);
+            ps.setLong(3, businessId);
+            ps.setLong(4, e.getKey().locationId());
+            ps.setLong(5, e.getKey().productId());
+            ps.setBigDecimal(6, e.getValue());
+        });
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int n : batch) {
+                if (n == 0) shortOf.add(rows.get(i).getKey());
+                i++;
+            }
+        }
+        return shortOf;
+    }
+
+    /** Quantity per product at one location (products without a row are absent). */
+    public Map<Long, BigDecimal> levels(Long businessId, long locationId, List<Long> productIds) {
+        Map<Long, BigDecimal> out = new HashMap<>();
+        if (productIds == null || productIds.isEmpty()) return out;
+        String in = String.join(",", Collections.nCopies(productIds.size(), "?"));
+        List<Object> args = new ArrayList<>(productIds.size() + 2);
+        args.add(businessId);
+        args.add(locationId);
+        args.addAll(productIds);
+        jdbc.query("""
+            SELECT product_id, quantity FROM inv_stock_location_balances
+            WHERE business_id = ? AND location_id = ? AND product_id IN (%s)
+            """.formatted(in), rs -> { out.put(rs.getLong("product_id"), rs.getBigDecimal("quantity")); },
+                args.toArray());
+        return out;
+    }
+
+    /** Recompute every location balance of a business from the ledger. Returns rows written. */
+    public int rebuild(Long businessId) {
+        jdbc.update("DELETE FROM inv_stock_location_balances WHERE business_id = ?", businessId);
+        return jdbc.update("""
+            INSERT INTO inv_stock_location_balances (business_id, location_id, product_id, quantity, updated_at)
+            SELECT sm.business_id, COALESCE(sm.location_id, ?), sm.product_id, COALESCE(SUM(sm.quantity_delta), 0), ?
+            FROM inv_stock_movements sm
+            WHERE sm.business_id = ?
+            GROUP BY sm.business_id, COALESCE(sm.location_id, ?), sm.product_id
+            """, StockLocationBalance.UNASSIGNED, Timestamp.from(OffsetDateTime.now().toInstant()),
+                businessId, StockLocationBalance.UNASSIGNED);
+    }
+}
@@ -0,0 +1,90 @@
+// src/main/java/com/ipachi/pos/repo/StockLotJdbcRepository.java
+package com.ipachi.pos.repo;
+
+import com.ipachi.pos.model.StockLot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Batched writes and FIFO reads for inv_stock_lots.
+ * Runs inside the ledger transaction, after the products' balance rows were updated, so lots of
+ * a product are only ever changed by the transaction holding that balance row's lock.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockLotJdbcRepository {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO inv_stock_lots
+          (business_id, product_id, receipt_id, received_at, expires_at,
+           quantity_received, quantity_remaining, depleted, unit_cost)
+        VALUES (?,?,?,?,?,?,?,?,?)
+        """;
+
+    private final JdbcTemplate jdbc;
+
+    public void insertAll(List<StockLot> lots) {
+        if (lots == null || lots.isEmpty()) return;
+        jdbc.batchUpdate(INSERT_SQL, lots, lots.size(), (ps, l) -> {
+            ps.setLong(1, l.getBusinessId());
+            ps.setLong(2, l.getProductId());
+            if (l.getReceiptId() == null) ps.setNull(3, Types.BIGINT); else ps.setLong(3, l.getReceiptId());
+            ps.setTimestamp(4, Timestamp.from(l.getReceivedAt().toInstant()));
+            if (l.getExpiresAt() == null) ps.setNull(5, Types.TIMESTAMP); else ps.setTimestamp(5, Timestamp.from(l.getExpiresAt().toInstant()));
+            ps.setBigDecimal(6, l.getQuantityReceived());
+            ps.setBigDecimal(7, l.getQuantityRemaining());
+            ps.setBoolean(8, l.isDepleted());
+            ps.setBigDecimal(9, l.getUnitCost());
+        });
+    }
+
+    /** Open lots of the given products, oldest first per product, locked for update. */
+    public List<StockLot> openLotsForUpdate(Long businessId, Collection<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) return List.of();
+        String in = String.join(",", Collections.nCopies(productIds.size(), "?"));
+        List<Object> args = new ArrayList<>(productIds.size() + 1);
+        args.add(businessId);
+        args.addAll(productIds);
+        return jdbc.query("""
+            SELECT id, business_id, product_id, receipt_id, received_at, expires_at,
+                   quantity_received, quantity_remaining, unit_cost
+            FROM inv_stock_lots
+            WHERE business_id = ? AND product_id IN (%s) AND depleted = FALSE
+            ORDER BY product_id, received_at, id
+            FOR UPDATE
+            """.formatted(in), (rs, i) -> {
+            Timestamp exp = rs.getTimestamp("expires_at");
+            return StockLot.builder()
+                    .id(rs.getLong("id"))
+                    .businessId(rs.getLong("business_id"))
+                    .productId(rs.getLong("product_id"))
+                    .receiptId(rs.getObject("receipt_id", Long.class))
+                    .receivedAt(rs.getTimestamp("received_at").toInstant().atOffset(ZoneOffset.UTC))
+                    .expiresAt(exp == null ? null : exp.toInstant().atOffset(ZoneOffset.UTC))
+                    .quantityReceived(rs.getBigDecimal("quantity_received"))
+                    .quantityRemaining(rs.getBigDecimal("quantity_remaining"))
+                    .unitCost(rs.getBigDecimal("unit_cost"))
+                    .build();
+        }, args.toArray());
+    }
+
+    /** Write back remaining quantity / depleted flag of consumed lots as one batch. */
+    public void updateRemaining(List<StockLot> lots) {
+        if (lots == null || lots.isEmpty()) return;
+        jdbc.batchUpdate("UPDATE inv_stock_lots SET quantity_remaining = ?, depleted = ? WHERE id = ?",
+                lots, lots.size(), (ps, l) -> {
+                    ps.setBigDecimal(1, l.getQuantityRemaining());
+                    ps.setBoolean(2, l.isDepleted());
+                    ps.setLong(3, l.getId());
+                });
+    }
+}
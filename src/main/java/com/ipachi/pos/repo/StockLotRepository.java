@@ -0,0 +1,82 @@
+package com.ipachi.pos.repo;
+
+import com.ipachi.pos.dto.PromoRawRow;
+import com.ipachi.pos.dto.StockLotDto;
+import com.ipachi.pos.model.StockLot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface StockLotRepository extends JpaRepository<StockLot, Long> {
+
+    /** Open lots expiring before {@code before} (already expired included), soonest first. */
+    @Query("""
+        select new com.ipachi.pos.dto.StockLotDto(
+          l.id, p.id, p.sku, p.name, l.receiptId, l.receivedAt, l.expiresAt, l.quantityReceived, l.quantityRemaining)
+        from StockLot l
+        join Product p on p.id = l.productId
+        where l.businessId = :bizId and l.depleted = false and l.expiresAt < :before
+        order by l.expiresAt asc, l.id asc
+    """)
+    List<StockLotDto> findExpiringBefore(@Param("bizId") Long businessId,
+                                         @Param("before") OffsetDateTime before);
+
+    /**
+     * Products with open lots past their expiry; lastRestockedAt carries the receipt time of the
+     * oldest such lot.
+     */
+    @Query("""
+        select new com.ipachi.pos.dto.PromoRawRow(
+          p.id,
+          p.sku,
+          p.barcode,
+          p.name,
+          coalesce(b.quantity, 0),
+          coalesce(u.name, 'unit'),
+          p.lifetimeDays,
+          min(l.receivedAt),
+          p.buyPrice,
+          p.sellPrice,
+          p.onSpecial
+        )
+        from StockLot l
+        join Product p on p.id = l.productId
+        left join p.unit u
+        left join StockBalance b on b.businessId = p.businessId and b.productId = p.id
+        where l.businessId = :bizId and l.depleted = false and l.expiresAt < :now
+        group by p.id, p.sku, p.barcode, p.name, b.quantity, u.name, p.lifetimeDays, p.buyPrice, p.sellPrice, p.onSpecial
+    """)
+    List<PromoRawRow> findExpiredPromoCandidates(@Param("bizId") Long businessId,
+                                                 @Param("now") OffsetDateTime now);
+
+    /** {@link #findExpiredPromoCandidates} among the given products (search hits from ProductSearchIndex). */
+    @Query("""
+        select new com.ipachi.pos.dto.PromoRawRow(
+          p.id,
+          p.sku,
+          p.barcode,
+          p.name,
+          coalesce(b.quantity, 0),
+          coalesce(u.name, 'unit'),
+          p.lifetimeDays,
+          min(l.receivedAt),
+          p.buyPrice,
+          p.sellPrice,
+          p.onSpecial
+        )
+        from StockLot l
+        join Product p on p.id = l.productId
+        left join p.unit u
+        left join StockBalance b on b.businessId = p.businessId and b.productId = p.id
+        where l.businessId = :bizId and l.depleted = false and l.expiresAt < :now
+          and p.id in :ids
+        group by p.id, p.sku, p.barcode, p.name, b.quantity, u.name, p.lifetimeDays, p.buyPrice, p.sellPrice, p.onSpecial
+    """)
+    List<PromoRawRow> findExpiredPromoCandidatesAmong(@Param("bizId") Long businessId,
+                                                      @Param("now") OffsetDateTime now,
+                                                      @Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,109 @@
+// src/main/java/com/ipachi/pos/repo/StockMovementJdbcRepository.java
+package com.ipachi.pos.repo;
+
+import com.ipachi.pos.dto.StockMovementDto;
+import com.ipachi.pos.model.StockMovement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Batched writes and keyset-paged reads for inv_stock_movements.
+ * Runs on the same connection as the surrounding JPA transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockMovementJdbcRepository {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO inv_stock_movements
+          (business_id, created_by_user_id, terminal_id, product_id, quantity_delta,
+           receipt_id, note, created_at, updated_at, user_id, location_id, cost_value, transaction_id)
+        VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?)
+        """;
+
+    private final JdbcTemplate jdbc;
+
+    /** Insert all movements as one JDBC batch. Product (and receipt, if any) must already carry an id. */
+    public void insertAll(List<StockMovement> movements) {
+        if (movements == null || movements.isEmpty()) return;
+
+        jdbc.batchUpdate(INSERT_SQL, movements, movements.size(), (ps, m) -> {
+            OffsetDateTime at = m.getCreatedAt() == null ? OffsetDateTime.now() : m.getCreatedAt();
+            ps.setLong(1, m.getBusinessId());
+            ps.setLong(2, m.getCreatedByUserId());
+            if (m.getTerminalId() == null) ps.setNull(3, Types.BIGINT); else ps.setLong(3, m.getTerminalId());
+            ps.setLong(4, m.getProduct().getId());
+            ps.setBigDecimal(5, m.getQuantityDelta());
+            if (m.getReceipt() == null) ps.setNull(6, Types.BIGINT); else ps.setLong(6, m.getReceipt().getId());
+            ps.setString(7, m.getNote());
+            ps.setTimestamp(8, Timestamp.from(at.toInstant()));
+            ps.setTimestamp(9, Timestamp.from(at.toInstant()));
+            ps.setLong(10, m.getUserId() == null ? m.getCreatedByUserId() : m.getUserId());
+            if (m.getLocationId() == null) ps.setNull(11, Types.BIGINT); else ps.setLong(11, m.getLocationId());
+            if (m.getCostValue() == null) ps.setNull(12, Types.DECIMAL); else ps.setBigDecimal(12, m.getCostValue());
+            if (m.getTransactionId() == null) ps.setNull(13, Types.BIGINT); else ps.setLong(13, m.getTransactionId());
+        });
+    }
+
+    /** History filters; null means "any". {@code direction} is +1 for stock in, -1 for stock out. */
+    public record Filter(Long productId, String sku, Long receiptId, Long userId, Long terminalId, Integer direction) {}
+
+    /**
+     * One page of movements, newest first, strictly older than ({@code beforeAt}, {@code beforeId})
+     * when given. Seeks on (business_id[, product_id], created_at, id), so every page costs the same.
+     */
+    public List<StockMovementDto> history(Long businessId, Filter f, OffsetDateTime beforeAt, Long beforeId, int limit) {
+        StringBuilder where = new StringBuilder("m.business_id = ?");
+        List<Object> args = new ArrayList<>();
+        args.add(businessId);
+        if (f.productId() != null) { where.append(" AND m.product_id = ?"); args.add(f.productId()); }
+        if (f.sku() != null) {
+            where.append(" AND m.product_id = (SELECT p2.id FROM inv_products p2 WHERE p2.business_id = ? AND p2.sku = ?)");
+            args.add(businessId);
+            args.add(f.sku());
+        }
+        if (f.receiptId() != null) { where.append(" AND m.receipt_id = ?"); args.add(f.receiptId()); }
+        if (f.userId() != null) { where.append(" AND m.created_by_user_id = ?"); args.add(f.userId()); }
+        if (f.terminalId() != null) { where.append(" AND m.terminal_id = ?"); args.add(f.terminalId()); }
+        if (f.direction() != null) where.append(f.direction() > 0 ? " AND m.quantity_delta > 0" : " AND m.quantity_delta < 0");
+        if (beforeAt != null) {
+            Timestamp t = Timestamp.from(beforeAt.toInstant());
+            where.append(" AND (m.created_at < ? OR (m.created_at = ? AND m.id < ?))");
+            args.add(t);
+            args.add(t);
+            args.add(beforeId);
+        }
+        args.add(limit);
+
+        return jdbc.query("""
+            SELECT m.id, m.product_id, p.name, p.sku, m.quantity_delta, m.receipt_id, r.label,
+                   m.note, m.created_at, m.terminal_id, m.created_by_user_id
+            FROM inv_stock_movements m
+            JOIN inv_products p ON p.id = m.product_id
+            LEFT JOIN inv_stock_receipt r ON r.id = m.receipt_id
+            WHERE %s
+            ORDER BY m.created_at DESC, m.id DESC
+            LIMIT ?
+            """.formatted(where), (rs, i) -> new StockMovementDto(
+                rs.getLong("id"),
+                rs.getLong("product_id"),
+                rs.getString("name"),
+                rs.getString("sku"),
+                rs.getBigDecimal("quantity_delta"),
+                rs.getObject("receipt_id", Long.class),
+                rs.getString("label"),
+                rs.getString("note"),
+                rs.getTimestamp("created_at").toInstant().atOffset(ZoneOffset.UTC),
+                rs.getObject("terminal_id", Long.class),
+                rs.getLong("created_by_user_id")
+        ), args.toArray());
+    }
+}
@@ -19,12 +19,13 @@ public interface StockMovementRepository extends JpaRepository<StockMovement, Lo
     """)
     BigDecimal sumQtyUpTo(Long productId, Long biz, OffsetDateTime ts);
 
-    // purchases in period (positive deltas × buyPrice) aggregated over all products
+    // purchases in period (positive deltas at the cost recorded when they were received); the opening
+    // rows a ledger compaction leaves at its cutoff carry stock forward and are not purchases
+    // (the archived movements they replace are counted by StockArchiveJdbcRepository.purchasesValue)
     @Query("""
-      select coalesce(sum( case when m.quantityDelta > 0 then m.quantityDelta * p.buyPrice else 0 end ), 0)
+      select coalesce(sum( case when m.quantityDelta > 0 then coalesce(m.costValue, 0) else 0 end ), 0)
       from StockMovement m
-      join m.product p
-      where m.businessId = :biz and m.createdAt between :start and :end
+      where m.businessId = :biz and m.createdAt between :start and :end and m.openingBalance = false
     """)
     BigDecimal purchasesValue(Long biz, OffsetDateTime start, OffsetDateTime end);
 
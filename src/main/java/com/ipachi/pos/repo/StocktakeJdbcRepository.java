@@ -0,0 +1,109 @@
+// src/main/java/com/ipachi/pos/repo/StocktakeJdbcRepository.java
+package com.ipachi.pos.repo;
+
+import com.ipachi.pos.model.StockLocationBalance;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based writes and streaming reads for inv_stocktake_lines.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StocktakeJdbcRepository {
+
+    private static final String SET_COUNT_SQL = """
+        INSERT INTO inv_stocktake_lines (stocktake_id, product_id, system_qty, counted_qty, counted_at)
+        VALUES (?,?,0,?,?)
+        ON DUPLICATE KEY UPDATE counted_qty = VALUES(counted_qty), counted_at = VALUES(counted_at)
+        """;
+
+    private static final String ADD_COUNT_SQL = """
+        INSERT INTO inv_stocktake_lines (stocktake_id, product_id, system_qty, counted_qty, counted_at)
+        VALUES (?,?,0,?,?)
+        ON DUPLICATE KEY UPDATE counted_qty = COALESCE(counted_qty, 0) + VALUES(counted_qty),
+                                counted_at = VALUES(counted_at)
+        """;
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * Freeze the current quantity of every product of the business (at one location when
+     * {@code locationId} is not null; {@link StockLocationBalance#UNASSIGNED} for unlocated stock)
+     * as one INSERT ... SELECT. Returns the number of lines.
+     */
+    public int snapshot(Long stocktakeId, Long businessId, Long locationId) {
+        if (locationId == null) {
+            return jdbc.update("""
+                INSERT INTO inv_stocktake_lines (stocktake_id, product_id, system_qty)
+                SELECT ?, p.id, COALESCE(b.quantity, 0)
+                FROM inv_products p
+                LEFT JOIN inv_stock_balances b ON b.business_id = p.business_id AND b.product_id = p.id
+                WHERE p.business_id = ?
+                """, stocktakeId, businessId);
+        }
+        return jdbc.update("""
+            INSERT INTO inv_stocktake_lines (stocktake_id, product_id, system_qty)
+            SELECT ?, p.id, COALESCE(lb.quantity, 0)
+            FROM inv_products p
+            LEFT JOIN inv_stock_location_balances lb
+                   ON lb.business_id = p.business_id AND lb.location_id = ? AND lb.product_id = p.id
+            WHERE p.business_id = ?
+            """, stocktakeId, locationId, businessId);
+    }
+
+    /**
+     * Record counted quantities as one batch. With {@code add} the quantities are added to what
+     * was already counted (several people counting the same product in different aisles).
+     */
+    public void recordCounts(Long stocktakeId, Map<Long, BigDecimal> countedByProduct, boolean add) {
+        if (countedByProduct == null || countedByProduct.isEmpty()) return;
+        Timestamp now = Timestamp.from(OffsetDateTime.now().toInstant());
+        List<Map.Entry<Long, BigDecimal>> rows = countedByProduct.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey()).toList();
+        jdbc.batchUpdate(add ? ADD_COUNT_SQL : SET_COUNT_SQL, rows, rows.size(), (ps, e) -> {
+            ps.setLong(1, stocktakeId);
+            ps.setLong(2, e.getKey());
+            ps.setBigDecimal(3, e.getValue());
+            ps.setTimestamp(4, now);
+        });
+    }
+
+    /** [lines, counted lines] of a stocktake. */
+    public long[] progress(Long stocktakeId) {
+        return jdbc.queryForObject("""
+            SELECT COUNT(*) AS total, COUNT(counted_qty) AS counted
+            FROM inv_stocktake_lines WHERE stocktake_id = ?
+            """, (rs, i) -> new long[]{rs.getLong("total"), rs.getLong("counted")}, stocktakeId);
+    }
+
+    /**
+     * Stream the lines whose count differs from the frozen quantity, in product order, one row at
+     * a time. Uncounted lines are skipped, or treated as counted zero with {@code uncountedAsZero}.
+     * Columns: product_id, sku, name, buy_price, system_qty, counted_qty.
+     */
+    public void streamVariances(Long stocktakeId, boolean uncountedAsZero, RowCallbackHandler rch) {
+        String counted = uncountedAsZero ? "COALESCE(l.counted_qty, 0)" : "l.counted_qty";
+        jdbc.query(con -> {
+            var ps = con.prepareStatement("""
+                SELECT l.product_id, p.sku, p.name, p.buy_price, l.system_qty, %1$s AS counted_qty
+                FROM inv_stocktake_lines l
+                JOIN inv_products p ON p.id = l.product_id
+                WHERE l.stocktake_id = ? AND %1$s IS NOT NULL AND %1$s <> l.system_qty
+                ORDER BY l.product_id
+                """.formatted(counted), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setLong(1, stocktakeId);
+            ps.setFetchSize(Integer.MIN_VALUE);   // MySQL Connector/J: stream rows instead of buffering the result
+            return ps;
+        }, rch);
+    }
+}
@@ -0,0 +1,36 @@
+package com.ipachi.pos.repo;
+
+import com.ipachi.pos.model.Stocktake;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface StocktakeRepository extends JpaRepository<Stocktake, Long> {
+    Optional<Stocktake> findByIdAndBusinessId(Long id, Long businessId);
+
+    List<Stocktake> findByBusinessIdOrderByIdDesc(Long businessId);
+
+    /** Row-locks the stocktake so counts cannot interleave with commit/cancel. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from Stocktake s where s.id = :id and s.businessId = :biz")
+    Optional<Stocktake> lockByIdAndBusinessId(@Param("id") Long id, @Param("biz") Long businessId);
+
+    boolean existsByBusinessIdAndLocationIdAndStatus(Long businessId, Long locationId, Stocktake.Status status);
+
+    boolean existsByBusinessIdAndLocationIdIsNullAndStatus(Long businessId, Stocktake.Status status);
+
+    /** OPEN → {@code status}; returns 0 if the stocktake was already closed (concurrent commit/cancel). */
+    @Modifying
+    @Query("""
+        update Stocktake s set s.status = :status, s.closedAt = :at
+        where s.id = :id and s.status = com.ipachi.pos.model.Stocktake.Status.OPEN
+    """)
+    int close(@Param("id") Long id, @Param("status") Stocktake.Status status, @Param("at") OffsetDateTime at);
+}
@@ -4,10 +4,24 @@ package com.ipachi.pos.repo;
 import com.ipachi.pos.dto.TillSessionStatus;
 import com.ipachi.pos.model.TillSession;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.Optional;
 
         public interface TillSessionRepository extends JpaRepository<TillSession, Long> {
             boolean existsByTerminalIdAndStatus(Long terminalId, TillSessionStatus status);
 
             Optional<TillSession> findFirstByTerminalIdAndStatus(Long terminalId, TillSessionStatus status);
+
+            /** Sessions of the terminal that were open at {@code at}, latest opened first. */
+            @Query("""
+                   SELECT s FROM TillSession s
+                   WHERE s.terminalId = :terminalId AND s.openedAt <= :at
+                     AND (s.closedAt IS NULL OR s.closedAt > :at)
+                   ORDER BY s.openedAt DESC
+                   """)
+            List<TillSession> findOpenAt(@Param("terminalId") Long terminalId, @Param("at") OffsetDateTime at);
 }
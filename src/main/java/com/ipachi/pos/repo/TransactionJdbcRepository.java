@@ -0,0 +1,57 @@
+// src/main/java/com/ipachi/pos/repo/TransactionJdbcRepository.java
+package com.ipachi.pos.repo;
+
+import com.ipachi.pos.model.Transaction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+
+/**
+ * Direct writes for tx_head.
+ * Used where the row must keep a client-supplied created_at (offline sales), which the
+ * entity's @CreationTimestamp would overwrite on a JPA insert.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionJdbcRepository {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO tx_head
+          (business_id, created_by_user_id, terminal_id, idempotency_key, customer_name, total,
+           subtotal_net, total_vat, total_gross, created_at, updated_at, user_id)
+        VALUES (?,?,?,?,?,?,?,?,?,?,?,?)
+        """;
+
+    private final JdbcTemplate jdbc;
+
+    /** Insert the head as given and return its generated id. */
+    public Long insert(Transaction tx) {
+        OffsetDateTime at = tx.getCreatedAt() == null ? OffsetDateTime.now() : tx.getCreatedAt();
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+            ps.setLong(1, tx.getBusinessId());
+            ps.setLong(2, tx.getCreatedByUserId());
+            if (tx.getTerminalId() == null) ps.setNull(3, Types.BIGINT); else ps.setLong(3, tx.getTerminalId());
+            ps.setString(4, tx.getIdempotencyKey());
+            ps.setString(5, tx.getCustomerName());
+            ps.setBigDecimal(6, tx.getTotal());
+            ps.setBigDecimal(7, tx.getSubtotalNet());
+            ps.setBigDecimal(8, tx.getTotalVat());
+            ps.setBigDecimal(9, tx.getTotalGross());
+            ps.setTimestamp(10, Timestamp.from(at.toInstant()));
+            ps.setTimestamp(11, Timestamp.from((tx.getUpdatedAt() == null ? at : tx.getUpdatedAt()).toInstant()));
+            ps.setLong(12, tx.getUserId() == null ? tx.getCreatedByUserId() : tx.getUserId());
+            return ps;
+        }, keys);
+        return keys.getKey().longValue();
+    }
+}
@@ -0,0 +1,59 @@
+// src/main/java/com/ipachi/pos/repo/TransactionLineJdbcRepository.java
+package com.ipachi.pos.repo;
+
+import com.ipachi.pos.model.TransactionLine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Batched writes for tx_line.
+ * Runs on the same connection as the surrounding JPA transaction, so the tx_head row saved
+ * through JPA is visible to these inserts.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionLineJdbcRepository {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO tx_line
+          (business_id, created_by_user_id, tx_id, sku, name, unit_price, qty, line_total,
+           net_amount, vat_amount, gross_amount, vat_rate_applied, profit, remaining_stock,
+           created_at, updated_at, user_id, cost)
+        VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)
+        """;
+
+    private final JdbcTemplate jdbc;
+
+    /** Insert all lines as one JDBC batch. Each line's transaction must already carry an id. */
+    public void insertAll(List<TransactionLine> lines) {
+        if (lines == null || lines.isEmpty()) return;
+
+        jdbc.batchUpdate(INSERT_SQL, lines, lines.size(), (ps, l) -> {
+            OffsetDateTime at = l.getCreatedAt() == null ? OffsetDateTime.now() : l.getCreatedAt();
+            ps.setLong(1, l.getBusinessId());
+            ps.setLong(2, l.getCreatedByUserId());
+            ps.setLong(3, l.getTransaction().getId());
+            ps.setString(4, l.getSku());
+            ps.setString(5, l.getName());
+            ps.setBigDecimal(6, l.getUnitPrice());
+            ps.setInt(7, l.getQty());
+            ps.setBigDecimal(8, l.getLineTotal());
+            ps.setBigDecimal(9, l.getNetAmount());
+            ps.setBigDecimal(10, l.getVatAmount());
+            ps.setBigDecimal(11, l.getGrossAmount());
+            if (l.getVatRateApplied() == null) ps.setNull(12, Types.DECIMAL); else ps.setBigDecimal(12, l.getVatRateApplied());
+            ps.setBigDecimal(13, l.getProfit());
+            ps.setBigDecimal(14, l.getRemainingStock());
+            ps.setTimestamp(15, Timestamp.from(at.toInstant()));
+            ps.setTimestamp(16, Timestamp.from((l.getUpdatedAt() == null ? at : l.getUpdatedAt()).toInstant()));
+            ps.setLong(17, l.getUserId() == null ? l.getCreatedByUserId() : l.getUserId());
+            if (l.getCost() == null) ps.setNull(18, Types.DECIMAL); else ps.setBigDecimal(18, l.getCost());
+        });
+    }
+}
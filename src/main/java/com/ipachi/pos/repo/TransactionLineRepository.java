@@ -107,7 +107,8 @@ public interface TransactionLineRepository extends JpaRepository<TransactionLine
      tl.name       as name,
      /* make SUM type-stable */
      sum(coalesce(tl.qty, 0))                    as qty,
-     sum(coalesce(tl.profit, 0))                 as profit
+     sum(coalesce(tl.profit, 0))                 as profit,
+     sum(tl.cost)                                as cost
   from TransactionLine tl
   join tl.transaction t
   where t.businessId = :biz
@@ -15,6 +15,9 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     List<Transaction> findByUserId(Long userId);
     Optional<Transaction> findByIdAndUserId(Long id, Long userId);
 
+    Optional<Transaction> findByBusinessIdAndIdempotencyKey(Long businessId, String idempotencyKey);
+    List<Transaction> findByBusinessIdAndIdempotencyKeyIn(Long businessId, java.util.Collection<String> idempotencyKeys);
+
     long countByBusinessIdAndCreatedAtBetween(Long businessId, OffsetDateTime start, OffsetDateTime end);
     @Query(value = """
 select 
@@ -0,0 +1,121 @@
+// src/main/java/com/ipachi/pos/service/BomService.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.dto.ProductType;
+import com.ipachi.pos.model.Product;
+import com.ipachi.pos.model.ProductComponent;
+import com.ipachi.pos.repo.ProductComponentRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Bill-of-materials explosion for RECIPE products.
+ * Linked components ({@code ProductComponent.component != null}) are loaded one recipe level per
+ * query, then each product is expanded to the stock-holding products one unit of it consumes.
+ * Manual ingredient lines carry no stock and are ignored; a recipe without linked components
+ * is stocked as itself, as before.
+ */
+@Service
+@RequiredArgsConstructor
+public class BomService {
+
+    /** Deepest recipe nesting followed before giving up (also bounds the number of queries). */
+    private static final int MAX_DEPTH = 16;
+
+    private final ProductComponentRepository componentRepo;
+
+    /** One stock-holding product and how much of it a single unit of the sold product uses. */
+    public record Part(Product product, BigDecimal quantity) {}
+
+    /** Stock parts per sold product id; products that are not exploded map to themselves x 1. */
+    public record Explosion(Map<Long, List<Part>> partsByProduct) {
+
+        public List<Part> parts(Product p) {
+            List<Part> parts = partsByProduct.get(p.getId());
+            return parts != null ? parts : List.of(new Part(p, BigDecimal.ONE));
+        }
+
+        public boolean exploded(Product p) {
+            return partsByProduct.containsKey(p.getId());
+        }
+    }
+
+    /** Explode the given products (e.g. everything in a basket). Throws 400 on a recipe cycle. */
+    public Explosion explode(Long businessId, Collection<Product> products) {
+        // 1) load the reachable recipe graph, one level per query
+        Map<Long, List<ProductComponent>> links = new HashMap<>();
+        Set<Long> visited = new HashSet<>();
+        Set<Long> frontier = new LinkedHashSet<>();
+        for (Product p : products) {
+            if (p.getProductType() == ProductType.RECIPE && visited.add(p.getId())) frontier.add(p.getId());
+        }
+        int depth = 0;
+        while (!frontier.isEmpty()) {
+            if (++depth > MAX_DEPTH) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Recipes are nested deeper than " + MAX_DEPTH + " levels");
+            }
+            Set<Long> next = new LinkedHashSet<>();
+            for (ProductComponent pc : componentRepo.findLinkedByParentIds(frontier, businessId)) {
+                links.computeIfAbsent(pc.getParent().getId(), k -> new ArrayList<>()).add(pc);
+                Product c = pc.getComponent();
+                if (c.getProductType() == ProductType.RECIPE && visited.add(c.getId())) next.add(c.getId());
+            }
+            frontier = next;
+        }
+
+        // 2) expand each sold product depth-first, memoising per-unit parts and detecting cycles
+        Map<Long, List<Part>> memo = new HashMap<>();
+        Map<Long, List<Part>> out = new HashMap<>();
+        for (Product p : products) {
+            if (links.containsKey(p.getId())) {
+                out.put(p.getId(), expand(p, links, memo, new LinkedHashSet<>()));
+            }
+        }
+        return new Explosion(out);
+    }
+
+    private List<Part> expand(Product p, Map<Long, List<ProductComponent>> links,
+                              Map<Long, List<Part>> memo, LinkedHashSet<Long> path) {
+        List<ProductComponent> comps = links.get(p.getId());
+        if (comps == null) return List.of(new Part(p, BigDecimal.ONE));   // stock-holding leaf
+
+        List<Part> done = memo.get(p.getId());
+        if (done != null) return done;
+
+        if (!path.add(p.getId())) throw cycle(p, path);
+
+        Map<Long, Part> acc = new LinkedHashMap<>();
+        for (ProductComponent pc : comps) {
+            BigDecimal per = (pc.getQuantity() == null || pc.getQuantity().signum() <= 0)
+                    ? BigDecimal.ONE : pc.getQuantity();
+            for (Part leaf : expand(pc.getComponent(), links, memo, path)) {
+                BigDecimal q = leaf.quantity().multiply(per);
+                acc.merge(leaf.product().getId(), new Part(leaf.product(), q),
+                        (a, b) -> new Part(a.product(), a.quantity().add(b.quantity())));
+            }
+        }
+        path.remove(p.getId());
+
+        List<Part> parts = List.copyOf(acc.values());
+        memo.put(p.getId(), parts);
+        return parts;
+    }
+
+    private static ResponseStatusException cycle(Product p, LinkedHashSet<Long> path) {
+        StringBuilder sb = new StringBuilder();
+        boolean in = false;
+        for (Long id : path) {
+            if (id.equals(p.getId())) in = true;
+            if (in) sb.append(id).append(" -> ");
+        }
+        sb.append(p.getId());
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Recipe cycle detected at " + p.getName() + " (product ids " + sb + ")");
+    }
+}
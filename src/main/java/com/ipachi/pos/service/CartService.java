@@ -0,0 +1,185 @@
+// src/main/java/com/ipachi/pos/service/CartService.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.dto.CartItemRequest;
+import com.ipachi.pos.dto.CartView;
+import com.ipachi.pos.model.Product;
+import com.ipachi.pos.model.Transaction;
+import com.ipachi.pos.repo.ProductRepository;
+import com.ipachi.pos.security.CurrentRequest;
+import com.ipachi.pos.tax.Money;
+import com.ipachi.pos.tax.TaxTable;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Server-side cart sessions for scan-as-you-go tills.
+ * Each scan resolves the product once, checks stock for it and re-prices only its line;
+ * checkout then commits the already-resolved lines. Carts live in memory and expire after
+ * {@code cart.ttl-seconds} without activity.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CartService {
+
+    private final ProductRepository productRepo;
+    private final BomService bom;
+    private final StockLedgerService ledger;
+    private final TaxTableCache taxTables;
+    private final CheckoutService checkoutService;
+    private final CurrentRequest ctx;
+
+    @Value("${cart.ttl-seconds:1800}")
+    private long ttlSeconds;
+
+    @Value("${cart.max-sessions:5000}")
+    private int maxSessions;
+
+    private final Map<String, CartSession> carts = new ConcurrentHashMap<>();
+
+    private Long biz() {
+        Long id = ctx.getBusinessId();
+        if (id == null) throw new IllegalStateException("X-Business-Id missing");
+        return id;
+    }
+
+    public CartView create(String customerName) {
+        if (carts.size() >= maxSessions) sweep();
+        if (carts.size() >= maxSessions) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many open carts");
+        }
+        String name = (customerName == null || customerName.isBlank()) ? "Walk-in" : customerName.trim();
+        CartSession cart = new CartSession(UUID.randomUUID().toString(), biz(), ctx.getUserId(), ctx.getTerminalId(), name);
+        carts.put(cart.id(), cart);
+        return cart.view(ttlSeconds);
+    }
+
+    public CartView get(String cartId) {
+        CartSession cart = require(cartId);
+        synchronized (cart) {
+            return cart.view(ttlSeconds);
+        }
+    }
+
+    /** Add {@code qty} of a SKU (a scan). Validates product and stock now rather than at checkout. */
+    public CartView add(String cartId, CartItemRequest req) {
+        if (req == null || req.sku() == null || req.sku().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "SKU is required");
+        }
+        int qty = req.qty() == null ? 1 : req.qty();
+        if (qty <= 0) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be positive");
+
+        CartSession cart = require(cartId);
+        String key = req.sku().trim().toLowerCase();
+        TaxTable tax = taxTables.forBusiness(cart.businessId());
+
+        synchronized (cart) {
+            CartSession.Line line = cart.line(key);
+            boolean fresh = line == null;
+            if (fresh) {
+                Product p = productRepo.findBySkuIgnoreCaseAndBusinessId(req.sku().trim(), cart.businessId())
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                                "Product not found for SKU in this business"));
+                var parts = bom.explode(cart.businessId(), List.of(p)).parts(p);
+                long unit = req.price() != null ? Money.of(req.price()) : shelfPrice(p, tax);
+                line = new CartSession.Line(p, parts, unit);
+            }
+            int newQty = line.qty + qty;
+            checkStock(cart, line, newQty);
+            if (fresh) cart.addLine(key, line);
+            cart.setQty(key, newQty, tax);
+            cart.touch();
+            return cart.view(ttlSeconds);
+        }
+    }
+
+    /** Remove {@code qty} of a SKU, or the whole line when qty is null. */
+    public CartView remove(String cartId, String sku, Integer qty) {
+        CartSession cart = require(cartId);
+        String key = sku == null ? "" : sku.trim().toLowerCase();
+        synchronized (cart) {
+            CartSession.Line line = cart.line(key);
+            if (line == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "SKU not in cart");
+            int newQty = (qty == null) ? 0 : Math.max(0, line.qty - qty);
+            cart.setQty(key, newQty, taxTables.forBusiness(cart.businessId()));
+            cart.touch();
+            return cart.view(ttlSeconds);
+        }
+    }
+
+    public void discard(String cartId) {
+        require(cartId);
+        carts.remove(cartId);
+    }
+
+    /** Commit the cart through CheckoutService; the cart is closed once the sale is saved. */
+    public Transaction checkout(String cartId, String idempotencyKey) {
+        CartSession cart = require(cartId);
+        synchronized (cart) {
+            if (cart.isEmpty()) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cart is empty");
+            Transaction tx = checkoutService.checkout(cart, idempotencyKey);
+            carts.remove(cartId);
+            return tx;
+        }
+    }
+
+    /** Drop carts idle for longer than the TTL. */
+    @Scheduled(fixedDelayString = "${cart.sweep-ms:60000}")
+    public void sweep() {
+        Instant cutoff = Instant.now().minusSeconds(ttlSeconds);
+        int before = carts.size();
+        carts.values().removeIf(c -> c.lastTouched().isBefore(cutoff));
+        int evicted = before - carts.size();
+        if (evicted > 0) log.debug("Evicted {} idle carts", evicted);
+    }
+
+    /* ========= helpers ========= */
+
+    private CartSession require(String cartId) {
+        CartSession cart = cartId == null ? null : carts.get(cartId);
+        if (cart == null || !cart.businessId().equals(biz())
+                || cart.lastTouched().isBefore(Instant.now().minusSeconds(ttlSeconds))) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found or expired");
+        }
+        return cart;
+    }
+
+    /** Shelf price on the basis the till sends: sellPrice is stored net, so add VAT when prices include it. */
+    private static long shelfPrice(Product p, TaxTable tax) {
+        BigDecimal net = p.getSellPrice() == null ? BigDecimal.ZERO : p.getSellPrice();
+        BigDecimal rate = tax.rateFor(p).percent().movePointLeft(2);
+        if (!tax.pricesIncludeVat() || rate.signum() <= 0) return Money.of(net);
+        return Money.of(net.multiply(BigDecimal.ONE.add(rate)).setScale(2, RoundingMode.HALF_UP));
+    }
+
+    /** The line's stock parts must cover the new quantity, counting what other lines already take. */
+    private void checkStock(CartSession cart, CartSession.Line line, int newQty) {
+        List<Long> ids = line.parts.stream().map(p -> p.product().getId()).toList();
+        Map<Long, BigDecimal> levels = ledger.levels(cart.businessId(), ids);
+        for (BomService.Part part : line.parts) {
+            Long pid = part.product().getId();
+            BigDecimal needed = part.quantity().multiply(BigDecimal.valueOf(newQty))
+                    .add(cart.reservedBy(pid, line));
+            BigDecimal available = levels.getOrDefault(pid, BigDecimal.ZERO);
+            if (available.compareTo(needed) < 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Insufficient stock for %s: requested %s, available %.4f"
+                                .formatted(part.product().getName(), needed.stripTrailingZeros().toPlainString(), available));
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+// src/main/java/com/ipachi/pos/service/CartSession.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.dto.CartLineView;
+import com.ipachi.pos.dto.CartView;
+import com.ipachi.pos.dto.TillItem;
+import com.ipachi.pos.model.Product;
+import com.ipachi.pos.tax.Money;
+import com.ipachi.pos.tax.TaxCalculator;
+import com.ipachi.pos.tax.TaxTable;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-memory basket being built at a till. One line per SKU; each line keeps its own
+ * net/VAT/gross (in cents) and the cart keeps running totals, so a scan only re-prices the
+ * line it touched. Products and their recipe parts are resolved once, when first scanned,
+ * and handed to checkout as-is. Callers synchronize on the session while mutating it.
+ */
+public final class CartSession {
+
+    /** A priced basket line; the product and its stock parts are what checkout commits. */
+    static final class Line {
+        final Product product;
+        final List<BomService.Part> parts;
+        final long unitCents;
+        int qty;
+        TaxTable.Rate rate;
+        TaxCalculator.Cents amounts = new TaxCalculator.Cents(0, 0, 0);
+
+        Line(Product product, List<BomService.Part> parts, long unitCents) {
+            this.product = product;
+            this.parts = parts;
+            this.unitCents = unitCents;
+        }
+    }
+
+    private final String id;
+    private final Long businessId;
+    private final Long userId;
+    private final Long terminalId;
+    private final String customerName;
+
+    private final Map<String, Line> lines = new LinkedHashMap<>(); // by lower-cased SKU
+    private long net;
+    private long vat;
+    private long gross;
+    private volatile Instant lastTouched = Instant.now();
+
+    CartSession(String id, Long businessId, Long userId, Long terminalId, String customerName) {
+        this.id = id;
+        this.businessId = businessId;
+        this.userId = userId;
+        this.terminalId = terminalId;
+        this.customerName = customerName;
+    }
+
+    public String id()          { return id; }
+    public Long businessId()    { return businessId; }
+    public Long userId()        { return userId; }
+    public Long terminalId()    { return terminalId; }
+    public String customerName(){ return customerName; }
+
+    Instant lastTouched()       { return lastTouched; }
+    void touch()                { lastTouched = Instant.now(); }
+
+    Line line(String skuKey)    { return lines.get(skuKey); }
+
+    Line addLine(String skuKey, Line line) {
+        lines.put(skuKey, line);
+        return line;
+    }
+
+    /** Set a line's quantity and re-price only that line, adjusting the cart totals by the difference. */
+    void setQty(String skuKey, int qty, TaxTable tax) {
+        Line l = lines.get(skuKey);
+        if (l == null) return;
+
+        net -= l.amounts.net(); vat -= l.amounts.vat(); gross -= l.amounts.gross();
+        if (qty <= 0) {
+            lines.remove(skuKey);
+            return;
+        }
+        l.qty = qty;
+        l.rate = tax.rateFor(l.product);
+        l.amounts = (l.rate.units() > 0)
+                ? TaxCalculator.lineCents(l.unitCents, qty, tax.pricesIncludeVat(), l.rate.units())
+                : fallbackLine(l, qty, tax);
+        net += l.amounts.net(); vat += l.amounts.vat(); gross += l.amounts.gross();
+    }
+
+    private static TaxCalculator.Cents fallbackLine(Line l, int qty, TaxTable tax) {
+        if (l.rate.units() < 0) {
+            // rate too fine for Money: same BigDecimal rules as checkout
+            var b = TaxCalculator.line(Money.toBigDecimal(l.unitCents), qty, tax.pricesIncludeVat(), l.rate.percent());
+            return new TaxCalculator.Cents(Money.of(b.net()), Money.of(b.vat()), Money.of(b.gross()));
+        }
+        long base = Math.multiplyExact(l.unitCents, (long) qty);
+        return new TaxCalculator.Cents(base, 0L, base);
+    }
+
+    /* ========= handed to checkout ========= */
+
+    List<TillItem> items() {
+        List<TillItem> out = new ArrayList<>(lines.size());
+        for (Line l : lines.values()) {
+            TillItem it = new TillItem();
+            it.setSku(l.product.getSku());
+            it.setName(l.product.getName());
+            it.setPrice(l.unitCents / 100d);          // Money.ofPrice gives back exactly unitCents
+            it.setQty(l.qty);
+            out.add(it);
+        }
+        return out;
+    }
+
+    Map<String, Product> productsBySku() {
+        Map<String, Product> out = new HashMap<>();
+        lines.forEach((k, l) -> out.put(k, l.product));
+        return out;
+    }
+
+    BomService.Explosion explosion() {
+        Map<Long, List<BomService.Part>> exploded = new HashMap<>();
+        for (Line l : lines.values()) {
+            boolean self = l.parts.size() == 1 && l.parts.get(0).product().getId().equals(l.product.getId());
+            if (!self) exploded.put(l.product.getId(), l.parts);
+        }
+        return new BomService.Explosion(exploded);
+    }
+
+    boolean isEmpty() { return lines.isEmpty(); }
+
+    /** Quantity of a stock product already taken by lines other than {@code except}. */
+    BigDecimal reservedBy(Long productId, Line except) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (Line l : lines.values()) {
+            if (l == except) continue;
+            for (BomService.Part p : l.parts) {
+                if (p.product().getId().equals(productId)) {
+                    sum = sum.add(p.quantity().multiply(BigDecimal.valueOf(l.qty)));
+                }
+            }
+        }
+        return sum;
+    }
+
+    CartView view(long ttlSeconds) {
+        List<CartLineView> out = new ArrayList<>(lines.size());
+        int count = 0;
+        for (Line l : lines.values()) {
+            count += l.qty;
+            out.add(new CartLineView(l.product.getId(), l.product.getSku(), l.product.getName(), l.qty,
+                    Money.toBigDecimal(l.unitCents), l.rate.percent(),
+                    Money.toBigDecimal(l.amounts.net()), Money.toBigDecimal(l.amounts.vat()),
+                    Money.toBigDecimal(l.amounts.gross())));
+        }
+        return new CartView(id, customerName, out, count,
+                Money.toBigDecimal(net), Money.toBigDecimal(vat), Money.toBigDecimal(gross),
+                OffsetDateTime.ofInstant(lastTouched.plusSeconds(ttlSeconds), ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,151 @@
+// src/main/java/com/ipachi/pos/service/CatalogCache.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.dto.ProductDto;
+import com.ipachi.pos.events.StockLevelsChanged;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Per-business catalog snapshot (immutable product DTOs without stock) and stock levels, each tagged
+ * with a version that only grows. Product, category, unit, settings and price writers call
+ * {@link #bumpCatalog}; committed {@link StockLevelsChanged} events bump the stock version.
+ * The pair is the catalog ETag, so a poll can be answered with 304 without touching the database.
+ * Loaders run in their own read-committed transaction started after the version is read, never in
+ * the caller's: a caller's older MVCC snapshot could otherwise be cached under a newer version.
+ */
+@Component
+public class CatalogCache {
+
+    /** Catalog DTOs built at {@code version}; {@code imageUrl} and {@code availableQuantity} are filled per request. */
+    public record Snapshot(long version, List<ProductDto> products, Map<Long, ProductDto> byId) {}
+
+    /** Stock on hand per product id at {@code version}. */
+    public record Levels(long version, Map<Long, BigDecimal> byProduct) {}
+
+    /** Encoded catalog bytes built from the catalog and stock versions they carry. */
+    public record Encoded(long catalogVersion, long stockVersion, byte[] bytes) {}
+
+    // versions restart with the process; the boot stamp keeps old ETags from matching again
+    private final String boot = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<Long, AtomicLong> catalogVersions = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> stockVersions = new ConcurrentHashMap<>();
+    private final Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<Long, Levels> levels = new ConcurrentHashMap<>();
+    private final Map<Long, Encoded> encoded = new ConcurrentHashMap<>();
+
+    private final TransactionTemplate loadTx;
+
+    public CatalogCache(PlatformTransactionManager txManager) {
+        this.loadTx = new TransactionTemplate(txManager);
+        loadTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        loadTx.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        loadTx.setReadOnly(true);
+    }
+
+    public long catalogVersion(Long businessId) {
+        return catalogVersions.computeIfAbsent(businessId, k -> new AtomicLong()).get();
+    }
+
+    public long stockVersion(Long businessId) {
+        return stockVersions.computeIfAbsent(businessId, k -> new AtomicLong()).get();
+    }
+
+    /** Weak ETag of everything a catalog response depends on. */
+    public String etag(Long businessId) {
+        return etag(catalogVersion(businessId), stockVersion(businessId));
+    }
+
+    public String etag(long catalogVersion, long stockVersion) {
+        return "W/\"" + boot + "-" + catalogVersion + "-" + stockVersion + "\"";
+    }
+
+    /**
+     * Current snapshot, rebuilt by {@code loader} when the catalog moved on. The version is read before
+     * the load's transaction starts, so a write that lands mid-load leaves an older tag and the next read rebuilds.
+     */
+    public Snapshot catalog(Long businessId, Supplier<List<ProductDto>> loader) {
+        long v = catalogVersion(businessId);
+        Snapshot s = snapshots.get(businessId);
+        if (s != null && s.version() == v) return s;
+        List<ProductDto> products = List.copyOf(load(loader));
+        Map<Long, ProductDto> byId = new HashMap<>(products.size() * 2);
+        for (ProductDto p : products) byId.put(p.id(), p);
+        Snapshot fresh = new Snapshot(v, products, Collections.unmodifiableMap(byId));
+        snapshots.merge(businessId, fresh, (old, neu) -> old.version() >= neu.version() ? old : neu);
+        return fresh;
+    }
+
+    /** Stock levels if the cached ones are current, else null (callers needing a few ids query those). */
+    public Levels cachedLevels(Long businessId) {
+        Levels l = levels.get(businessId);
+        return l != null && l.version() == stockVersion(businessId) ? l : null;
+    }
+
+    /** Current stock levels, reloaded by {@code loader} after committed stock changes. */
+    public Levels levels(Long businessId, Supplier<Map<Long, BigDecimal>> loader) {
+        long v = stockVersion(businessId);
+        Levels l = levels.get(businessId);
+        if (l != null && l.version() == v) return l;
+        Levels fresh = new Levels(v, Collections.unmodifiableMap(new HashMap<>(load(loader))));
+        levels.merge(businessId, fresh, (old, neu) -> old.version() >= neu.version() ? old : neu);
+        return fresh;
+    }
+
+    private <T> T load(Supplier<T> loader) {
+        return loadTx.execute(s -> loader.get());
+    }
+
+    /** Encoded form of a snapshot/levels pair, built by {@code encoder} once per version pair. */
+    public Encoded encoded(Long businessId, Snapshot snapshot, Levels levels, Supplier<byte[]> encoder) {
+        Encoded e = encoded.get(businessId);
+        if (e != null && e.catalogVersion() == snapshot.version() && e.stockVersion() == levels.version()) return e;
+        Encoded fresh = new Encoded(snapshot.version(), levels.version(), encoder.get());
+        encoded.merge(businessId, fresh, (old, neu) ->
+                old.catalogVersion() > neu.catalogVersion()
+                        || (old.catalogVersion() == neu.catalogVersion() && old.stockVersion() >= neu.stockVersion()) ? old : neu);
+        return fresh;
+    }
+
+    /**
+     * Product, category, unit, settings or price data of the business changed. Inside a transaction
+     * the bump happens after commit, so a concurrent reader cannot cache the old rows under the new version.
+     */
+    public void bumpCatalog(Long businessId) {
+        if (businessId == null) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(catalogVersions, businessId);
+                }
+            });
+        } else {
+            bump(catalogVersions, businessId);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onStockLevelsChanged(StockLevelsChanged event) {
+        if (event.businessId() != null) bump(stockVersions, event.businessId());
+    }
+
+    private static void bump(Map<Long, AtomicLong> versions, Long businessId) {
+        versions.computeIfAbsent(businessId, k -> new AtomicLong()).incrementAndGet();
+    }
+}
@@ -0,0 +1,87 @@
+// src/main/java/com/ipachi/pos/service/CatalogSnapshotEncoder.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.dto.ProductDto;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Binary catalog for till cold starts (GET /api/inventory/products/snapshot), gzip-compressed.
+ * <pre>
+ * header  : "IPCS" (4 bytes), format (1 byte, = 1), catalogVersion, stockVersion, generatedAt (epoch ms), count
+ * product : id, sku, barcode, name, net price, gross price, stock, categoryId (0 = none)
+ * </pre>
+ * Numbers are varints (LEB128; signed values zig-zag encoded): prices in minor units (cents), stock in
+ * thousandths of a unit. Strings are a varint byte length followed by UTF-8; null is written as empty.
+ */
+final class CatalogSnapshotEncoder {
+
+    static final byte FORMAT = 1;
+    private static final byte[] MAGIC = {'I', 'P', 'C', 'S'};
+
+    private CatalogSnapshotEncoder() { }
+
+    /** Sellable products (sell price above zero) of the snapshot with their stock from {@code levels}. */
+    static byte[] encode(CatalogCache.Snapshot snapshot, CatalogCache.Levels levels, long generatedAt) {
+        List<ProductDto> sellable = snapshot.products().stream()
+                .filter(p -> p.priceExclVat() != null && p.priceExclVat().signum() > 0)
+                .toList();
+        Map<Long, BigDecimal> stock = levels.byProduct();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + sellable.size() * 48);
+        // buffered: the varint writes are single bytes, which GZIPOutputStream handles one call each
+        try (OutputStream gz = new BufferedOutputStream(new GZIPOutputStream(bytes), 64 * 1024)) {
+            gz.write(MAGIC);
+            gz.write(FORMAT);
+            unsigned(gz, snapshot.version());
+            unsigned(gz, levels.version());
+            unsigned(gz, generatedAt);
+            unsigned(gz, sellable.size());
+            for (ProductDto p : sellable) {
+                unsigned(gz, p.id());
+                string(gz, p.sku());
+                string(gz, p.barcode());
+                string(gz, p.name());
+                signed(gz, scaled(p.priceExclVat(), 2));
+                signed(gz, scaled(p.priceInclVat(), 2));
+                signed(gz, scaled(stock.get(p.id()), 3));
+                unsigned(gz, p.categoryId() == null ? 0 : p.categoryId());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static long scaled(BigDecimal v, int digits) {
+        return v == null ? 0L : v.movePointRight(digits).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static void string(OutputStream out, String s) throws IOException {
+        byte[] b = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+        unsigned(out, b.length);
+        out.write(b);
+    }
+
+    private static void signed(OutputStream out, long v) throws IOException {
+        unsigned(out, (v << 1) ^ (v >> 63));
+    }
+
+    private static void unsigned(OutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+}
@@ -6,6 +6,7 @@ import com.ipachi.pos.dto.CategoryDto;
 import com.ipachi.pos.dto.CategoryUpdate;
 import com.ipachi.pos.model.Category;
 import com.ipachi.pos.repo.CategoryRepository;
+import com.ipachi.pos.repo.ProductRepository;
 import com.ipachi.pos.security.CurrentRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +26,8 @@ import java.time.OffsetDateTime;
 public class CategoryService {
     private final CategoryRepository repo;
     private final CurrentRequest ctx;  // read userId & businessId from headers
+    private final CatalogCache catalog; // product DTOs carry the category name
+    private final ProductRepository products;
 
     private Long biz() {
         Long v = ctx.getBusinessId();
@@ -89,6 +92,8 @@ public class CategoryService {
         cat.setName(name);
         cat.setUpdatedAt(OffsetDateTime.now());
         var updated = repo.save(cat);
+        products.touchByCategory(businessId, id, cat.getUpdatedAt()); // renamed for the change feed
+        catalog.bumpCatalog(businessId);
 
         log.info("Updated category ID: {} for businessId: {}", id, businessId);
         return toDto(updated);
@@ -101,6 +106,7 @@ public class CategoryService {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Category not found");
         }
         repo.deleteById(id);
+        catalog.bumpCatalog(businessId);
         log.info("Deleted category ID: {} for businessId: {}", id, businessId);
     }
 
@@ -0,0 +1,38 @@
+// src/main/java/com/ipachi/pos/service/CheckoutOutboxHandler.java
+package com.ipachi.pos.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ipachi.pos.events.CheckoutCompleted;
+import com.ipachi.pos.model.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/** Post-checkout side effects: till SALE movement and audit log. */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CheckoutOutboxHandler implements OutboxHandler {
+
+    private final ObjectMapper mapper;
+    private final TillService tillService;
+
+    @Override
+    public String type() { return OutboxEvent.CHECKOUT_COMPLETED; }
+
+    @Override
+    public void handle(OutboxEvent event) throws Exception {
+        CheckoutCompleted c = mapper.readValue(event.getPayload(), CheckoutCompleted.class);
+
+        // 1) If a till is open for the terminal, record SALE
+        if (c.recordTillSale() && c.terminalId() != null) {
+            boolean recorded = tillService.recordSale(c.terminalId(), c.total(), "TX-" + c.transactionId(),
+                    "Checkout", c.userId());
+            if (!recorded) log.debug("No open till on terminal={} for TX-{}", c.terminalId(), c.transactionId());
+        }
+
+        // 2) Audit trail (low-stock alerts come from LowStockMonitor when the stock movements commit)
+        log.info("AUDIT checkout tx={} business={} user={} terminal={} total={}",
+                c.transactionId(), c.businessId(), c.userId(), c.terminalId(), c.total());
+    }
+}
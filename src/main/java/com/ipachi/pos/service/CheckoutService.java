@@ -1,27 +1,44 @@
 package com.ipachi.pos.service;
 
 import com.ipachi.pos.dto.CheckoutRequest;
+import com.ipachi.pos.dto.CheckoutResponse;
+import com.ipachi.pos.dto.OfflineSaleRequest;
+import com.ipachi.pos.dto.OfflineSyncRequest;
+import com.ipachi.pos.dto.OfflineSyncResponse;
+import com.ipachi.pos.dto.OfflineSyncResult;
 import com.ipachi.pos.dto.TillItem;
+import com.ipachi.pos.events.CheckoutCompleted;
+import com.ipachi.pos.model.OutboxEvent;
 import com.ipachi.pos.model.Product;
 import com.ipachi.pos.model.StockMovement;
+import com.ipachi.pos.model.TillSession;
 import com.ipachi.pos.model.Transaction;
 import com.ipachi.pos.model.TransactionLine;
 import com.ipachi.pos.repo.*;
 import com.ipachi.pos.security.CurrentRequest;
+import com.ipachi.pos.tax.Money;
+import com.ipachi.pos.tax.TaxCalculator;
+import com.ipachi.pos.tax.TaxTable;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import static com.ipachi.pos.tax.TaxCalculator.line;
 
 @Service
 @RequiredArgsConstructor
@@ -29,12 +46,22 @@ import static com.ipachi.pos.tax.TaxCalculator.line;
 public class CheckoutService {
 
     private final TransactionRepository txRepo;
-    private final TransactionLineRepository lineRepo;
     private final ProductRepository productRepo;
-    private final StockMovementRepository stockRepo;
+    private final TransactionLineJdbcRepository lineJdbc;
+    private final StockLedgerService ledger;
     private final CurrentRequest ctx;
 
-    private final SettingsRepository settingsRepo;
+    private final TaxTableCache taxTables;
+    private final IdempotencyCache idempotencyCache;
+    private final TransactionJdbcRepository txJdbc;
+    private final TillService tillService;
+    private final TransactionTemplate txTemplate;
+    private final OutboxService outbox;
+    private final BomService bom;
+    private final SalesVelocityService velocity;
+
+    @Value("${checkout.offline.chunk-size:50}")
+    private int offlineChunkSize;
 
     private Long biz() {
         Long v = ctx.getBusinessId();
@@ -51,226 +78,504 @@ public class CheckoutService {
     /**
      * Persist a transaction and its line items, update inventory levels,
      * and return the saved Transaction (with generated ID and total).
+     *
+     * Set-based: one query resolves every SKU in the basket, one balance lookup checks stock
+     * for all lines, and tx_line / inv_stock_movements rows are written as JDBC batches, so the
+     * number of round trips does not grow with basket size.
      */
     @Transactional
     public Transaction checkout(CheckoutRequest req) {
+        return checkout(req, null);
+    }
+
+    /**
+     * Same as {@link #checkout(CheckoutRequest)}, stamping the client's Idempotency-Key on tx_head.
+     * A concurrent duplicate fails on uk_tx_head_idempotency before any line or stock row is written.
+     */
+    @Transactional
+    public Transaction checkout(CheckoutRequest req, String idempotencyKey) {
         Long businessId = biz();
         Long userId = user();
 
         var items = (req.getItems() == null) ? List.<TillItem>of() : req.getItems();
         log.info("Processing checkout for businessId: {}, userId: {}, items: {}", businessId, userId, items.size());
 
-        // VAT settings
-        var st = settingsRepo.findByBusinessId(businessId).orElse(null);
-        boolean enableVat        = st != null && st.isEnableVat();
-        boolean pricesIncludeVat = st != null && st.isPricesIncludeVat();
-        BigDecimal ratePct       = (st != null && st.getVatRate() != null) ? st.getVatRate() : BigDecimal.ZERO;
+        // 1) Resolve every SKU in the basket with one query
+        Map<String, Product> productsBySku = resolveProducts(items, businessId);
+        if (productsBySku.size() < distinctSkus(items).size()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found for SKU in this business");
+        }
 
-        // Pre-scale zero for NOT NULL columns
-        BigDecimal ZERO2 = BigDecimal.ZERO.setScale(2);
+        // 2) Explode recipes into the ingredients they consume (one query per nesting level)
+        BomService.Explosion parts = bom.explode(businessId, productsBySku.values());
 
-        // 1) Create tx head with zeroed totals (avoids NOT NULL violations on first insert)
-        Transaction tx = Transaction.builder()
-                .customerName((req.getCustomerName() != null && !req.getCustomerName().isBlank())
-                        ? req.getCustomerName() : "Walk-in")
-                .businessId(businessId)
-                .createdByUserId(userId)
-                .userId(userId)
-                .terminalId(term())
-                .subtotalNet(ZERO2)   // <-- important
-                .totalVat(ZERO2)      // <-- important
-                .totalGross(ZERO2)    // <-- important
-                .total(ZERO2)         // legacy/overall total aligned to gross
-                .createdAt(OffsetDateTime.now())
-                .updatedAt(OffsetDateTime.now())
-                .build();
+        return commit(req.getCustomerName(), items, productsBySku, parts, term(), idempotencyKey);
+    }
 
-        tx = txRepo.save(tx); // safe: all NOT NULL money columns are set
+    /**
+     * Commit a cart session: its products and recipe parts were resolved while scanning, so this
+     * only re-checks balances, prices the lines and writes them.
+     */
+    @Transactional
+    public Transaction checkout(CartSession cart, String idempotencyKey) {
+        if (!cart.businessId().equals(biz())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Cart not found or expired");
+        }
+        Long terminalId = cart.terminalId() != null ? cart.terminalId() : term();
+        return commit(cart.customerName(), cart.items(), cart.productsBySku(), cart.explosion(),
+                terminalId, idempotencyKey);
+    }
 
-        // 2) Accumulators
-        BigDecimal sumNet   = ZERO2;
-        BigDecimal sumVat   = ZERO2;
-        BigDecimal sumGross = ZERO2;
+    private Transaction commit(String customerName, List<TillItem> items, Map<String, Product> productsBySku,
+                               BomService.Explosion parts, Long terminalId, String idempotencyKey) {
+        Long businessId = biz();
+        Long userId = user();
 
-        List<TransactionLine> savedLines = new ArrayList<>();
+        // VAT rules (cached per business: category rates + product overrides)
+        TaxTable vat = taxTables.forBusiness(businessId);
 
-        for (TillItem item : items) {
-            // price & qty
-            BigDecimal unit = safe(BigDecimal.valueOf(item.getPrice())).setScale(2, RoundingMode.HALF_UP);
-            int qty = Math.max(0, item.getQty());
+        // 3) Check stock for all lines with one balance lookup (duplicate SKUs / shared ingredients are summed)
+        Map<Long, BomService.Part> required = requiredStock(items, productsBySku, parts);
+        Map<Long, BigDecimal> available = ledger.levels(businessId, required.keySet());
+        String shortage = shortage(required, available);
+        if (shortage != null) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, shortage);
 
-            // Resolve product (for profit & stock)
-            var product = productRepo.findBySkuIgnoreCaseAndBusinessId(item.getSku().trim(), businessId)
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
-                            "Product not found for SKU in this business"));
+        // 4) Price every line in memory (net/VAT/gross, remaining stock)
+        OffsetDateTime now = OffsetDateTime.now();
+        PricedBasket basket = price(items, productsBySku, parts, vat, new HashMap<>(available), businessId, userId, now);
 
-            BigDecimal buy = safe(product.getBuyPrice());
-            BigDecimal lineBase = unit.multiply(BigDecimal.valueOf(qty)).setScale(2, RoundingMode.HALF_UP);
+        // 5) Insert tx head with its final totals (the Idempotency-Key is checked here)
+        Transaction tx = txRepo.save(head(customerName, basket, businessId, userId, terminalId, idempotencyKey, now));
 
-            // VAT breakdown (your TaxCalculator is fine)
-            var breakdown = (enableVat)
-                    ? line(unit, qty, pricesIncludeVat, ratePct) // net, vat, gross
-                    : new com.ipachi.pos.tax.TaxCalculator.Breakdown(lineBase, ZERO2, lineBase);
+        // 6) Write inv_stock_movements and tx_line rows as JDBC batches; the guarded balance update
+        //    in ledger.deduct is what actually stops two tills selling the same last unit, and it
+        //    costs the movements from the FIFO lots so the lines carry their cost of goods sold
+        List<StockMovement> movements = basket.movementsFor(tx, terminalId);
+        ledger.deduct(movements);
+        lineJdbc.insertAll(basket.linesFor(tx, movements));
+        velocity.recordSales(movements);
 
-            // profit based on NET (sell net - buy)
-            BigDecimal unitNet = breakdown.net().divide(BigDecimal.valueOf(Math.max(qty, 1)), 2, RoundingMode.HALF_UP);
-            BigDecimal profit  = unitNet.subtract(buy).multiply(BigDecimal.valueOf(qty)).setScale(2, RoundingMode.HALF_UP);
+        // 7) Till SALE movement, low-stock check and audit run after commit, from the outbox
+        outbox.enqueue(OutboxEvent.CHECKOUT_COMPLETED, businessId, tx.getId(), completed(tx, basket, true));
 
-            TransactionLine line = TransactionLine.builder()
-                    .transaction(tx)
-                    .sku(item.getSku())
-                    .name(item.getName() != null ? item.getName() : item.getSku())
-                    .unitPrice(unit)
-                    .qty(qty)
-                    .lineTotal(lineBase)          // legacy
-                    .netAmount(breakdown.net())
-                    .vatAmount(breakdown.vat())
-                    .grossAmount(breakdown.gross())
-                    .vatRateApplied(enableVat ? ratePct : BigDecimal.ZERO)
-                    .profit(profit)
-                    .remainingStock(BigDecimal.ZERO)
-                    .businessId(businessId)
-                    .createdByUserId(userId)
-                    .userId(userId)
-                    .createdAt(OffsetDateTime.now())
-                    .updatedAt(OffsetDateTime.now())
-                    .build();
+        log.info("Checkout complete - txId: {}, net: {}, vat: {}, gross: {}, lines: {}, business: {}, user: {}",
+                tx.getId(), tx.getSubtotalNet(), tx.getTotalVat(), tx.getTotalGross(),
+                basket.lines().size(), businessId, userId);
 
-            TransactionLine saved = lineRepo.save(line);
+        return tx;
+    }
 
-            if (qty > 0) {
-                updateStockForSale(item.getSku(), qty, "TX-" + tx.getId(), businessId, userId);
-                BigDecimal after = getCurrentStockLevel(product.getId(), businessId);
-                saved.setRemainingStock(after);
-                saved.setUpdatedAt(OffsetDateTime.now());
-                saved = lineRepo.save(saved);
+    /* ========= OFFLINE SYNC ========= */
+
+    /**
+     * Ingest sales that terminals queued while offline, in order.
+     * Each chunk runs in its own transaction with one SKU lookup, one locking balance read and one
+     * batched write of lines, stock movements and till SALE movements. Sales that fail
+     * validation are reported and skipped; they never roll back the rest of their chunk.
+     * Cash goes to the till session open at each sale's {@code soldAt}; a sale made while no
+     * session was open is saved without a till movement and says so in its result.
+     */
+    public OfflineSyncResponse syncOffline(OfflineSyncRequest req) {
+        Long businessId = biz();
+        Long userId = user();
+        Long terminalId = req.getTerminalId() != null ? req.getTerminalId() : term();
+        List<OfflineSaleRequest> sales = req.getSales() == null ? List.of() : req.getSales();
+
+        log.info("Offline sync for businessId: {}, terminal: {}, sales: {}", businessId, terminalId, sales.size());
+
+        List<OfflineSyncResult> results = new ArrayList<>(sales.size());
+        int size = Math.max(1, offlineChunkSize);
+        for (int from = 0; from < sales.size(); from += size) {
+            int start = from;
+            List<OfflineSaleRequest> chunk = sales.subList(from, Math.min(sales.size(), from + size));
+            try {
+                results.addAll(txTemplate.execute(status ->
+                        syncChunk(chunk, start, businessId, userId, terminalId)));
+            } catch (RuntimeException ex) {
+                log.warn("Offline sync chunk starting at {} failed for business={}: {}", start, businessId, ex.getMessage());
+                for (int i = 0; i < chunk.size(); i++) {
+                    results.add(new OfflineSyncResult(start + i, chunk.get(i).getIdempotencyKey(),
+                            OfflineSyncResult.Status.FAILED, null, null, ex.getMessage()));
+                }
             }
+        }
 
-            sumNet   = sumNet.add(breakdown.net()).setScale(2, RoundingMode.HALF_UP);
-            sumVat   = sumVat.add(breakdown.vat()).setScale(2, RoundingMode.HALF_UP);
-            sumGross = sumGross.add(breakdown.gross()).setScale(2, RoundingMode.HALF_UP);
+        OfflineSyncResponse resp = OfflineSyncResponse.of(terminalId, results);
+        log.info("Offline sync complete for business={}, terminal={}: saved={}, duplicates={}, rejected={}, failed={}",
+                businessId, terminalId, resp.saved(), resp.duplicates(), resp.rejected(), resp.failed());
+        return resp;
+    }
+
+    private List<OfflineSyncResult> syncChunk(List<OfflineSaleRequest> chunk, int offset,
+                                              Long businessId, Long userId, Long terminalId) {
+        TaxTable vat = taxTables.forBusiness(businessId);
 
-            savedLines.add(saved);
+        // one SKU lookup for the whole chunk (unknown SKUs reject only their own sale)
+        List<TillItem> allItems = new ArrayList<>();
+        for (OfflineSaleRequest s : chunk) {
+            if (s.getItems() == null) continue;
+            s.getItems().stream().filter(it -> it.getSku() != null && !it.getSku().isBlank()).forEach(allItems::add);
+        }
+        Map<String, Product> productsBySku = resolveProducts(allItems, businessId);
+        BomService.Explosion parts = bom.explode(businessId, productsBySku.values());
+
+        // replays: keys already in tx_head (or repeated within this upload) are not written again
+        Map<String, Long> seenKeys = new HashMap<>();
+        List<String> keys = chunk.stream().map(OfflineSaleRequest::getIdempotencyKey)
+                .filter(k -> k != null && !k.isBlank()).map(String::trim).toList();
+        if (!keys.isEmpty()) {
+            txRepo.findByBusinessIdAndIdempotencyKeyIn(businessId, keys)
+                    .forEach(t -> seenKeys.put(t.getIdempotencyKey(), t.getId()));
         }
 
-        // 3) Update header totals and save again
-        tx.setSubtotalNet(sumNet);
-        tx.setTotalVat(sumVat);
-        tx.setTotalGross(sumGross);
-        tx.setTotal(sumGross); // keep legacy total aligned with gross
+        // one balance read for the chunk; accepted sales draw it down in order. The rows stay locked
+        // until the chunk commits, so a racing online sale waits instead of taking stock counted here,
+        // and the deduct below cannot come up short for the whole chunk
+        Set<Long> stockIds = new HashSet<>();
+        for (Product p : productsBySku.values()) {
+            parts.parts(p).forEach(part -> stockIds.add(part.product().getId()));
+        }
+        Map<Long, BigDecimal> running = new HashMap<>(ledger.lockLevels(businessId, stockIds));
+
+        // offline sales are booked to the till session that was open when they were rung up
+        Map<Long, TillSession> tills = new HashMap<>();
+        Map<Long, List<Transaction>> salesByTill = new LinkedHashMap<>();
+        TillSession till = null;
+
+        List<OfflineSyncResult> results = new ArrayList<>(chunk.size());
+        List<StockMovement> movements = new ArrayList<>();
+        List<List<StockMovement>> savedMovements = new ArrayList<>();
+        List<Transaction> saved = new ArrayList<>();
+        List<PricedBasket> baskets = new ArrayList<>();
+
+        for (int i = 0; i < chunk.size(); i++) {
+            OfflineSaleRequest sale = chunk.get(i);
+            String key = (sale.getIdempotencyKey() == null || sale.getIdempotencyKey().isBlank())
+                    ? null : sale.getIdempotencyKey().trim();
+            var items = sale.getItems() == null ? List.<TillItem>of() : sale.getItems();
+
+            if (key != null && seenKeys.containsKey(key)) {
+                results.add(new OfflineSyncResult(offset + i, key, OfflineSyncResult.Status.DUPLICATE,
+                        seenKeys.get(key), null, "Already synced"));
+                continue;
+            }
+            if (items.stream().anyMatch(it -> it.getSku() == null || it.getSku().isBlank()
+                    || !productsBySku.containsKey(skuKey(it)))) {
+                results.add(new OfflineSyncResult(offset + i, key, OfflineSyncResult.Status.REJECTED,
+                        null, null, "Product not found for SKU in this business"));
+                continue;
+            }
+            String shortage = shortage(requiredStock(items, productsBySku, parts), running);
+            if (shortage != null) {
+                results.add(new OfflineSyncResult(offset + i, key, OfflineSyncResult.Status.REJECTED,
+                        null, null, shortage));
+                continue;
+            }
 
-        tx.setUpdatedAt(OffsetDateTime.now());
-        tx = txRepo.save(tx);
+            OffsetDateTime soldAt = sale.getSoldAt() != null ? sale.getSoldAt() : OffsetDateTime.now();
+            PricedBasket basket = price(items, productsBySku, parts, vat, running, businessId, userId, soldAt);
+
+            Transaction tx = head(sale.getCustomerName(), basket, businessId, userId, terminalId, key, soldAt);
+            tx.setId(txJdbc.insert(tx)); // JDBC keeps the original sale time on created_at
+
+            List<StockMovement> saleMovements = basket.movementsFor(tx, terminalId);
+            movements.addAll(saleMovements);
+            savedMovements.add(saleMovements);
+            saved.add(tx);
+            baskets.add(basket);
+            if (key != null) seenKeys.put(key, tx.getId());
+
+            String message = "Checkout saved";
+            if (terminalId != null) {
+                till = tillAt(terminalId, soldAt, till);
+                if (till != null) {
+                    tills.putIfAbsent(till.getId(), till);
+                    salesByTill.computeIfAbsent(till.getId(), k -> new ArrayList<>()).add(tx);
+                } else {
+                    message = "Checkout saved; no till session was open at the sale time, not booked to a till";
+                }
+            }
+            results.add(new OfflineSyncResult(offset + i, key, OfflineSyncResult.Status.SAVED,
+                    tx.getId(), tx.getTotal(), message));
+        }
 
-        log.info("Checkout complete - txId: {}, net: {}, vat: {}, gross: {}, lines: {}, business: {}, user: {}",
-                tx.getId(), tx.getSubtotalNet(), tx.getTotalVat(), tx.getTotalGross(),
-                savedLines.size(), businessId, userId);
+        // one write pass per chunk: stock movements + balances, lines (costed by the deduct), sales
+        // velocity, till SALE movements
+        ledger.deduct(movements);
+        List<TransactionLine> lines = new ArrayList<>();
+        for (int i = 0; i < saved.size(); i++) {
+            lines.addAll(baskets.get(i).linesFor(saved.get(i), savedMovements.get(i)));
+        }
+        lineJdbc.insertAll(lines);
+        velocity.recordSales(movements);
+        salesByTill.forEach((id, txs) -> tillService.recordSales(tills.get(id), txs, "Offline checkout"));
+        for (int i = 0; i < saved.size(); i++) {
+            outbox.enqueue(OutboxEvent.CHECKOUT_COMPLETED, businessId, saved.get(i).getId(),
+                    completed(saved.get(i), baskets.get(i), false));
+        }
 
-        return tx;
+        return results;
     }
 
-    // ... updateStockForSale(), getCurrentStockLevel() unchanged ...
-
-    /** Create & save a transaction line, then deduct stock via negative movement. */
-    /** Create & save a transaction line, then deduct stock via negative movement. */
-    private TransactionLine createAndSaveLineItem(Transaction tx, TillItem item, Long businessId, Long userId) {
-                BigDecimal unit = safe(BigDecimal.valueOf(item.getPrice()));
-                int qty = Math.max(0, item.getQty());
-                BigDecimal qtyBD = BigDecimal.valueOf(qty);
-                BigDecimal lineTotal = unit.multiply(qtyBD);
-        
-                        // Resolve product to compute profit and to read stock later
-                                var product = productRepo.findBySkuIgnoreCaseAndBusinessId(item.getSku().trim(), businessId)
-                                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
-                                        "Product not found for SKU in this business"));
-                BigDecimal buy = safe(product.getBuyPrice());
-                BigDecimal profit = unit.subtract(buy).multiply(qtyBD);
-
-        TransactionLine line = TransactionLine.builder()
-                .transaction(tx)
-                .sku(item.getSku())
-                .name(item.getName() != null ? item.getName() : item.getSku())
-                .unitPrice(unit)
-                .qty(qty)
-                .lineTotal(lineTotal)
-                                .profit(profit)
-                                .remainingStock(BigDecimal.ZERO) // will be updated after stock movement
-                .businessId(businessId)         // owner
-                .createdByUserId(userId)        // who added the line
-                .userId(userId)
-                .createdAt(OffsetDateTime.now())
-                .updatedAt(OffsetDateTime.now())
-                .build();
+    /** Session open on the terminal at {@code at}; {@code last} is reused when it covers it (sales come in time order). */
+    private TillSession tillAt(Long terminalId, OffsetDateTime at, TillSession last) {
+        if (last != null && !last.getOpenedAt().isAfter(at)
+                && (last.getClosedAt() == null || last.getClosedAt().isAfter(at))) {
+            return last;
+        }
+        return tillService.sessionAt(terminalId, at);
+    }
 
-                TransactionLine savedLine = lineRepo.save(line);
+    /* ========= PRICING / STOCK HELPERS ========= */
+
+    /** A basket priced in memory; lines and movements are bound to the tx head once it has an id. */
+    private record PricedBasket(List<TransactionLine> lines, List<Product> lineProducts,
+                                List<List<BomService.Part>> lineParts,
+                                BigDecimal net, BigDecimal vat, BigDecimal gross) {
+
+        /**
+         * Bind the lines to the tx head and snapshot each line's cost of goods sold from its
+         * movements, once {@code ledger.deduct} has costed them. {@code movements} must be the
+         * list {@link #movementsFor} returned: same line order, one movement per stock part.
+         */
+        List<TransactionLine> linesFor(Transaction tx, List<StockMovement> movements) {
+            int next = 0;
+            for (int i = 0; i < lines.size(); i++) {
+                TransactionLine l = lines.get(i);
+                l.setTransaction(tx);
+                BigDecimal cost = BigDecimal.ZERO;
+                if (l.getQty() > 0) {
+                    for (int k = 0; k < lineParts.get(i).size(); k++) {
+                        BigDecimal c = movements.get(next++).getCostValue();
+                        if (c != null) cost = cost.subtract(c);
+                    }
+                }
+                l.setCost(cost);
+                l.setProfit(l.getNetAmount().subtract(cost).setScale(2, RoundingMode.HALF_UP));
+            }
+            return lines;
+        }
 
-        if (qty > 0) {
-            updateStockForSale(item.getSku(), qty, "TX-" + tx.getId(), businessId, userId);
-                        // compute remaining stock after deduction
-                                BigDecimal after = getCurrentStockLevel(product.getId(), businessId);
-                        savedLine.setRemainingStock(after);
-                        savedLine.setUpdatedAt(OffsetDateTime.now());
-                        savedLine = lineRepo.save(savedLine);
+        List<StockMovement> movementsFor(Transaction tx, Long terminalId) {
+            List<StockMovement> out = new ArrayList<>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                TransactionLine l = lines.get(i);
+                if (l.getQty() <= 0) continue;
+                Product sold = lineProducts.get(i);
+                for (BomService.Part part : lineParts.get(i)) {
+                    // recipe lines deduct their ingredients; the note names the recipe sold
+                    boolean ingredient = !part.product().getId().equals(sold.getId());
+                    out.add(StockMovement.builder()
+                            .businessId(l.getBusinessId())
+                            .createdByUserId(l.getCreatedByUserId())
+                            .userId(l.getUserId())
+                            .terminalId(terminalId)
+                            .transactionId(tx.getId())
+                            .product(part.product())
+                            .quantityDelta(part.quantity().multiply(BigDecimal.valueOf(l.getQty())).negate())
+                            .note(ingredient ? "Sale - TX-" + tx.getId() + " (" + sold.getSku() + ")"
+                                             : "Sale - TX-" + tx.getId())
+                            .createdAt(l.getCreatedAt())
+                            .build());
+                }
+            }
+            return out;
         }
+    }
 
-        return savedLine;
+    /**
+     * Stock needed per stock-holding product: recipe lines count as their ingredients, and
+     * duplicate SKUs or ingredients shared by several lines are summed.
+     */
+    private static Map<Long, BomService.Part> requiredStock(List<TillItem> items, Map<String, Product> productsBySku,
+                                                          BomService.Explosion parts) {
+        Map<Long, BomService.Part> required = new LinkedHashMap<>();
+        for (TillItem item : items) {
+            int qty = Math.max(0, item.getQty());
+            if (qty <= 0) continue;
+            for (BomService.Part part : parts.parts(productsBySku.get(skuKey(item)))) {
+                BigDecimal q = part.quantity().multiply(BigDecimal.valueOf(qty));
+                required.merge(part.product().getId(), new BomService.Part(part.product(), q),
+                        (x, y) -> new BomService.Part(x.product(), x.quantity().add(y.quantity())));
+            }
+        }
+        return required;
     }
 
-    /** Create a negative stock movement for a sale (business-scoped). */
-    @Transactional
-    public void updateStockForSale(String sku, int quantityToDeduct, String reference, Long businessId, Long userId) {
-        if (sku == null || sku.isBlank() || quantityToDeduct <= 0) {
-            log.debug("Skipping stock update (invalid input) sku={}, qty={}", sku, quantityToDeduct);
-            return;
+    /** First product whose required quantity exceeds what is available, as an error message; null if all fit. */
+    private static String shortage(Map<Long, BomService.Part> required, Map<Long, BigDecimal> available) {
+        for (var e : required.entrySet()) {
+            BigDecimal current = available.getOrDefault(e.getKey(), BigDecimal.ZERO);
+            BigDecimal needed = e.getValue().quantity();
+            if (current.compareTo(needed) < 0) {
+                return "Insufficient stock for %s: requested %s, available %.4f"
+                        .formatted(e.getValue().product().getName(), needed.stripTrailingZeros().toPlainString(), current);
+            }
         }
+        return null;
+    }
+
+    /**
+     * Price each line (net/VAT/gross) and compute the stock left after it. Cost and profit
+     * (NET - cost) are filled in by {@link PricedBasket#linesFor} once the stock is taken.
+     * {@code running} holds current balances and is drawn down as lines are priced.
+     */
+    private PricedBasket price(List<TillItem> items, Map<String, Product> productsBySku,
+                               BomService.Explosion parts, TaxTable vat,
+                               Map<Long, BigDecimal> running, Long businessId, Long userId, OffsetDateTime at) {
+        // Amounts are computed in cents (Money) and converted to BigDecimal only for the entities
+        long sumNet   = 0L;
+        long sumVat   = 0L;
+        long sumGross = 0L;
+
+        List<TransactionLine> lines = new ArrayList<>(items.size());
+        List<Product> lineProducts = new ArrayList<>(items.size());
+        List<List<BomService.Part>> lineParts = new ArrayList<>(items.size());
+
+        for (TillItem item : items) {
+            // price & qty
+            long unit = Money.ofPrice(item.getPrice());
+            int qty = Math.max(0, item.getQty());
+
+            Product product = productsBySku.get(skuKey(item));
 
-        // 1) Resolve product in this business
-        Product product = productRepo.findBySkuIgnoreCaseAndBusinessId(sku.trim(), businessId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found for SKU in this business"));
+            long lineBase = Math.multiplyExact(unit, (long) qty);
 
-        // 2) Check current stock for this business
-        BigDecimal current = getCurrentStockLevel(product.getId(), businessId);
-        if (current.compareTo(BigDecimal.valueOf(quantityToDeduct)) < 0) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                    "Insufficient stock for %s: requested %d, available %.4f"
-                            .formatted(product.getName(), quantityToDeduct, current));
+            // VAT breakdown (net, vat, gross) at the product's rate (0 for ZERO/EXEMPT or VAT off)
+            TaxTable.Rate rate = vat.rateFor(product);
+            TaxCalculator.Cents breakdown = (rate.units() == 0L)
+                    ? new TaxCalculator.Cents(lineBase, 0L, lineBase)
+                    : lineTax(unit, qty, vat.pricesIncludeVat(), rate);
+
+            // stock left for the SKU after this line (0 for zero-qty lines, as before);
+            // a recipe draws down its ingredients and reports its own (untouched) balance
+            List<BomService.Part> stockParts = parts.parts(product);
+            BigDecimal remaining = BigDecimal.ZERO;
+            if (qty > 0) {
+                for (BomService.Part part : stockParts) {
+                    running.merge(part.product().getId(),
+                            part.quantity().multiply(BigDecimal.valueOf(qty)).negate(), BigDecimal::add);
+                }
+                remaining = running.getOrDefault(product.getId(), BigDecimal.ZERO);
+            }
+
+            lines.add(TransactionLine.builder()
+                    .sku(item.getSku())
+                    .name(item.getName() != null ? item.getName() : item.getSku())
+                    .unitPrice(Money.toBigDecimal(unit))
+                    .qty(qty)
+                    .lineTotal(Money.toBigDecimal(lineBase))          // legacy
+                    .netAmount(Money.toBigDecimal(breakdown.net()))
+                    .vatAmount(Money.toBigDecimal(breakdown.vat()))
+                    .grossAmount(Money.toBigDecimal(breakdown.gross()))
+                    .vatRateApplied(rate.percent())
+                    .remainingStock(remaining)
+                    .businessId(businessId)
+                    .createdByUserId(userId)
+                    .userId(userId)
+                    .createdAt(at)
+                    .updatedAt(at)
+                    .build());
+            lineProducts.add(product);
+            lineParts.add(stockParts);
+
+            sumNet   += breakdown.net();
+            sumVat   += breakdown.vat();
+            sumGross += breakdown.gross();
         }
+        return new PricedBasket(lines, lineProducts, lineParts,
+                Money.toBigDecimal(sumNet), Money.toBigDecimal(sumVat), Money.toBigDecimal(sumGross));
+    }
+
+    /** Fixed-point VAT split; rates finer than Money supports go through the BigDecimal calculator. */
+    private static TaxCalculator.Cents lineTax(long unitCents, int qty, boolean pricesIncludeVat, TaxTable.Rate rate) {
+        if (rate.units() >= 0) return TaxCalculator.lineCents(unitCents, qty, pricesIncludeVat, rate.units());
+        var b = TaxCalculator.line(Money.toBigDecimal(unitCents), qty, pricesIncludeVat, rate.percent());
+        return new TaxCalculator.Cents(Money.of(b.net()), Money.of(b.vat()), Money.of(b.gross()));
+    }
 
-        // 3) Record sale movement (negative delta) with audit stamps
-        StockMovement mv = StockMovement.builder()
+    private static Transaction head(String customerName, PricedBasket basket, Long businessId, Long userId,
+                                    Long terminalId, String idempotencyKey, OffsetDateTime at) {
+        return Transaction.builder()
+                .customerName((customerName != null && !customerName.isBlank()) ? customerName : "Walk-in")
                 .businessId(businessId)
                 .createdByUserId(userId)
                 .userId(userId)
-                .terminalId(term())
-                .product(product)
-                .quantityDelta(BigDecimal.valueOf(quantityToDeduct).negate())
-                .note("Sale - " +  reference)
-                .createdAt(OffsetDateTime.now())
+                .terminalId(terminalId)
+                .idempotencyKey(idempotencyKey)
+                .subtotalNet(basket.net())
+                .totalVat(basket.vat())
+                .totalGross(basket.gross())
+                .total(basket.gross())        // keep legacy total aligned with gross
+                .createdAt(at)
+                .updatedAt(at)
                 .build();
+    }
+
+    private static CheckoutCompleted completed(Transaction tx, PricedBasket basket, boolean recordTillSale) {
+        // products whose stock moved (ingredients for recipe lines)
+        List<Long> productIds = basket.lineParts().stream().flatMap(List::stream)
+                .map(part -> part.product().getId()).distinct().toList();
+        return new CheckoutCompleted(tx.getId(), tx.getBusinessId(), tx.getUserId(), tx.getTerminalId(),
+                tx.getTotal(), productIds, recordTillSale);
+    }
+
+    /* ========= IDEMPOTENCY ========= */
+
+    /** Response of an earlier checkout with this key (in-memory first, then tx_head), or null. */
+    @Transactional(readOnly = true)
+    public CheckoutResponse replay(String idempotencyKey) {
+        Long businessId = biz();
+        CheckoutResponse cached = idempotencyCache.get(businessId, idempotencyKey);
+        if (cached != null) return cached;
+
+        return txRepo.findByBusinessIdAndIdempotencyKey(businessId, idempotencyKey)
+                .map(tx -> {
+                    CheckoutResponse resp = toResponse(tx);
+                    idempotencyCache.put(businessId, idempotencyKey, resp);
+                    return resp;
+                })
+                .orElse(null);
+    }
 
-        stockRepo.saveAndFlush(mv);
+    /** Remember a completed checkout so retries with the same key are answered from memory. */
+    public void remember(String idempotencyKey, CheckoutResponse response) {
+        if (idempotencyKey != null) idempotencyCache.put(biz(), idempotencyKey, response);
+    }
 
-        BigDecimal after = getCurrentStockLevel(product.getId(), businessId);
-        log.info("Stock updated (sale) sku={}, before={}, after={}, deducted={}, biz={}",
-                sku, current, after, quantityToDeduct, businessId);
+    public CheckoutResponse toResponse(Transaction tx) {
+        return new CheckoutResponse(
+                tx.getId(),
+                tx.getCreatedAt(),
+                tx.getTotal(),
+                tx.getCustomerName(),
+                "Checkout saved"
+        );
     }
 
-    /** Sum movements for a product within a business. */
-    public BigDecimal getCurrentStockLevel(Long productId, Long businessId) {
-        BigDecimal v = stockRepo.sumByProductIdAndBusinessId(productId, businessId);
-        return v == null ? BigDecimal.ZERO : v;
+    /** Resolve all basket SKUs (case-insensitive) in one query; unknown SKUs are simply absent. */
+    private Map<String, Product> resolveProducts(List<TillItem> items, Long businessId) {
+        Set<String> skus = distinctSkus(items);
+        Map<String, Product> bySku = new HashMap<>();
+        if (skus.isEmpty()) return bySku;
+
+        for (Product p : productRepo.findBySkuInIgnoreCaseAndBusinessId(skus, businessId)) {
+            bySku.put(p.getSku().trim().toLowerCase(), p);
+        }
+        return bySku;
     }
 
-    private BigDecimal calculateTotal(List<TillItem> items) {
-        if (items == null || items.isEmpty()) return BigDecimal.ZERO;
-        BigDecimal total = BigDecimal.ZERO;
-        for (TillItem it : items) {
-            BigDecimal unit = safe(BigDecimal.valueOf(it.getPrice()));
-            int qty = Math.max(0, it.getQty());
-            total = total.add(unit.multiply(BigDecimal.valueOf(qty)));
+    /** Lower-cased basket SKUs; a blank SKU is reported as not found. */
+    private static Set<String> distinctSkus(List<TillItem> items) {
+        Set<String> skus = new HashSet<>();
+        for (TillItem item : items) {
+            if (item.getSku() == null || item.getSku().isBlank()) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found for SKU in this business");
+            }
+            skus.add(skuKey(item));
         }
-        return total;
+        return skus;
     }
 
-    private static BigDecimal safe(BigDecimal v) { return v == null ? BigDecimal.ZERO : v; }
+    private static String skuKey(TillItem item) { return item.getSku().trim().toLowerCase(); }
 }
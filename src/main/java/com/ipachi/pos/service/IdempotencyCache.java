@@ -0,0 +1,52 @@
+// src/main/java/com/ipachi/pos/service/IdempotencyCache.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.dto.CheckoutResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recently completed checkouts by (business, Idempotency-Key).
+ * Bounded LRU with a TTL; the unique index on tx_head stays the source of truth, this only
+ * lets a retried request be answered without touching the database.
+ */
+@Component
+public class IdempotencyCache {
+
+    @Value("${checkout.idempotency.ttl-seconds:900}")
+    private long ttlSeconds;
+
+    @Value("${checkout.idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    private record Entry(CheckoutResponse response, Instant expiresAt) {}
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    public synchronized CheckoutResponse get(Long businessId, String key) {
+        Entry e = entries.get(cacheKey(businessId, key));
+        if (e == null) return null;
+        if (e.expiresAt().isBefore(Instant.now())) {
+            entries.remove(cacheKey(businessId, key));
+            return null;
+        }
+        return e.response();
+    }
+
+    public synchronized void put(Long businessId, String key, CheckoutResponse response) {
+        entries.put(cacheKey(businessId, key), new Entry(response, Instant.now().plusSeconds(ttlSeconds)));
+    }
+
+    private static String cacheKey(Long businessId, String key) {
+        return businessId + ":" + key;
+    }
+}
@@ -0,0 +1,245 @@
+// src/main/java/com/ipachi/pos/service/LowStockMonitor.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.dto.LowStockAlert;
+import com.ipachi.pos.events.StockLevelsChanged;
+import com.ipachi.pos.repo.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches {@code Product.lowStock} thresholds incrementally.
+ * Every committed {@link StockLevelsChanged} re-evaluates only the products it names, against
+ * the balance table. A product raises one alert when it crosses into LOW or OUT and one CLEARED
+ * alert when it recovers. Alerts go to the business's SSE subscribers.
+ * A business's "currently low" set is loaded with one query on first use and then kept up to date in memory.
+ * Re-evaluation and SSE sends run on a bounded pool ({@code lowStockExecutor}), not on the committing
+ * request thread; evaluations may overlap, and each product keeps the result of the latest-started one.
+ * The initial load takes part in that ordering: changes committed while it runs are re-evaluated, not lost.
+ */
+@Slf4j
+@Service
+public class LowStockMonitor {
+
+    private final ProductRepository productRepo;
+    private final TaskExecutor executor;
+
+    @Value("${inventory.low-stock.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    private final Map<Long, Watch> watchByBusiness = new ConcurrentHashMap<>();
+    private final Map<Long, List<SseEmitter>> emittersByBusiness = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * A business's low set plus, per product, the sequence of the evaluation that last set it.
+     * {@code loadedAt} is the sequence of the initial load, which evaluated every product.
+     */
+    private static final class Watch {
+        final Map<Long, LowStockAlert> low = new HashMap<>();
+        final Map<Long, Long> evaluatedAt = new HashMap<>();
+        long loadedAt;
+        boolean loaded;
+        boolean failed;
+
+        long evaluatedAt(Long productId) {
+            return Math.max(loadedAt, evaluatedAt.getOrDefault(productId, 0L));
+        }
+    }
+
+    public LowStockMonitor(ProductRepository productRepo,
+                           @Qualifier("lowStockExecutor") TaskExecutor executor) {
+        this.productRepo = productRepo;
+        this.executor = executor;
+    }
+
+    /** Products of the business currently at or below their threshold, lowest stock first. */
+    public List<LowStockAlert> currentlyLow(Long businessId) {
+        Watch w = state(businessId);
+        List<LowStockAlert> out;
+        synchronized (w) {
+            out = new ArrayList<>(w.low.values());
+        }
+        out.sort(Comparator.comparing(LowStockAlert::onHand).thenComparing(LowStockAlert::productId));
+        return out;
+    }
+
+    /** Open an SSE stream: a "snapshot" event with the current set, then one "low-stock" event per crossing. */
+    public SseEmitter subscribe(Long businessId) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        List<SseEmitter> emitters = emittersByBusiness.computeIfAbsent(businessId, k -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(ex -> emitters.remove(emitter));
+        try {
+            emitter.send(SseEmitter.event().name("snapshot").data(currentlyLow(businessId)));
+        } catch (IOException ex) {
+            emitters.remove(emitter);
+            emitter.completeWithError(ex);
+        }
+        return emitter;
+    }
+
+    /** After commit, hand the re-evaluation to the pool; the committing thread only enqueues. */
+    @TransactionalEventListener
+    public void onStockLevelsChanged(StockLevelsChanged event) {
+        Long businessId = event.businessId();
+        // never read: the first read computes the set from scratch (a load in progress is registered already)
+        if (!watchByBusiness.containsKey(businessId) || event.productIds() == null || event.productIds().isEmpty()) return;
+
+        Set<Long> ids = Set.copyOf(event.productIds());
+        try {
+            executor.execute(() -> refresh(businessId, ids));
+        } catch (TaskRejectedException full) {
+            // cannot evaluate incrementally: drop the cached set so the next read reloads it
+            watchByBusiness.remove(businessId);
+            log.warn("Low-stock executor full; cached low set of business={} dropped", businessId);
+        }
+    }
+
+    /**
+     * Re-evaluate the products against the balance table. The query runs outside the lock; the
+     * sequence is taken before it, so a later-started evaluation has seen at least as recent a
+     * commit, and an earlier-started one that finishes last does not overwrite it.
+     */
+    private void refresh(Long businessId, Set<Long> productIds) {
+        Watch w = watchByBusiness.get(businessId);
+        if (w == null) return;
+        long seq = sequence.incrementAndGet();
+        Map<Long, Object[]> rows = new HashMap<>();
+        for (Object[] r : productRepo.findStockWatch(businessId, productIds)) {
+            rows.put(((Number) r[0]).longValue(), r);
+        }
+
+        List<LowStockAlert> alerts = new ArrayList<>();
+        synchronized (w) {
+            OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+            for (Long pid : productIds) {
+                if (w.evaluatedAt(pid) > seq) continue;   // a newer evaluation (or the load) already applied
+                w.evaluatedAt.put(pid, seq);
+                Object[] r = rows.get(pid);
+                LowStockAlert before = w.low.get(pid);
+                LowStockAlert after = r == null ? null : evaluate(r, before, now);
+                // while the initial load runs the set is incomplete: update it, but raise no alerts
+                if (after != null) {
+                    w.low.put(pid, after);
+                    if (w.loaded && (before == null || before.state() != after.state())) alerts.add(after);
+                } else if (before != null) {
+                    w.low.remove(pid);
+                    BigDecimal onHand = r == null ? before.onHand() : qty(r[4]);
+                    if (w.loaded) alerts.add(new LowStockAlert(pid, before.sku(), before.name(), onHand,
+                            r == null ? before.threshold() : (Integer) r[3], LowStockAlert.State.CLEARED, now));
+                }
+            }
+        }
+        for (LowStockAlert a : alerts) {
+            log.info("Low stock {}: business={}, product={} ({}), on hand={}, threshold={}",
+                    a.state(), businessId, a.productId(), a.name(), a.onHand(), a.threshold());
+            publish(businessId, a);
+        }
+    }
+
+    /**
+     * The loaded watch of a business. The first caller registers an empty watch before querying, so
+     * changes committing meanwhile are queued against it; other callers wait for the load.
+     */
+    private Watch state(Long businessId) {
+        Watch fresh = new Watch();
+        Watch w = watchByBusiness.putIfAbsent(businessId, fresh);
+        if (w == null) {
+            load(businessId, fresh);
+            return fresh;
+        }
+        synchronized (w) {
+            while (!w.loaded && !w.failed) {
+                try {
+                    w.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for the low-stock set", e);
+                }
+            }
+            if (w.loaded) return w;
+        }
+        return state(businessId);                       // that load failed: try again
+    }
+
+    private void load(Long businessId, Watch w) {
+        long seq = sequence.incrementAndGet();
+        Map<Long, LowStockAlert> loaded = new HashMap<>();
+        try {
+            OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+            for (Object[] r : productRepo.findAtOrBelowLowStock(businessId)) {
+                LowStockAlert a = evaluate(r, null, now);
+                if (a != null) loaded.put(a.productId(), a);
+            }
+        } catch (RuntimeException ex) {
+            watchByBusiness.remove(businessId, w);
+            synchronized (w) {
+                w.failed = true;
+                w.notifyAll();
+            }
+            throw ex;
+        }
+        synchronized (w) {
+            // products re-evaluated after the load's query started keep that newer result
+            w.low.keySet().removeIf(pid -> w.evaluatedAt.getOrDefault(pid, 0L) < seq);
+            loaded.forEach((pid, a) -> {
+                if (w.evaluatedAt.getOrDefault(pid, 0L) < seq) w.low.put(pid, a);
+            });
+            w.loadedAt = seq;
+            w.loaded = true;
+            w.notifyAll();
+        }
+    }
+
+    /** Alert for a (id, sku, name, lowStock, on hand) row, or null if the product is not low. */
+    private static LowStockAlert evaluate(Object[] r, LowStockAlert before, OffsetDateTime now) {
+        Integer threshold = (Integer) r[3];
+        if (threshold == null) return null;
+        BigDecimal onHand = qty(r[4]);
+        if (onHand.compareTo(BigDecimal.valueOf(threshold)) > 0) return null;
+
+        LowStockAlert.State state = onHand.signum() <= 0 ? LowStockAlert.State.OUT : LowStockAlert.State.LOW;
+        OffsetDateTime since = before != null && before.state() == state ? before.at() : now;
+        return new LowStockAlert(((Number) r[0]).longValue(), (String) r[1], (String) r[2],
+                onHand, threshold, state, since);
+    }
+
+    private static BigDecimal qty(Object v) {
+        return v instanceof BigDecimal bd ? bd : new BigDecimal(v.toString());
+    }
+
+    private void publish(Long businessId, LowStockAlert alert) {
+        List<SseEmitter> emitters = emittersByBusiness.get(businessId);
+        if (emitters == null) return;
+        for (SseEmitter e : emitters) {
+            try {
+                e.send(SseEmitter.event().name("low-stock").data(alert));
+            } catch (IOException | IllegalStateException ex) {
+                emitters.remove(e);
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.ipachi.pos.dto.MeasurementDto;
 import com.ipachi.pos.dto.MeasurementUpdate;
 import com.ipachi.pos.model.MeasurementUnit;
 import com.ipachi.pos.repo.MeasurementUnitRepository;
+import com.ipachi.pos.repo.ProductRepository;
 import com.ipachi.pos.security.CurrentRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +26,8 @@ import java.time.OffsetDateTime;
 public class MeasurementService {
     private final MeasurementUnitRepository repo;
     private final CurrentRequest ctx;
+    private final CatalogCache catalog; // product DTOs carry the unit name/abbr
+    private final ProductRepository products;
 
     private Long biz() {
         Long v = ctx.getBusinessId();
@@ -86,7 +89,10 @@ public class MeasurementService {
         unit.setName(name);
         unit.setAbbr(abbr);
         unit.setUpdatedAt(OffsetDateTime.now());
-        return toDto(repo.save(unit));
+        var saved = repo.save(unit);
+        products.touchByUnit(businessId, id, unit.getUpdatedAt()); // renamed for the change feed
+        catalog.bumpCatalog(businessId);
+        return toDto(saved);
     }
 
     public void delete(Long id) {
@@ -94,6 +100,7 @@ public class MeasurementService {
         if (!repo.existsByIdAndBusinessId(id, businessId))
             throw new ResponseStatusException(HttpStatus.NOT_FOUND);
         repo.deleteById(id);
+        catalog.bumpCatalog(businessId);
     }
 
     public Page<MeasurementDto> list(String q, Pageable pageable) {
@@ -0,0 +1,120 @@
+// src/main/java/com/ipachi/pos/service/OutboxDispatcher.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.model.OutboxEvent;
+import com.ipachi.pos.repo.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Polls outbox_events and applies due events on a bounded executor.
+ * Each event is claimed with a lease before it is handed to a worker; a failed attempt is
+ * retried with exponential backoff until {@code outbox.max-attempts}, then parked as DEAD.
+ */
+@Slf4j
+@Component
+public class OutboxDispatcher {
+
+    private final OutboxEventRepository repo;
+    private final TransactionTemplate tx;
+    private final TaskExecutor executor;
+    private final Map<String, OutboxHandler> handlers;
+
+    @Value("${outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${outbox.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${outbox.backoff-max-seconds:600}")
+    private long backoffMaxSeconds;
+
+    public OutboxDispatcher(OutboxEventRepository repo,
+                            TransactionTemplate tx,
+                            @Qualifier("outboxExecutor") TaskExecutor executor,
+                            List<OutboxHandler> handlers) {
+        this.repo = repo;
+        this.tx = tx;
+        this.executor = executor;
+        this.handlers = handlers.stream().collect(Collectors.toMap(OutboxHandler::type, Function.identity()));
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-ms:1000}")
+    public void poll() {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<OutboxEvent> due = repo.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                OutboxEvent.Status.PENDING, now, PageRequest.of(0, batchSize));
+
+        for (OutboxEvent e : due) {
+            Integer claimed = tx.execute(s -> repo.claim(e.getId(), e.getAttempts(), now.plusSeconds(leaseSeconds)));
+            if (claimed == null || claimed == 0) continue;   // someone else has it
+
+            try {
+                executor.execute(() -> dispatch(e.getId()));
+            } catch (TaskRejectedException full) {
+                // workers are saturated: give the claim back so the next poll retries it without waiting
+                // out the lease or spending an attempt; the rest of the batch was not claimed
+                tx.execute(s -> repo.release(e.getId(), e.getAttempts() + 1, e.getNextAttemptAt()));
+                log.debug("Outbox executor full; event {} released", e.getId());
+                break;
+            }
+        }
+    }
+
+    private void dispatch(Long eventId) {
+        try {
+            tx.executeWithoutResult(s -> {
+                OutboxEvent e = repo.findById(eventId).orElseThrow();
+                if (e.getStatus() != OutboxEvent.Status.PENDING) return;
+
+                OutboxHandler h = handlers.get(e.getType());
+                if (h == null) throw new IllegalStateException("No outbox handler for type " + e.getType());
+                try {
+                    h.handle(e);
+                } catch (RuntimeException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+
+                e.setStatus(OutboxEvent.Status.DONE);
+                e.setProcessedAt(OffsetDateTime.now());
+                e.setLastError(null);
+            });
+        } catch (RuntimeException ex) {
+            scheduleRetry(eventId, ex);
+        }
+    }
+
+    private void scheduleRetry(Long eventId, RuntimeException cause) {
+        tx.executeWithoutResult(s -> repo.findById(eventId).ifPresent(e -> {
+            String msg = String.valueOf(cause.getMessage());
+            e.setLastError(msg.length() > 1000 ? msg.substring(0, 1000) : msg);
+            if (e.getAttempts() >= maxAttempts) {
+                e.setStatus(OutboxEvent.Status.DEAD);
+                log.error("Outbox event {} ({}) dead after {} attempts: {}", e.getId(), e.getType(), e.getAttempts(), msg);
+            } else {
+                long delay = Math.min(backoffMaxSeconds, 1L << Math.min(e.getAttempts(), 20));
+                e.setNextAttemptAt(OffsetDateTime.now().plusSeconds(delay));
+                log.warn("Outbox event {} ({}) attempt {} failed, retry in {}s: {}",
+                        e.getId(), e.getType(), e.getAttempts(), delay, msg);
+            }
+        }));
+    }
+}
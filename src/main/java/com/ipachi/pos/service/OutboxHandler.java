@@ -0,0 +1,16 @@
+// src/main/java/com/ipachi/pos/service/OutboxHandler.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.model.OutboxEvent;
+
+/**
+ * Applies one kind of outbox event. Runs inside the dispatcher's transaction, which also marks
+ * the event done, so a handler's writes and the completion commit (or retry) together.
+ */
+public interface OutboxHandler {
+
+    /** The {@link OutboxEvent#getType()} this handler applies. */
+    String type();
+
+    void handle(OutboxEvent event) throws Exception;
+}
@@ -0,0 +1,45 @@
+// src/main/java/com/ipachi/pos/service/OutboxService.java
+package com.ipachi.pos.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ipachi.pos.model.OutboxEvent;
+import com.ipachi.pos.repo.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+
+/** Writes outbox rows inside the caller's transaction; {@link OutboxDispatcher} applies them later. */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository repo;
+    private final ObjectMapper mapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEvent enqueue(String type, Long businessId, Long aggregateId, Object payload) {
+        OffsetDateTime now = OffsetDateTime.now();
+        return repo.save(OutboxEvent.builder()
+                .businessId(businessId)
+                .type(type)
+                .aggregateId(aggregateId)
+                .payload(toJson(payload))
+                .status(OutboxEvent.Status.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return mapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload is not serializable: " + payload.getClass().getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+// src/main/java/com/ipachi/pos/service/ProductSearchIndex.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.repo.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Per-business inverted index over product name, SKU and barcode, replacing {@code LIKE '%q%'} scans.
+ * Tokens are lower-cased alphanumeric runs; a sorted token map serves prefix lookups and a trigram map
+ * (trigram → tokens) serves substring and typo-tolerant lookups. Every query term must match (AND);
+ * results are ranked by match quality: exact &gt; prefix &gt; substring &gt; one or two typos.
+ * Loaded from the product table on first search and updated in place after product writes commit.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+
+    private static final int EXACT = 10, PREFIX = 6, SUBSTRING = 3, TYPO_1 = 2, TYPO_2 = 1;
+    private static final int CODE_MATCH = 50; // whole query equals the SKU or barcode (scanner input)
+
+    private final ProductRepository products;
+
+    private final Map<Long, Index> indexes = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> writes = new ConcurrentHashMap<>();
+
+    /** Ids of the products matching {@code q}, best match first; empty for a blank query. */
+    public List<Long> search(Long businessId, String q) {
+        String query = q == null ? "" : q.trim().toLowerCase(Locale.ROOT);
+        List<String> terms = tokens(query);
+        if (terms.isEmpty()) return List.of();
+        return index(businessId).search(query, terms);
+    }
+
+    /** Add or refresh a product; inside a transaction this happens after commit. */
+    public void upsert(Long businessId, Long id, String sku, String barcode, String name) {
+        afterCommit(businessId, idx -> idx.put(new Doc(id, sku, barcode, name)));
+    }
+
+    public void remove(Long businessId, Long id) {
+        afterCommit(businessId, idx -> idx.remove(id));
+    }
+
+    private void afterCommit(Long businessId, Consumer<Index> change) {
+        if (businessId == null) return;
+        Runnable apply = () -> {
+            writes.computeIfAbsent(businessId, k -> new AtomicLong()).incrementAndGet();
+            Index idx = indexes.get(businessId);
+            if (idx != null) change.accept(idx);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    /** Cached index, or a fresh load; a load that raced a write serves this call but is not kept. */
+    private Index index(Long businessId) {
+        Index idx = indexes.get(businessId);
+        if (idx != null) return idx;
+        AtomicLong w = writes.computeIfAbsent(businessId, k -> new AtomicLong());
+        long seen = w.get();
+        Index fresh = new Index();
+        for (Object[] r : products.findSearchRows(businessId)) {
+            fresh.put(new Doc((Long) r[0], (String) r[1], (String) r[2], (String) r[3]));
+        }
+        if (w.get() != seen) return fresh;
+        Index prior = indexes.putIfAbsent(businessId, fresh);
+        return prior != null ? prior : fresh;
+    }
+
+    private record Doc(Long id, String sku, String barcode, String name) {
+        Set<String> tokens() {
+            Set<String> out = new LinkedHashSet<>();
+            out.addAll(ProductSearchIndex.tokens(lower(name)));
+            out.addAll(ProductSearchIndex.tokens(lower(sku)));
+            out.addAll(ProductSearchIndex.tokens(lower(barcode)));
+            return out;
+        }
+    }
+
+    private static final class Index {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<Long, Doc> docs = new HashMap<>();
+        private final TreeMap<String, Set<Long>> postings = new TreeMap<>();
+        private final Map<String, Set<String>> grams = new HashMap<>();
+
+        void put(Doc doc) {
+            lock.writeLock().lock();
+            try {
+                removeLocked(doc.id());
+                docs.put(doc.id(), doc);
+                for (String t : doc.tokens()) {
+                    Set<Long> ids = postings.get(t);
+                    if (ids == null) {
+                        postings.put(t, ids = new HashSet<>());
+                        for (String g : trigrams(t)) grams.computeIfAbsent(g, k -> new HashSet<>()).add(t);
+                    }
+                    ids.add(doc.id());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long id) {
+            lock.writeLock().lock();
+            try {
+                removeLocked(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void removeLocked(Long id) {
+            Doc old = docs.remove(id);
+            if (old == null) return;
+            for (String t : old.tokens()) {
+                Set<Long> ids = postings.get(t);
+                if (ids == null) continue;
+                ids.remove(id);
+                if (!ids.isEmpty()) continue;
+                postings.remove(t);
+                for (String g : trigrams(t)) {
+                    Set<String> ts = grams.get(g);
+                    if (ts != null && ts.remove(t) && ts.isEmpty()) grams.remove(g);
+                }
+            }
+        }
+
+        List<Long> search(String query, List<String> terms) {
+            lock.readLock().lock();
+            try {
+                Map<Long, Integer> scores = null;
+                for (String term : terms) {
+                    Map<Long, Integer> termScores = new HashMap<>();
+                    tokenScores(term).forEach((token, score) -> {
+                        for (Long id : postings.get(token)) termScores.merge(id, score, Math::max);
+                    });
+                    if (scores == null) {
+                        scores = termScores;
+                    } else {
+                        // AND: keep documents that matched every term so far
+                        Map<Long, Integer> both = new HashMap<>();
+                        for (var e : scores.entrySet()) {
+                            Integer s = termScores.get(e.getKey());
+                            if (s != null) both.put(e.getKey(), e.getValue() + s);
+                        }
+                        scores = both;
+                    }
+                    if (scores.isEmpty()) return List.of();
+                }
+
+                List<Map.Entry<Long, Integer>> ranked = new ArrayList<>(scores.size());
+                for (var e : scores.entrySet()) {
+                    Doc d = docs.get(e.getKey());
+                    int bonus = query.equals(lower(d.sku())) || query.equals(lower(d.barcode())) ? CODE_MATCH : 0;
+                    ranked.add(Map.entry(e.getKey(), e.getValue() + bonus));
+                }
+                ranked.sort(Comparator.<Map.Entry<Long, Integer>>comparingInt(Map.Entry::getValue).reversed()
+                        .thenComparing(e -> lower(docs.get(e.getKey()).name()))
+                        .thenComparing(Map.Entry::getKey));
+                List<Long> out = new ArrayList<>(ranked.size());
+                for (var e : ranked) out.add(e.getKey());
+                return out;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /** Indexed tokens matching one query term with their score; typos only when nothing else matched. */
+        private Map<String, Integer> tokenScores(String term) {
+            Map<String, Integer> out = new HashMap<>();
+            for (String t : postings.subMap(term, true, term + Character.MAX_VALUE, false).keySet()) {
+                out.put(t, t.equals(term) ? EXACT : PREFIX);
+            }
+            for (String t : substringCandidates(term)) {
+                if (!out.containsKey(t) && t.contains(term)) out.put(t, SUBSTRING);
+            }
+            if (out.isEmpty() && term.length() >= 4) {
+                int maxEdits = term.length() >= 8 ? 2 : 1;
+                for (String t : typoCandidates(term, maxEdits)) {
+                    int d = distance(term, t, maxEdits);
+                    if (d <= maxEdits) out.put(t, d <= 1 ? TYPO_1 : TYPO_2);
+                }
+            }
+            return out;
+        }
+
+        /** Tokens holding every trigram of the term (short terms: all tokens, the set is in memory). */
+        private Iterable<String> substringCandidates(String term) {
+            if (term.length() < 3) return postings.keySet();
+            Set<String> candidates = null;
+            for (String g : trigrams(term)) {
+                Set<String> ts = grams.get(g);
+                if (ts == null) return List.of();
+                if (candidates == null) {
+                    candidates = new HashSet<>(ts);
+                } else {
+                    candidates.retainAll(ts);
+                    if (candidates.isEmpty()) return List.of();
+                }
+            }
+            return candidates == null ? List.of() : candidates;
+        }
+
+        /** Tokens sharing enough trigrams to be within {@code maxEdits} (each edit breaks at most 3 trigrams). */
+        private List<String> typoCandidates(String term, int maxEdits) {
+            List<String> termGrams = trigrams(term);
+            int needed = Math.max(1, termGrams.size() - 3 * maxEdits);
+            Map<String, Integer> shared = new HashMap<>();
+            for (String g : termGrams) {
+                Set<String> ts = grams.get(g);
+                if (ts == null) continue;
+                for (String t : ts) {
+                    if (Math.abs(t.length() - term.length()) <= maxEdits) shared.merge(t, 1, Integer::sum);
+                }
+            }
+            List<String> out = new ArrayList<>();
+            shared.forEach((t, n) -> { if (n >= needed) out.add(t); });
+            return out;
+        }
+    }
+
+    /** Optimal string alignment distance (adjacent swaps count as one edit); {@code max + 1} once it exceeds max. */
+    private static int distance(String a, String b, int max) {
+        int n = a.length(), m = b.length();
+        if (Math.abs(n - m) > max) return max + 1;
+        int[] prev2 = new int[m + 1], prev = new int[m + 1], cur = new int[m + 1];
+        for (int j = 0; j <= m; j++) prev[j] = j;
+        for (int i = 1; i <= n; i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int v = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    v = Math.min(v, prev2[j - 2] + 1);
+                }
+                cur[j] = v;
+                rowMin = Math.min(rowMin, v);
+            }
+            if (rowMin > max) return max + 1;
+            int[] t = prev2; prev2 = prev; prev = cur; cur = t;
+        }
+        return prev[m];
+    }
+
+    private static List<String> tokens(String s) {
+        List<String> out = new ArrayList<>();
+        if (s == null || s.isEmpty()) return out;
+        for (String t : s.split("[^\\p{L}\\p{N}]+")) {
+            if (!t.isEmpty()) out.add(t);
+        }
+        return out;
+    }
+
+    private static List<String> trigrams(String t) {
+        List<String> out = new ArrayList<>(Math.max(0, t.length() - 2));
+        for (int i = 0; i + 3 <= t.length(); i++) out.add(t.substring(i, i + 3));
+        return out;
+    }
+
+    private static String lower(String s) {
+        return s == null ? "" : s.toLowerCase(Locale.ROOT);
+    }
+}
@@ -2,16 +2,25 @@
 package com.ipachi.pos.service;
 
 import com.ipachi.pos.dto.*;
+import com.ipachi.pos.events.StockLevelsChanged;
 import com.ipachi.pos.model.Category;
 import com.ipachi.pos.model.MeasurementUnit;
 import com.ipachi.pos.model.Product;
 import com.ipachi.pos.model.ProductComponent;
+import com.ipachi.pos.model.ProductMedia;
+import com.ipachi.pos.model.ProductTombstone;
 import com.ipachi.pos.repo.*;
 import com.ipachi.pos.security.CurrentRequest;
+import com.ipachi.pos.tax.TaxTable;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,10 +30,16 @@ import org.springframework.web.server.ResponseStatusException;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -37,9 +52,22 @@ public class ProductService {
     private final CategoryRepository categories;
     private final MeasurementUnitRepository units;
     private final ProductComponentRepository componentRepo;
-    private final StockMovementRepository stockMovementRepo;
-    private final SettingsRepository settingsRepo; // VAT settings
+    private final ProductMediaRepository media;
+    private final ProductTombstoneRepository tombstones;
+    private final StockLedgerService ledger;
+    private final TaxTableCache taxTables; // VAT settings + per-product rates
+    private final CatalogCache catalog;
+    private final ProductSearchIndex searchIndex;
+    private final BomService bom;
     private final CurrentRequest ctx;
+    private final ApplicationEventPublisher events;
+
+    // changes stamped this recently may belong to transactions that have not committed yet
+    @Value("${inventory.catalog.sync-settle-seconds:5}")
+    private long syncSettleSeconds;
+
+    @Value("${inventory.catalog.sync-max-page:1000}")
+    private int syncMaxPage;
 
     private Long requireBusiness() {
         Long id = ctx.getBusinessId();
@@ -53,23 +81,60 @@ public class ProductService {
     }
     // in the same service that has create()/update()
 
+    // call after the product has an id; the PNG goes to inv_product_media, the row keeps its hash
     private void attachQrIfBarcodePresent(Product p) {
         String code = p.getBarcode();
         if (code == null || code.isBlank()) {
-            p.setQrCodeData(null);
+            if (p.getQrHash() != null) media.deleteByProductIdAndKind(p.getId(), ProductMedia.Kind.QR);
+            p.setQrHash(null);
             p.setQrContentType(null);
             p.setQrFilename(null);
             return;
         }
         byte[] png = qrService.png(code, 512);
-        p.setQrCodeData(png);
         p.setQrContentType("image/png");
         p.setQrFilename((p.getSku() == null ? "product" : p.getSku()) + "_qr.png");
+        p.setQrHash(putMedia(p, ProductMedia.Kind.QR, png, p.getQrHash(), p.getQrContentType(), p.getQrFilename()));
+    }
+
+    /** Store the bytes unless they match {@code currentHash}; returns the hash of {@code data}. */
+    private String putMedia(Product p, ProductMedia.Kind kind, byte[] data, String currentHash,
+                            String contentType, String fileName) {
+        String hash = sha256(data);
+        if (hash.equals(currentHash)) return hash;
+        // bulk delete + insert: a merge over the old row would select its bytes first
+        media.deleteByProductIdAndKind(p.getId(), kind);
+        media.save(ProductMedia.builder()
+                .productId(p.getId())
+                .kind(kind)
+                .businessId(p.getBusinessId())
+                .contentType(contentType)
+                .fileName(fileName)
+                .sha256(hash)
+                .data(data)
+                .updatedAt(OffsetDateTime.now())
+                .build());
+        return hash;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     // ----------------- utils -----------------
     private BigDecimal nz(BigDecimal v) { return v == null ? BigDecimal.ZERO : v; }
 
+    private static BigDecimal validRate(BigDecimal pct) {
+        if (pct == null) return null;
+        if (pct.signum() < 0 || pct.compareTo(BigDecimal.valueOf(100)) > 0)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "VAT rate override must be between 0 and 100");
+        return pct.setScale(2, RoundingMode.HALF_UP);
+    }
+
     private Category resolveCategory(Long id) {
         if (id == null) return null;
         Long businessId = requireBusiness();
@@ -84,15 +149,20 @@ public class ProductService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unit not found"));
     }
 
+    // call after the product has an id; the bytes go to inv_product_media, the row keeps hash + size
     private void attachImageIfPresent(Product p, MultipartFile image) {
         if (image == null || image.isEmpty()) return;
+        byte[] data;
         try {
-            p.setImageData(image.getBytes());
-            p.setImageContentType(image.getContentType());
-            p.setImageFilename(image.getOriginalFilename());
+            data = image.getBytes();
         } catch (IOException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Failed to read image");
         }
+        p.setImageContentType(image.getContentType());
+        p.setImageFilename(image.getOriginalFilename());
+        p.setImageSize(data.length);
+        p.setImageHash(putMedia(p, ProductMedia.Kind.IMAGE, data, p.getImageHash(),
+                p.getImageContentType(), p.getImageFilename()));
     }
 
     private boolean hasComponents(Long parentId) {
@@ -154,39 +224,65 @@ public class ProductService {
                 .saleMode(req.saleMode() == null ? ProductSaleMode.PER_UNIT : req.saleMode())
                 .lifetimeDays(req.lifetime())
                 .lowStock(req.lowStock())
+                .taxCategory(req.taxCategory() == null ? TaxCategory.STANDARD : req.taxCategory())
+                .vatRateOverride(validRate(req.vatRateOverride()))
                 .userId(userId) // legacy/base owner
                 .createdAt(OffsetDateTime.now())
                 .updatedAt(OffsetDateTime.now())
                 .onSpecial(false)
                 .build();
 
+        p = repo.save(p);
+        // media rows are keyed by product id, so they are written after the first save
         attachImageIfPresent(p, image);
-        // ⬇️ add this before first save OR right after save; either is fine
         attachQrIfBarcodePresent(p);
-        p = repo.save(p);
 
         if (isRecipe) {
             replaceComponents(p, req.components()); // stamps biz & user
             p = repo.save(p);
+            bom.explode(businessId, List.of(p));    // rejects nested-recipe cycles (400)
         }
 
+        if (p.getVatRateOverride() != null) taxTables.invalidate(businessId);
+        catalog.bumpCatalog(businessId);
+        searchIndex.upsert(businessId, p.getId(), p.getSku(), p.getBarcode(), p.getName());
+        if (p.getLowStock() != null) events.publishEvent(new StockLevelsChanged(businessId, Set.of(p.getId())));
         return toDto(p);
     }
 
-    // persists manual lines (component == null); measurement is free text
+    // persists manual lines (component == null) and linked lines (componentId → product whose stock the
+    // recipe consumes, quantity per recipe unit); measurement is free text
     private void replaceComponents(Product parent, List<ProductComponentCreate> lines) {
         Long businessId = requireBusiness();
         componentRepo.deleteByParentIdAndBusinessId(parent.getId(), businessId);
         if (lines == null || lines.isEmpty()) return;
 
+        // resolve all linked components with one query
+        var linkedIds = lines.stream().map(ProductComponentCreate::componentId)
+                .filter(java.util.Objects::nonNull).distinct().toList();
+        Map<Long, Product> linked = new HashMap<>();
+        for (Product c : repo.findAllById(linkedIds)) {
+            if (businessId.equals(c.getBusinessId())) linked.put(c.getId(), c);
+        }
+        for (Long cid : linkedIds) {
+            if (!linked.containsKey(cid))
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ingredient product " + cid + " not found");
+            if (cid.equals(parent.getId()))
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A recipe cannot contain itself");
+        }
+
         Long userId = requireUser();
         for (var l : lines) {
+            Product component = l.componentId() == null ? null : linked.get(l.componentId());
+            if (l.quantity() != null && l.quantity().signum() <= 0)
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ingredient quantity must be positive");
             var pc = ProductComponent.builder()
                     //.businessId(businessId)           // keep if schema has this column
                     .parent(parent)
-                    .component(null)                  // manual
-                    .name(l.name())
+                    .component(component)             // null = manual
+                    .name(l.name() != null || component == null ? l.name() : component.getName())
                     .measurementText(l.measurement())
+                    .quantity(component == null ? null : l.quantity())
                     .unitCost(l.unitCost() == null || l.unitCost().signum() < 0 ? BigDecimal.ZERO : l.unitCost())
                     .userId(userId)                   // who added the component
                     .createdAt(OffsetDateTime.now())
@@ -211,6 +307,8 @@ public class ProductService {
         if (rawSku.isBlank())
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "SKU is required");
 
+        // the QR PNG depends on the barcode (and its file name on the SKU)
+        boolean qrStale = !Objects.equals(p.getBarcode(), barcode) || !Objects.equals(p.getSku(), rawSku);
         p.setSku(rawSku);
         p.setBarcode(barcode);
         p.setName(req.name().trim());
@@ -221,6 +319,8 @@ public class ProductService {
         if (req.saleMode() != null) p.setSaleMode(req.saleMode());
         p.setLifetimeDays(req.lifetime());
         p.setLowStock(req.lowStock());
+        if (req.taxCategory() != null) p.setTaxCategory(req.taxCategory());
+        p.setVatRateOverride(validRate(req.vatRateOverride()));
 
         Boolean dtoIsRecipe = (req.productType() == null) ? null : (req.productType() == ProductType.RECIPE);
         boolean isRecipe = (dtoIsRecipe != null) ? dtoIsRecipe
@@ -247,66 +347,165 @@ public class ProductService {
         }
 
         if (image != null && !image.isEmpty()) attachImageIfPresent(p, image);
-        // ⬇️ add this before first save OR right after save; either is fine
-        attachQrIfBarcodePresent(p);
+        if (qrStale || (barcode != null && p.getQrHash() == null)) attachQrIfBarcodePresent(p);
         p.setUpdatedAt(OffsetDateTime.now());
         p = repo.save(p);
+        if (p.getProductType() == ProductType.RECIPE) bom.explode(businessId, List.of(p)); // cycle check
+        taxTables.invalidate(businessId);
+        catalog.bumpCatalog(businessId);
+        searchIndex.upsert(businessId, p.getId(), p.getSku(), p.getBarcode(), p.getName());
+        events.publishEvent(new StockLevelsChanged(businessId, Set.of(p.getId()))); // threshold may have changed
         return toDto(p);
     }
 
     public void delete(Long id) {
         Long businessId = requireBusiness();
-        if (!repo.existsByIdAndBusinessId(id, businessId))
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        var p = repo.findByIdAndBusinessId(id, businessId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
         componentRepo.deleteByParentIdAndBusinessId(id, businessId);
+        media.deleteByProductId(id);
         repo.deleteById(id);
+        tombstones.save(ProductTombstone.builder()
+                .productId(id)
+                .businessId(businessId)
+                .sku(p.getSku())
+                .deletedAt(OffsetDateTime.now())
+                .build());
+        taxTables.invalidate(businessId);
+        catalog.bumpCatalog(businessId);
+        searchIndex.remove(businessId, id);
+        events.publishEvent(new StockLevelsChanged(businessId, Set.of(id)));
     }
 
+    /**
+     * Page of the catalog. With {@code q} the hits come from the search index, ranked by relevance
+     * unless the caller asked for a sort; without it products are ordered by name unless sorted otherwise.
+     */
+    @Transactional(readOnly = true)
     public Page<ProductDto> list(String q, Pageable pageable, String baseImageUrl) {
         Long businessId = requireBusiness();
-        var st = settingsRepo.findByBusinessId(businessId).orElse(null);
 
-        // Settings fields from your Settings entity
-        boolean enableVat  = st != null && st.isEnableVat();
-        BigDecimal ratePct = (st != null && st.getVatRate() != null) ? st.getVatRate() : BigDecimal.ZERO;
-        BigDecimal rate    = ratePct.movePointLeft(2);
-
-        Page<Product> page = (q == null || q.isBlank())
-                ? repo.findByBusinessId(businessId, pageable)
-                : repo.searchByBusiness(businessId, q.trim(), pageable);
+        List<Long> ids;
+        long total;
+        if (q == null || q.isBlank()) {
+            Pageable paging = pageable.getSort().isSorted() ? pageable
+                    : PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("name"));
+            Page<Product> page = repo.findByBusinessId(businessId, paging);
+            ids = page.getContent().stream().map(Product::getId).toList();
+            total = page.getTotalElements();
+        } else {
+            List<Long> hits = searchIndex.search(businessId, q);
+            if (pageable.getSort().isSorted() && !hits.isEmpty()) {
+                Page<Product> page = repo.findByBusinessIdAndIdIn(businessId, hits, pageable);
+                ids = page.getContent().stream().map(Product::getId).toList();
+                total = page.getTotalElements();
+            } else {
+                int from = (int) Math.min(pageable.getOffset(), hits.size());
+                ids = hits.subList(from, Math.min(from + pageable.getPageSize(), hits.size()));
+                total = hits.size();
+            }
+        }
 
-        var products = page.getContent();
-        var ids = products.stream().map(Product::getId).toList();
-        var availMap = computeAvailableMapForIds(ids, businessId);
+        // the page only decides ids and order; DTOs come from the catalog snapshot
+        var snapshot = catalogSnapshot(businessId);
+        var levels = catalog.cachedLevels(businessId);
+        Map<Long, BigDecimal> qty = levels != null ? levels.byProduct() : ledger.levels(businessId, ids);
 
-        return page.map(p -> toDto(p, baseImageUrl, availMap.get(p.getId()),
-                enableVat, /*pricesIncludeVat=*/false, ratePct, rate));
+        Map<Long, ProductDto> late = new HashMap<>();
+        var missing = ids.stream().filter(id -> !snapshot.byId().containsKey(id)).toList();
+        if (!missing.isEmpty()) { // written after the snapshot was built
+            for (Product p : repo.findByBusinessIdAndIdIn(businessId, missing)) late.put(p.getId(), toDto(p));
+        }
+        List<ProductDto> content = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProductDto dto = snapshot.byId().getOrDefault(id, late.get(id));
+            if (dto != null) content.add(withView(dto, baseImageUrl, qty));
+        }
+        return new PageImpl<>(content, pageable, total);
     }
 
     // Convenience for controller /all endpoint
+    @Transactional(readOnly = true)
     public List<ProductDto> all(String baseImageUrl) {
         Long businessId = requireBusiness();
-        var st = settingsRepo.findByBusinessId(businessId).orElse(null);
+        var snapshot = catalogSnapshot(businessId);
+        var qty = catalog.levels(businessId, () -> ledger.levels(businessId)).byProduct();
+        return snapshot.products().stream().map(d -> withView(d, baseImageUrl, qty)).toList();
+    }
 
-        boolean enableVat  = st != null && st.isEnableVat();
-        BigDecimal ratePct = (st != null && st.getVatRate() != null) ? st.getVatRate() : BigDecimal.ZERO;
-        BigDecimal rate    = ratePct.movePointLeft(2);
+    /**
+     * Catalog change feed: products created/updated and deleted after {@code since} (null = everything),
+     * as keyset pages over (updated_at, id) and (deleted_at, product_id). Changes younger than the settle
+     * window are held back to the next pull, so a slow transaction cannot commit behind a handed-out cursor.
+     */
+    @Transactional(readOnly = true)
+    public CatalogChanges changes(String since, Integer limit, String baseImageUrl) {
+        Long businessId = requireBusiness();
+        int n = limit == null ? syncMaxPage : Math.max(1, Math.min(limit, syncMaxPage));
+        SyncCursor from = SyncCursor.parse(since);
+        OffsetDateTime until = OffsetDateTime.now().minusSeconds(syncSettleSeconds);
+        var page = PageRequest.of(0, n + 1);
 
-        var list = repo.findByBusinessIdOrderByNameAsc(businessId);
-        var ids = list.stream().map(Product::getId).toList();
-        var availMap = computeAvailableMapForIds(ids, businessId);
+        List<Product> changed = repo.findChangedSince(businessId, from.at(), from.id(), until, page);
+        List<ProductTombstone> deleted = tombstones.findDeletedSince(businessId, from.at(), from.id(), until, page);
 
-        return list.stream()
-                .map(p -> toDto(p, baseImageUrl, availMap.get(p.getId()),
-                        enableVat, /*pricesIncludeVat=*/false, ratePct, rate))
+        SyncCursor.Page feed = SyncCursor.merge(changed, deleted, from, n);
+
+        TaxTable tax = taxTables.forBusiness(businessId);
+        Map<Long, BigDecimal> qty = ledger.levels(businessId, feed.upserts().stream().map(Product::getId).toList());
+        List<ProductDto> dtos = feed.upserts().stream()
+                .map(p -> withView(toDto(p, null, null, tax), baseImageUrl, qty))
                 .toList();
+        return new CatalogChanges(dtos, feed.deletedIds(), feed.last().format(), feed.hasMore());
+    }
+
+    /** Gzipped binary catalog (see {@link CatalogSnapshotEncoder}); encoded once per catalog/stock version. */
+    @Transactional(readOnly = true)
+    public CatalogCache.Encoded binarySnapshot() {
+        Long businessId = requireBusiness();
+        var snapshot = catalogSnapshot(businessId);
+        var levels = catalog.levels(businessId, () -> ledger.levels(businessId));
+        return catalog.encoded(businessId, snapshot, levels,
+                () -> CatalogSnapshotEncoder.encode(snapshot, levels, System.currentTimeMillis()));
+    }
+
+    /** Catalog DTOs of the business (no image URL or stock), rebuilt only after a catalog change. */
+    private CatalogCache.Snapshot catalogSnapshot(Long businessId) {
+        return catalog.catalog(businessId, () -> {
+            TaxTable tax = taxTables.forBusiness(businessId);
+            Map<Long, BigDecimal> recipeCosts = new HashMap<>();
+            for (Object[] row : componentRepo.sumUnitCostByParent(businessId)) {
+                recipeCosts.put((Long) row[0], ((BigDecimal) row[1]).setScale(2, RoundingMode.HALF_UP));
+            }
+            return repo.findByBusinessIdOrderByNameAsc(businessId).stream()
+                    .map(p -> toDto(p, null, null, tax, p.getProductType() == ProductType.RECIPE
+                            ? recipeCosts.getOrDefault(p.getId(), BigDecimal.ZERO.setScale(2)) : null))
+                    .toList();
+        });
+    }
+
+    /** Copy of a cached DTO with the request's image URL and the current stock on hand. */
+    private static ProductDto withView(ProductDto d, String baseImageUrl, Map<Long, BigDecimal> levels) {
+        BigDecimal qty = levels.get(d.id());
+        return new ProductDto(
+                d.id(), d.sku(), d.barcode(), d.name(),
+                d.buyPrice(), d.sellPrice(),
+                d.categoryId(), d.categoryName(),
+                d.unitId(), d.unitName(), d.unitAbbr(),
+                d.hasImage(),
+                Boolean.TRUE.equals(d.hasImage()) && baseImageUrl != null
+                        ? baseImageUrl + "/api/inventory/products/" + d.id() + "/image" : null,
+                d.createdAt(), d.updatedAt(),
+                d.productType(), d.recipeCost(),
+                d.lifetime(), d.lowStock(), d.saleMode(),
+                qty == null ? 0 : qty.setScale(0, RoundingMode.DOWN).intValue(),
+                d.priceInclVat(), d.priceExclVat(), d.vatRateApplied(),
+                d.taxCategory(), d.vatRateOverride()
+        );
     }
 
     public byte[] imageBytes(Long id, Long businessId) {
-        var p = repo.findByIdAndBusinessId(id, businessId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        if (p.getImageData() == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
-        return p.getImageData();
+        return media(id, businessId, ProductMedia.Kind.IMAGE).getData();
     }
 
     public String imageContentType(Long id, Long businessId) {
@@ -315,61 +514,41 @@ public class ProductService {
         return p.getImageContentType() == null ? "application/octet-stream" : p.getImageContentType();
     }
 
-    // --- stock helpers ---
-    private Map<Long, Integer> computeAvailableMapForIds(List<Long> ids, Long businessId) {
-        var map = new HashMap<Long, Integer>();
-        if (ids == null || ids.isEmpty()) return map;
-
-        var rows = stockMovementRepo.totalsByProductIdAndBusinessId(businessId);
-        for (Object[] row : rows) {
-            if (row == null || row.length < 2) continue;
-            Number pid = (Number) row[0];
-            java.math.BigDecimal qty = (java.math.BigDecimal) row[1];
-            if (pid == null) continue;
-            int v = qty == null ? 0 : qty.setScale(0, RoundingMode.DOWN).intValue();
-            map.put(pid.longValue(), v);
-        }
-        for (Long id : ids) map.putIfAbsent(id, 0);
-        return map;
+    /** Stored image or QR of a product (the only path that reads media bytes); 404 when absent. */
+    @Transactional(readOnly = true)
+    public ProductMedia media(Long id, Long businessId, ProductMedia.Kind kind) {
+        return media.findByProductIdAndKindAndBusinessId(id, kind, businessId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
     // ----------------- DTO mapping -----------------
     private ProductDto toDto(Product p) { return toDto(p, null, null); }
     private ProductDto toDto(Product p, String baseImageUrl) { return toDto(p, baseImageUrl, null); }
 
-    // Default: loads settings (used by create/update single-return paths)
+    // Default: cached tax table (used by create/update single-return paths)
     private ProductDto toDto(Product p, String baseImageUrl, Integer availableQuantity) {
-        Long businessId = requireBusiness();
-        var st = settingsRepo.findByBusinessId(businessId).orElse(null);
-
-        boolean enableVat  = st != null && st.isEnableVat();
-        BigDecimal ratePct = (st != null && st.getVatRate() != null) ? st.getVatRate() : BigDecimal.ZERO;
-        BigDecimal rate    = ratePct.movePointLeft(2);
+        return toDto(p, baseImageUrl, availableQuantity, taxTables.forBusiness(requireBusiness()));
+    }
 
-        return toDto(p, baseImageUrl, availableQuantity, enableVat, /*pricesIncludeVat=*/false, ratePct, rate);
+    private ProductDto toDto(Product p, String baseImageUrl, Integer availableQuantity, TaxTable tax) {
+        return toDto(p, baseImageUrl, availableQuantity, tax,
+                p.getProductType() == ProductType.RECIPE ? totalItemCostsFromDb(p.getId()) : null);
     }
 
-    // VAT-aware overload used by list()/all() to avoid repeated settings lookups
-    private ProductDto toDto(
-            Product p,
-            String baseImageUrl,
-            Integer availableQuantity,
-            boolean enableVat,
-            boolean pricesIncludeVat, // ignored; stored price is always net
-            BigDecimal ratePct,
-            BigDecimal rate
-    ) {
-        boolean hasImage = p.getImageData() != null && p.getImageData().length > 0;
+    // VAT-aware overload; the rate comes from the product's category / override
+    private ProductDto toDto(Product p, String baseImageUrl, Integer availableQuantity, TaxTable tax,
+                             BigDecimal recipeCost) {
+        BigDecimal ratePct = tax.rateFor(p).percent();
+        BigDecimal rate    = ratePct.movePointLeft(2);
+
+        boolean hasImage = p.getImageHash() != null;
         String imageUrl = hasImage && baseImageUrl != null
                 ? baseImageUrl + "/api/inventory/products/" + p.getId() + "/image"
                 : null;
 
-        var recipeCost = (p.getProductType() == ProductType.RECIPE)
-                ? totalItemCostsFromDb(p.getId()) : null;
-
         // Always treat DB sellPrice as VAT-EXCLUSIVE (net)
         BigDecimal net  = nz(p.getSellPrice()).setScale(2, RoundingMode.HALF_UP);
-        BigDecimal incl = (!enableVat || rate.signum() <= 0)
+        BigDecimal incl = (rate.signum() <= 0)
                 ? net
                 : net.multiply(BigDecimal.ONE.add(rate)).setScale(2, RoundingMode.HALF_UP);
 
@@ -392,7 +571,9 @@ public class ProductService {
                 // match your response keys:
                 incl,                 // priceInclVat
                 net,                  // priceExclVat
-                ratePct == null ? BigDecimal.ZERO : ratePct // vatRateApplied
+                ratePct,              // vatRateApplied
+                p.getTaxCategory(),
+                p.getVatRateOverride()
         );
     }
 
@@ -415,7 +596,8 @@ public class ProductService {
                     pc.getMeasurementText(),
                     unitCost,
                     unitCost,
-                    pc.getName()
+                    pc.getName(),
+                    pc.getQuantity()
             );
         }).toList();
     }
@@ -423,6 +605,8 @@ public class ProductService {
     public List<OutOfStockDto> listOutOfStock(String q) {
         Long bizId = ctx.getBusinessId();
         if (bizId == null) throw new IllegalStateException("X-Business-Id missing");
-        return repo.findOutOfStockForBusiness(bizId, (q == null || q.isBlank()) ? null : q.trim());
+        if (q == null || q.isBlank()) return repo.findOutOfStockForBusiness(bizId);
+        List<Long> hits = searchIndex.search(bizId, q);
+        return hits.isEmpty() ? List.of() : repo.findOutOfStockAmong(bizId, hits);
     }
 }
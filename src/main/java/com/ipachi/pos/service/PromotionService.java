@@ -6,6 +6,7 @@ import com.ipachi.pos.dto.PromoRawRow;
 import com.ipachi.pos.dto.UpdatePromoRequest;
 import com.ipachi.pos.model.Product;
 import com.ipachi.pos.repo.ProductRepository;
+import com.ipachi.pos.repo.StockLotRepository;
 import com.ipachi.pos.security.CurrentRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -22,17 +23,31 @@ import java.util.List;
 public class PromotionService {
 
     private final ProductRepository productRepository;
+    private final StockLotRepository lotRepository;
     private final CurrentRequest ctx;
+    private final CatalogCache catalog;
+    private final ProductSearchIndex searchIndex;
 
+    /**
+     * Products with stock past its shelf life: open lots whose expiry has passed (range scan on
+     * the lot expiry index). inStockForDays is the age of the oldest expired lot still on hand.
+     * A query narrows the candidates to the search index hits.
+     */
+    @Transactional(readOnly = true)
     public List<PromoItemDto> expiredShelfLife(String q) {
         Long bizId = requireBiz();
-        List<PromoRawRow> raw = productRepository.promoCandidates(bizId, q);
-
         OffsetDateTime now = OffsetDateTime.now();
+        List<PromoRawRow> raw;
+        if (q == null || q.isBlank()) {
+            raw = lotRepository.findExpiredPromoCandidates(bizId, now);
+        } else {
+            List<Long> hits = searchIndex.search(bizId, q);
+            if (hits.isEmpty()) return List.of();
+            raw = lotRepository.findExpiredPromoCandidatesAmong(bizId, now, hits);
+        }
 
         return raw.stream()
-                .filter(r -> r.getLifetimeDays() != null && r.getLifetimeDays() > 0)
-                .filter(r -> r.getLastRestockedAt() != null)        // need a restock time to compare
+                .filter(r -> r.getLastRestockedAt() != null)
                 .map(r -> {
                     int days = (int) ChronoUnit.DAYS.between(r.getLastRestockedAt().toLocalDate(), now.toLocalDate());
                     return new PromoItemDto(
@@ -49,9 +64,6 @@ public class PromotionService {
                             r.getOnSpecial() != null && r.getOnSpecial()
                     );
                 })
-                .filter(d -> d.getInStockForDays() > d.getLifetimeDays()) // “passed shelf life”
-                // You can decide if you want to also require quantity > 0:
-                // .filter(d -> d.getQuantity().compareTo(BigDecimal.ZERO) > 0)
                 .sorted(Comparator.comparing(PromoItemDto::getInStockForDays).reversed())
                 .toList();
     }
@@ -69,6 +81,7 @@ public class PromotionService {
             p.setOnSpecial(req.getOnSpecial());
         }
         productRepository.save(p);
+        catalog.bumpCatalog(bizId); // sell price is part of the catalog
 
         // rehydrate a minimal response (inStockForDays recompute not necessary here)
         return new PromoItemDto(
@@ -2,7 +2,6 @@
 package com.ipachi.pos.service;
 
 import com.ipachi.pos.dto.reports.*;
-import com.ipachi.pos.model.Product;
 import com.ipachi.pos.repo.*;
 import com.ipachi.pos.security.CurrentRequest;
 import lombok.RequiredArgsConstructor;
@@ -16,7 +15,6 @@ import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -29,6 +27,8 @@ public class ReportsService {
     private final TransactionLineRepository lineRepo;
     private final ProductRepository productRepo;
     private final StockMovementRepository stockRepo;
+    private final StockCheckpointService checkpoints;
+    private final StockArchiveJdbcRepository archive;
 
     private Long biz() {
         Long v = ctx.getBusinessId();
@@ -106,7 +106,8 @@ public class ReportsService {
             BigDecimal qty      = nz(row.getQty());
             BigDecimal profit   = nz(row.getProfit());
 
-            BigDecimal buyingCash     = buyPrice.multiply(qty);
+            // cost of goods sold snapshotted on the lines; lines from before cost snapshots use today's buy price
+            BigDecimal buyingCash     = row.getCost() != null ? row.getCost() : buyPrice.multiply(qty);
             BigDecimal effectiveTotal = buyingCash.add(profit);
 
             return new CashUpRow(
@@ -144,8 +145,9 @@ public class ReportsService {
         OffsetDateTime justBeforeStart = start.minusNanos(1);
         BigDecimal opening = stockValueAt(b, justBeforeStart);
 
-        // Purchases during period
-        BigDecimal newStock = nz(stockRepo.purchasesValue(b, start, end));
+        // Purchases during period: live ledger (opening-balance rows excluded) plus anything compacted into the archive
+        BigDecimal newStock = nz(stockRepo.purchasesValue(b, start, end))
+                .add(nz(archive.purchasesValue(b, start, end)));
 
         // Closing stock value at end
         BigDecimal closing = stockValueAt(b, end);
@@ -156,16 +158,10 @@ public class ReportsService {
         return new TradeAccountStatement(sales, opening, newStock, closing, costOfSales, gross);
     }
 
+    // value at cost as recorded by the movements (nearest daily checkpoint + cost values since),
+    // so a later buy-price change does not revalue past periods
     private BigDecimal stockValueAt(Long biz, OffsetDateTime ts) {
-        List<Product> products = productRepo.findByBusinessId(biz);
-        BigDecimal total = BigDecimal.ZERO;
-        for (Product p : products) {
-            BigDecimal qty = nz(stockRepo.sumQtyUpTo(p.getId(), biz, ts));
-            if (qty.signum() > 0) {
-                total = total.add(qty.multiply(nz(p.getBuyPrice())));
-            }
-        }
-        return total;
+        return nz(checkpoints.valueAt(biz, ts));
     }
 
     private static BigDecimal toBig(Object v) { return v == null ? BigDecimal.ZERO : new BigDecimal(v.toString()); }
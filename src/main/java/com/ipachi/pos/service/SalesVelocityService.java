@@ -0,0 +1,139 @@
+// src/main/java/com/ipachi/pos/service/SalesVelocityService.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.dto.ReorderSuggestion;
+import com.ipachi.pos.model.StockMovement;
+import com.ipachi.pos.repo.ProductVelocityJdbcRepository;
+import com.ipachi.pos.repo.ProductVelocityJdbcRepository.Increment;
+import com.ipachi.pos.repo.StockCheckpointJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sales velocity per product (exponentially weighted units/day over {@code inventory.velocity.window-days})
+ * and reorder suggestions built on it.
+ * Every checkout updates the rates of the products it took stock from, in the sale's transaction;
+ * a nightly job recomputes them from the ledger so rounding and back-dated corrections do not drift.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SalesVelocityService {
+
+    private static final double SECONDS_PER_DAY = 86400d;
+
+    private final ProductVelocityJdbcRepository velocity;
+    private final StockCheckpointJdbcRepository checkpoints;
+    private final TransactionTemplate tx;
+
+    @Value("${inventory.velocity.window-days:14}")
+    private int windowDays;
+
+    @Value("${inventory.reorder.lead-days:7}")
+    private int defaultLeadDays;
+
+    @Value("${inventory.reorder.cover-days:14}")
+    private int defaultCoverDays;
+
+    /** Fold the sale movements (negative deltas) into their products' rates: one upsert per product. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordSales(List<StockMovement> movements) {
+        if (movements == null || movements.isEmpty()) return;
+
+        Map<Long, Map<Long, List<StockMovement>>> sold = new LinkedHashMap<>();
+        for (StockMovement m : movements) {
+            if (m.getQuantityDelta().signum() >= 0) continue;
+            sold.computeIfAbsent(m.getBusinessId(), k -> new HashMap<>())
+                    .computeIfAbsent(m.getProduct().getId(), k -> new ArrayList<>()).add(m);
+        }
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        sold.forEach((biz, byProduct) -> {
+            List<Increment> increments = new ArrayList<>(byProduct.size());
+            byProduct.forEach((pid, ms) -> increments.add(increment(pid, ms, now)));
+            velocity.apply(biz, increments, windowDays * 86400L);
+        });
+    }
+
+    /** Sales of one product in one batch as a single increment, decayed to the latest sale time. */
+    private Increment increment(Long productId, List<StockMovement> sales, OffsetDateTime now) {
+        OffsetDateTime latest = null;
+        for (StockMovement m : sales) {
+            OffsetDateTime at = m.getCreatedAt() == null ? now : m.getCreatedAt();
+            if (latest == null || at.isAfter(latest)) latest = at;
+        }
+        double rate = 0d;
+        for (StockMovement m : sales) {
+            OffsetDateTime at = m.getCreatedAt() == null ? now : m.getCreatedAt();
+            rate += m.getQuantityDelta().negate().doubleValue() * decay(at, latest);
+        }
+        return new Increment(productId, BigDecimal.valueOf(rate / windowDays), latest);
+    }
+
+    @Scheduled(cron = "${inventory.velocity.cron:0 30 2 * * *}", zone = "UTC")
+    public void recalibrateAll() {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        int businesses = 0, rows = 0;
+        for (Long biz : checkpoints.businessesWithStock()) {
+            try {
+                Integer n = tx.execute(s -> velocity.recalibrate(biz, now, windowDays, windowDays * 8));
+                rows += n == null ? 0 : n;
+                businesses++;
+            } catch (RuntimeException ex) {
+                log.warn("Sales velocity recalibration failed for business={}: {}", biz, ex.getMessage());
+            }
+        }
+        log.info("Sales velocity recalibrated: {} businesses, {} products", businesses, rows);
+    }
+
+    /**
+     * Reorder suggestions from the stored rates and current balances (one query).
+     * Only products that need ordering are returned unless {@code all}; lowest cover first.
+     */
+    @Transactional(readOnly = true)
+    public List<ReorderSuggestion> suggestions(Long businessId, Integer leadDays, Integer coverDays, boolean all) {
+        int lead = leadDays == null ? defaultLeadDays : Math.max(0, leadDays);
+        int cover = coverDays == null ? defaultCoverDays : Math.max(0, coverDays);
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+
+        List<ReorderSuggestion> out = new ArrayList<>();
+        for (var r : velocity.withStock(businessId)) {
+            BigDecimal rate = BigDecimal.valueOf(r.dailyRate().doubleValue() * decay(r.asOf(), now))
+                    .setScale(4, RoundingMode.HALF_UP);
+            BigDecimal onHand = r.onHand();
+            BigDecimal daysOfCover = rate.signum() > 0 ? onHand.max(BigDecimal.ZERO).divide(rate, 1, RoundingMode.HALF_UP) : null;
+            BigDecimal target = rate.multiply(BigDecimal.valueOf(lead + cover))
+                    .add(BigDecimal.valueOf(r.lowStock() == null ? 0 : r.lowStock()));
+            BigDecimal suggested = target.subtract(onHand).max(BigDecimal.ZERO).setScale(0, RoundingMode.CEILING);
+            if (!all && suggested.signum() == 0) continue;
+            out.add(new ReorderSuggestion(r.productId(), r.sku(), r.name(), onHand, rate, daysOfCover,
+                    suggested, r.lowStock(), r.lastSaleAt()));
+        }
+        out.sort(Comparator.comparing(ReorderSuggestion::daysOfCover, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(ReorderSuggestion::productId));
+        return out;
+    }
+
+    /** exp(-elapsed / window); 1 when {@code to} is not after {@code from}. */
+    private double decay(OffsetDateTime from, OffsetDateTime to) {
+        double seconds = Math.max(0L, Duration.between(from, to).getSeconds());
+        return Math.exp(-seconds / (windowDays * SECONDS_PER_DAY));
+    }
+}
@@ -1,6 +1,7 @@
 package com.ipachi.pos.service;
 
 import com.ipachi.pos.model.Settings;
+import com.ipachi.pos.repo.ProductRepository;
 import com.ipachi.pos.repo.SettingsRepository;
 import com.ipachi.pos.security.CurrentRequest;
 import lombok.RequiredArgsConstructor;
@@ -11,6 +12,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
 import java.util.Optional;
 
 @Service
@@ -20,6 +22,9 @@ public class SettingsService {
 
     private final SettingsRepository settingsRepository;
     private final CurrentRequest currentRequest;
+    private final TaxTableCache taxTables;
+    private final CatalogCache catalog;
+    private final ProductRepository products;
 
     private Long requireBusinessId() {
         Long id = currentRequest.getBusinessId();
@@ -60,7 +65,10 @@ public class SettingsService {
         s.setVatRate(nz(req.vatRate()));
 
         try {
-            return settingsRepository.save(s);
+            Settings saved = settingsRepository.save(s);
+            taxTables.invalidate(businessId);
+            touchCatalog(businessId);
+            return saved;
         } catch (DataIntegrityViolationException e) {
             // In case of a race creating the single row per business
             throw new ResponseStatusException(HttpStatus.CONFLICT, "Settings already exist for this business");
@@ -82,7 +90,10 @@ public class SettingsService {
         if (req.pricesIncludeVat() != null) s.setPricesIncludeVat(req.pricesIncludeVat());
         if (req.vatRate() != null)       s.setVatRate(nz(req.vatRate()));
 
-        return settingsRepository.save(s);
+        Settings saved = settingsRepository.save(s);
+        taxTables.invalidate(businessId);
+        touchCatalog(businessId);
+        return saved;
     }
 
     /** Updates only the tax fields (enableVat, pricesIncludeVat, vatRate). Creates settings if missing. */
@@ -98,7 +109,16 @@ public class SettingsService {
         if (req.pricesIncludeVat() != null) s.setPricesIncludeVat(req.pricesIncludeVat());
         if (req.vatRate() != null)          s.setVatRate(nz(req.vatRate()));
 
-        return settingsRepository.save(s);
+        Settings saved = settingsRepository.save(s);
+        taxTables.invalidate(businessId);
+        touchCatalog(businessId);
+        return saved;
+    }
+
+    /** VAT settings change every product's gross price: re-stamp them for the change feed and bump the catalog. */
+    private void touchCatalog(Long businessId) {
+        products.touchAll(businessId, OffsetDateTime.now());
+        catalog.bumpCatalog(businessId);
     }
 
     /* ========= DTOs (service-level) ========= */
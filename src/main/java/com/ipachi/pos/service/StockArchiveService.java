@@ -0,0 +1,102 @@
+// src/main/java/com/ipachi/pos/service/StockArchiveService.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.model.StockArchiveRun;
+import com.ipachi.pos.repo.StockArchiveJdbcRepository;
+import com.ipachi.pos.repo.StockArchiveRunRepository;
+import com.ipachi.pos.repo.StockCheckpointJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Keeps inv_stock_movements to a bounded working set.
+ * Movements older than {@code inventory.archive.horizon-days} (cut at UTC midnight) are moved to
+ * the compressed archive table and replaced by one opening-balance movement per product and
+ * location, so balances, checkpoints and {@code verify} still agree with the live ledger. Receipt
+ * drill-down, point-in-time quantities and the audit export read the archive when they need to.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockArchiveService {
+
+    private final StockArchiveJdbcRepository archive;
+    private final StockArchiveRunRepository runs;
+    private final StockCheckpointJdbcRepository checkpoints;
+    private final TransactionTemplate tx;
+
+    @Value("${inventory.archive.horizon-days:365}")
+    private int horizonDays;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureArchiveTable() {
+        archive.ensureTable();
+    }
+
+    @Scheduled(cron = "${inventory.archive.cron:0 45 1 * * SUN}", zone = "UTC")
+    public void archiveAll() {
+        OffsetDateTime cutoff = defaultCutoff();
+        int businesses = 0;
+        for (Long biz : checkpoints.businessesWithStock()) {
+            try {
+                if (archive(biz, cutoff, null) != null) businesses++;
+            } catch (RuntimeException ex) {
+                log.warn("Stock ledger archive to {} failed for business={}: {}", cutoff, biz, ex.getMessage());
+            }
+        }
+        log.info("Stock ledger archive to {}: {} businesses compacted", cutoff, businesses);
+    }
+
+    /** UTC midnight {@code inventory.archive.horizon-days} ago. */
+    public OffsetDateTime defaultCutoff() {
+        return LocalDate.now(ZoneOffset.UTC).minusDays(horizonDays).atStartOfDay().atOffset(ZoneOffset.UTC);
+    }
+
+    /**
+     * Compact one business's movements dated before {@code cutoff} in a single transaction.
+     * Returns the run, or null when there is nothing to do (cutoff not after the previous one, or
+     * no movements before it). {@code userId} is recorded on the opening rows; when null each row
+     * keeps a user from the movements it replaces.
+     */
+    public StockArchiveRun archive(Long businessId, OffsetDateTime cutoff, Long userId) {
+        return tx.execute(s -> {
+            OffsetDateTime previous = archive.lastCutoff(businessId);
+            if (previous != null && !cutoff.isAfter(previous)) return null;
+
+            Long maxId = archive.maxIdBefore(businessId, cutoff);
+            if (maxId == null) return null;
+
+            int archived = archive.copyToArchive(businessId, cutoff, maxId);
+            int opening = archive.insertOpeningBalances(businessId, cutoff, maxId, userId);
+            int deleted = archive.deleteCompacted(businessId, cutoff, maxId);
+            archive.deleteCheckpointsBefore(businessId, cutoff);
+
+            StockArchiveRun run = runs.save(StockArchiveRun.builder()
+                    .businessId(businessId)
+                    .cutoff(cutoff)
+                    .movementsArchived(archived)
+                    .openingRows(opening)
+                    .createdAt(OffsetDateTime.now(ZoneOffset.UTC))
+                    .build());
+            log.info("Archived {} stock movements before {} for business={} ({} deleted, {} opening rows)",
+                    archived, cutoff, businessId, deleted, opening);
+            return run;
+        });
+    }
+
+    /** Archived and live movements for audit export (opening-balance rows excluded). */
+    public void export(Long businessId, OffsetDateTime from, OffsetDateTime to, Long receiptId, RowCallbackHandler rch) {
+        archive.export(businessId, from, to, receiptId, rch);
+    }
+}
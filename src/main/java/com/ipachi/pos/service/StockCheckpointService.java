@@ -0,0 +1,70 @@
+// src/main/java/com/ipachi/pos/service/StockCheckpointService.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.repo.StockArchiveJdbcRepository;
+import com.ipachi.pos.repo.StockBalanceRepository;
+import com.ipachi.pos.repo.StockCheckpointJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+/**
+ * Daily closing-balance checkpoints (UTC midnight) and point-in-time stock quantities and values built on them.
+ * The schedule is {@code inventory.checkpoint.cron}; it runs a little after midnight so sales
+ * committing around the cut-off are already in the ledger.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockCheckpointService {
+
+    private final StockCheckpointJdbcRepository checkpoints;
+    private final StockArchiveJdbcRepository archive;
+    private final StockBalanceRepository balances;
+    private final TransactionTemplate tx;
+
+    /**
+     * Quantity per product at {@code ts} (products that never moved are absent).
+     * Times before the business's last ledger compaction are answered from the archive.
+     */
+    public Map<Long, BigDecimal> quantitiesAt(Long businessId, OffsetDateTime ts) {
+        OffsetDateTime cutoff = archive.lastCutoff(businessId);
+        if (cutoff != null && ts.isBefore(cutoff)) return archive.quantitiesAt(businessId, ts);
+        return checkpoints.quantitiesAt(businessId, ts);
+    }
+
+    /**
+     * Inventory value at cost at {@code ts}: the running balance values for now or later, otherwise
+     * the nearest checkpoint (or the archive) plus the cost values moved since.
+     */
+    public BigDecimal valueAt(Long businessId, OffsetDateTime ts) {
+        if (!ts.isBefore(OffsetDateTime.now())) return balances.sumStockValue(businessId);
+        OffsetDateTime cutoff = archive.lastCutoff(businessId);
+        if (cutoff != null && ts.isBefore(cutoff)) return archive.valueAt(businessId, ts);
+        return checkpoints.valueAt(businessId, ts);
+    }
+
+    @Scheduled(cron = "${inventory.checkpoint.cron:0 15 0 * * *}", zone = "UTC")
+    public void writeDailyCheckpoints() {
+        OffsetDateTime asOf = LocalDate.now(ZoneOffset.UTC).atStartOfDay().atOffset(ZoneOffset.UTC);
+        int businesses = 0, rows = 0;
+        for (Long biz : checkpoints.businessesWithStock()) {
+            try {
+                Integer n = tx.execute(s -> checkpoints.write(biz, asOf));
+                rows += n == null ? 0 : n;
+                businesses++;
+            } catch (RuntimeException ex) {
+                log.warn("Stock checkpoint {} failed for business={}: {}", asOf, biz, ex.getMessage());
+            }
+        }
+        log.info("Stock checkpoints as of {}: {} businesses, {} rows", asOf, businesses, rows);
+    }
+}
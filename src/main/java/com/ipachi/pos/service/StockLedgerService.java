@@ -0,0 +1,327 @@
+// src/main/java/com/ipachi/pos/service/StockLedgerService.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.dto.StockBalanceCheck;
+import com.ipachi.pos.events.StockLevelsChanged;
+import com.ipachi.pos.model.StockBalance;
+import com.ipachi.pos.model.StockLocationBalance;
+import com.ipachi.pos.model.StockMovement;
+import com.ipachi.pos.repo.StaffMemberRepository;
+import com.ipachi.pos.repo.StockBalanceJdbcRepository;
+import com.ipachi.pos.repo.StockBalanceRepository;
+import com.ipachi.pos.repo.StockCheckpointJdbcRepository;
+import com.ipachi.pos.repo.StockLocationBalanceJdbcRepository;
+import com.ipachi.pos.repo.StockLocationBalanceJdbcRepository.Slot;
+import com.ipachi.pos.repo.StockMovementJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Single write path for inv_stock_movements.
+ * Every movement insert also updates inv_stock_balances (quantity and value at cost), the
+ * per-location balances and the FIFO stock lots in the same transaction, so current-stock and
+ * valuation reads never have to aggregate the ledger. The lots cost each movement before it is
+ * written ({@code cost_value}), so history is never revalued by a later buy-price change.
+ * Movements without an explicit location are booked to the acting staff member's location.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockLedgerService {
+
+    private final StockMovementJdbcRepository movementJdbc;
+    private final StockBalanceJdbcRepository balanceJdbc;
+    private final StockBalanceRepository balances;
+    private final StockCheckpointJdbcRepository checkpointJdbc;
+    private final ApplicationEventPublisher events;
+    private final StockLotService lots;
+    private final StockLocationBalanceJdbcRepository locationBalances;
+    private final StaffMemberRepository staffRepo;
+
+    @Value("${inventory.oversell-guard:true}")
+    private boolean oversellGuard;
+
+    /** Insert movements (one batch) and apply their deltas to the per-product balances. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(List<StockMovement> movements) {
+        if (movements == null || movements.isEmpty()) return;
+        assignLocations(movements);
+        write(movements);
+    }
+
+    /**
+     * {@link #record} with the movements' locations taken as given: null books to the unassigned
+     * pool instead of the acting staff member's location (stocktake adjustments of a counted slot).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAtLocations(List<StockMovement> movements) {
+        if (movements == null || movements.isEmpty()) return;
+        write(movements);
+    }
+
+    private void write(List<StockMovement> movements) {
+        Map<Long, Map<Long, BigDecimal>> deltas = new LinkedHashMap<>();
+        for (StockMovement m : movements) {
+            deltas.computeIfAbsent(m.getBusinessId(), k -> new HashMap<>())
+                    .merge(m.getProduct().getId(), m.getQuantityDelta(), BigDecimal::add);
+        }
+        // balance rows first: holding them is what serializes writers of the same products' lots
+        deltas.forEach(balanceJdbc::applyDeltas);
+        applyLocationDeltas(movements);
+        lots.apply(movements);
+
+        movementJdbc.insertAll(movements);
+        invalidateCheckpoints(movements);
+        applyValues(movements);
+        publishChanged(movements);
+    }
+
+    /**
+     * Record sale movements without overselling.
+     * Negative deltas are taken with a guarded per-product UPDATE on inv_stock_balances, so two
+     * tills selling the last unit cannot both succeed; the loser gets a 400 and its transaction
+     * rolls back. Only the sold products' balance rows are locked. With
+     * {@code inventory.oversell-guard=false} this behaves like {@link #record(List)}.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deduct(List<StockMovement> movements) {
+        if (movements == null || movements.isEmpty()) return;
+        if (!oversellGuard) {
+            record(movements);
+            return;
+        }
+        assignLocations(movements);
+
+        Map<Long, Map<Long, BigDecimal>> taken = new LinkedHashMap<>();
+        Map<Long, Map<Long, BigDecimal>> added = new LinkedHashMap<>();
+        for (StockMovement m : movements) {
+            BigDecimal d = m.getQuantityDelta();
+            if (d.signum() < 0) {
+                taken.computeIfAbsent(m.getBusinessId(), k -> new HashMap<>())
+                        .merge(m.getProduct().getId(), d.negate(), BigDecimal::add);
+            } else if (d.signum() > 0) {
+                added.computeIfAbsent(m.getBusinessId(), k -> new HashMap<>())
+                        .merge(m.getProduct().getId(), d, BigDecimal::add);
+            }
+        }
+
+        for (var e : taken.entrySet()) {
+            List<Long> shortOf = balanceJdbc.deductIfAvailable(e.getKey(), e.getValue());
+            if (!shortOf.isEmpty()) {
+                Long pid = shortOf.get(0);
+                log.info("Oversell prevented for business={}, products={}", e.getKey(), shortOf);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Insufficient stock for %s: requested %s, available %.4f"
+                                .formatted(productName(movements, pid),
+                                        e.getValue().get(pid).stripTrailingZeros().toPlainString(),
+                                        level(e.getKey(), pid)));
+            }
+        }
+        added.forEach(balanceJdbc::applyDeltas);
+        // branches are not guarded separately: a location may go negative while the business has stock
+        applyLocationDeltas(movements);
+        lots.apply(movements);
+
+        movementJdbc.insertAll(movements);
+        invalidateCheckpoints(movements);
+        applyValues(movements);
+        publishChanged(movements);
+    }
+
+    /** Name of the product as carried by the movements (the sold products are loaded); id as a fallback. */
+    private static String productName(List<StockMovement> movements, Long productId) {
+        for (StockMovement m : movements) {
+            if (productId.equals(m.getProduct().getId()) && m.getProduct().getName() != null) {
+                return m.getProduct().getName();
+            }
+        }
+        return "product " + productId;
+    }
+
+    /** Running inventory value: add the movements' cost values to their balance rows. */
+    private void applyValues(List<StockMovement> movements) {
+        Map<Long, Map<Long, BigDecimal>> values = new LinkedHashMap<>();
+        for (StockMovement m : movements) {
+            if (m.getCostValue() == null || m.getCostValue().signum() == 0) continue;
+            values.computeIfAbsent(m.getBusinessId(), k -> new HashMap<>())
+                    .merge(m.getProduct().getId(), m.getCostValue(), BigDecimal::add);
+        }
+        values.forEach(balanceJdbc::applyValues);
+    }
+
+    /** One {@link StockLevelsChanged} per business; listeners (low-stock alerts) run after commit. */
+    private void publishChanged(List<StockMovement> movements) {
+        Map<Long, Set<Long>> touched = new LinkedHashMap<>();
+        for (StockMovement m : movements) {
+            touched.computeIfAbsent(m.getBusinessId(), k -> new HashSet<>()).add(m.getProduct().getId());
+        }
+        touched.forEach((biz, ids) -> events.publishEvent(new StockLevelsChanged(biz, ids)));
+    }
+
+    /**
+     * Move stock between locations: each line is a pair of movements (-q at the source, +q at the
+     * target, null = unassigned pool), written as one batch. Business-wide balances and values, lots
+     * and checkpoints do not change. The source is guarded like a sale; a short line fails the whole
+     * transfer with a 400.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void transfer(List<StockMovement> movements) {
+        if (movements == null || movements.isEmpty()) return;
+
+        Map<Long, Map<Slot, BigDecimal>> taken = new LinkedHashMap<>();
+        Map<Long, Map<Slot, BigDecimal>> added = new LinkedHashMap<>();
+        for (StockMovement m : movements) {
+            BigDecimal d = m.getQuantityDelta();
+            Slot slot = slot(m);
+            if (d.signum() < 0) {
+                taken.computeIfAbsent(m.getBusinessId(), k -> new HashMap<>()).merge(slot, d.negate(), BigDecimal::add);
+            } else if (d.signum() > 0) {
+                added.computeIfAbsent(m.getBusinessId(), k -> new HashMap<>()).merge(slot, d, BigDecimal::add);
+            }
+        }
+        for (var e : taken.entrySet()) {
+            List<Slot> shortOf = locationBalances.deductIfAvailable(e.getKey(), e.getValue());
+            if (!shortOf.isEmpty()) {
+                Slot s = shortOf.get(0);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Insufficient stock for product %d at %s: requested %s"
+                                .formatted(s.productId(),
+                                        s.locationId() == StockLocationBalance.UNASSIGNED ? "unassigned stock" : "location " + s.locationId(),
+                                        e.getValue().get(s).stripTrailingZeros().toPlainString()));
+            }
+        }
+        added.forEach(locationBalances::applyDeltas);
+        movementJdbc.insertAll(movements);
+    }
+
+    /** Fill in the acting staff member's location where a movement has none (one lookup per business). */
+    private void assignLocations(List<StockMovement> movements) {
+        Map<Long, Set<Long>> usersByBusiness = new HashMap<>();
+        for (StockMovement m : movements) {
+            if (m.getLocationId() == null && m.getCreatedByUserId() != null) {
+                usersByBusiness.computeIfAbsent(m.getBusinessId(), k -> new HashSet<>()).add(m.getCreatedByUserId());
+            }
+        }
+        usersByBusiness.forEach((biz, users) -> {
+            Map<Long, Long> locationByUser = new HashMap<>();
+            for (Object[] r : staffRepo.findLocationIds(biz, users)) {
+                locationByUser.put(((Number) r[0]).longValue(), ((Number) r[1]).longValue());
+            }
+            if (locationByUser.isEmpty()) return;      // owner accounts: stock stays unassigned
+            for (StockMovement m : movements) {
+                if (m.getLocationId() == null && biz.equals(m.getBusinessId())) {
+                    m.setLocationId(locationByUser.get(m.getCreatedByUserId()));
+                }
+            }
+        });
+    }
+
+    private void applyLocationDeltas(List<StockMovement> movements) {
+        Map<Long, Map<Slot, BigDecimal>> deltas = new LinkedHashMap<>();
+        for (StockMovement m : movements) {
+            deltas.computeIfAbsent(m.getBusinessId(), k -> new HashMap<>())
+                    .merge(slot(m), m.getQuantityDelta(), BigDecimal::add);
+        }
+        deltas.forEach(locationBalances::applyDeltas);
+    }
+
+    private static Slot slot(StockMovement m) {
+        return new Slot(m.getLocationId() == null ? StockLocationBalance.UNASSIGNED : m.getLocationId(),
+                m.getProduct().getId());
+    }
+
+    /**
+     * Checkpoints are cut at UTC midnight, so only movements dated before today (offline sales,
+     * back-dated receipts) can land inside one; drop the checkpoints they make stale and let the
+     * next run rebuild them from an earlier one.
+     */
+    private void invalidateCheckpoints(List<StockMovement> movements) {
+        OffsetDateTime today = LocalDate.now(ZoneOffset.UTC).atStartOfDay().atOffset(ZoneOffset.UTC);
+        Map<Long, OffsetDateTime> earliest = new HashMap<>();
+        for (StockMovement m : movements) {
+            if (m.getCreatedAt() != null && m.getCreatedAt().isBefore(today)) {
+                earliest.merge(m.getBusinessId(), m.getCreatedAt(), (a, b) -> a.isBefore(b) ? a : b);
+            }
+        }
+        earliest.forEach((biz, from) -> {
+            int n = checkpointJdbc.deleteFrom(biz, from);
+            if (n > 0) log.info("Dropped {} stock checkpoint rows from {} for business={} (back-dated movement)", n, from, biz);
+        });
+    }
+
+    /* ========= READS (primary-key lookups on inv_stock_balances) ========= */
+
+    public BigDecimal level(Long businessId, Long productId) {
+        return balances.findQuantity(businessId, productId).orElse(BigDecimal.ZERO);
+    }
+
+    /** Balances for the given products; products that never moved map to zero. */
+    public Map<Long, BigDecimal> levels(Long businessId, Collection<Long> productIds) {
+        Map<Long, BigDecimal> out = new HashMap<>();
+        if (productIds == null || productIds.isEmpty()) return out;
+        for (StockBalance b : balances.findByBusinessIdAndProductIdIn(businessId, productIds)) {
+            out.put(b.getProductId(), b.getQuantity());
+        }
+        for (Long id : productIds) out.putIfAbsent(id, BigDecimal.ZERO);
+        return out;
+    }
+
+    /**
+     * Like {@link #levels(Long, Collection)}, but the balance rows stay locked until the transaction
+     * ends, so a check made against these levels still holds when {@link #deduct} runs.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, BigDecimal> lockLevels(Long businessId, Collection<Long> productIds) {
+        Map<Long, BigDecimal> out = balanceJdbc.lockQuantities(businessId, productIds);
+        if (productIds != null) for (Long id : productIds) out.putIfAbsent(id, BigDecimal.ZERO);
+        return out;
+    }
+
+    /** All balances of a business (products that never moved are absent). */
+    public Map<Long, BigDecimal> levels(Long businessId) {
+        Map<Long, BigDecimal> out = new HashMap<>();
+        for (StockBalance b : balances.findByBusinessId(businessId)) {
+            out.put(b.getProductId(), b.getQuantity());
+        }
+        return out;
+    }
+
+    /* ========= MAINTENANCE ========= */
+
+    /** Compare balances with the ledger without changing anything. */
+    @Transactional(readOnly = true)
+    public StockBalanceCheck verify(Long businessId) {
+        var drift = balanceJdbc.verify(businessId);
+        return new StockBalanceCheck(businessId, drift.isEmpty(), drift, null);
+    }
+
+    /** Recompute balances (business-wide and per location) from the ledger, then verify. */
+    @Transactional
+    public StockBalanceCheck rebuild(Long businessId) {
+        int rows = balanceJdbc.rebuild(businessId);
+        locationBalances.rebuild(businessId);
+        var drift = balanceJdbc.verify(businessId);
+        log.info("Rebuilt {} stock balances for business={}, drift after rebuild={}", rows, businessId, drift.size());
+        if (!drift.isEmpty() || rows > 0) events.publishEvent(new StockLevelsChanged(businessId, levels(businessId).keySet()));
+        return new StockBalanceCheck(businessId, drift.isEmpty(), drift, rows);
+    }
+}
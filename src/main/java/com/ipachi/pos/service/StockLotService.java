@@ -0,0 +1,150 @@
+// src/main/java/com/ipachi/pos/service/StockLotService.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.dto.StockLotDto;
+import com.ipachi.pos.model.Product;
+import com.ipachi.pos.model.StockLot;
+import com.ipachi.pos.model.StockMovement;
+import com.ipachi.pos.repo.StockLotJdbcRepository;
+import com.ipachi.pos.repo.StockLotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stock lots as FIFO cost layers: every positive movement opens a lot at its unit cost
+ * (expiry = received + {@code Product.lifetimeDays}), every negative movement consumes the
+ * product's open lots oldest first and is costed at what those lots cost.
+ * Called by {@link StockLedgerService} in the same transaction, before the movements are inserted,
+ * so each movement is written with its {@code cost_value}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockLotService {
+
+    private final StockLotJdbcRepository lotJdbc;
+    private final StockLotRepository lots;
+
+    @Value("${inventory.lots.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Open and consume lots for the movements and set every movement's {@code costValue}.
+     * Stock in keeps a cost value that is already set (a delivery priced on the receipt), otherwise
+     * it is valued at the product's buy price of the moment. Stock out that no lot covers (stock
+     * older than the lots, or lots switched off) is costed at the buy price too.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(List<StockMovement> movements) {
+        if (movements == null || movements.isEmpty()) return;
+
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        List<StockLot> opened = new ArrayList<>();
+        Map<Long, List<StockMovement>> taken = new LinkedHashMap<>();
+        for (StockMovement m : movements) {
+            BigDecimal d = m.getQuantityDelta();
+            if (d.signum() > 0) {
+                if (m.getCostValue() == null) m.setCostValue(cost(d, buyPrice(m.getProduct())));
+                if (enabled) opened.add(open(m, now));
+            } else if (d.signum() < 0) {
+                if (enabled) taken.computeIfAbsent(m.getBusinessId(), k -> new ArrayList<>()).add(m);
+                else m.setCostValue(cost(d, buyPrice(m.getProduct())));
+            } else {
+                m.setCostValue(BigDecimal.ZERO);
+            }
+        }
+        lotJdbc.insertAll(opened);
+        taken.forEach(this::consumeFifo);
+    }
+
+    /** Open lots expiring before now + {@code days} (expired ones included), soonest first. */
+    @Transactional(readOnly = true)
+    public List<StockLotDto> expiring(Long businessId, int days) {
+        return lots.findExpiringBefore(businessId, OffsetDateTime.now(ZoneOffset.UTC).plusDays(Math.max(0, days)));
+    }
+
+    private static StockLot open(StockMovement m, OffsetDateTime now) {
+        OffsetDateTime at = m.getCreatedAt() == null ? now : m.getCreatedAt();
+        Product p = m.getProduct();
+        Integer life = p.getLifetimeDays();
+        return StockLot.builder()
+                .businessId(m.getBusinessId())
+                .productId(p.getId())
+                .receiptId(m.getReceipt() == null ? null : m.getReceipt().getId())
+                .receivedAt(at)
+                .expiresAt(life == null || life <= 0 ? null : at.plusDays(life))
+                .quantityReceived(m.getQuantityDelta())
+                .quantityRemaining(m.getQuantityDelta())
+                .unitCost(m.getCostValue().divide(m.getQuantityDelta(), 4, RoundingMode.HALF_UP))
+                .depleted(false)
+                .build();
+    }
+
+    /** Take each movement's quantity from its product's open lots, oldest first, and cost it. */
+    private void consumeFifo(Long businessId, List<StockMovement> taken) {
+        Set<Long> productIds = new HashSet<>();
+        taken.forEach(m -> productIds.add(m.getProduct().getId()));
+        Map<Long, Deque<StockLot>> open = new HashMap<>();
+        for (StockLot lot : lotJdbc.openLotsForUpdate(businessId, productIds)) {
+            open.computeIfAbsent(lot.getProductId(), k -> new ArrayDeque<>()).add(lot);
+        }
+
+        Set<StockLot> changed = new LinkedHashSet<>();
+        Map<Long, BigDecimal> uncovered = new HashMap<>();
+        for (StockMovement m : taken) {
+            Long pid = m.getProduct().getId();
+            Deque<StockLot> layers = open.getOrDefault(pid, new ArrayDeque<>());
+            BigDecimal want = m.getQuantityDelta().negate();
+            BigDecimal cost = BigDecimal.ZERO;
+            while (want.signum() > 0 && !layers.isEmpty()) {
+                StockLot lot = layers.peekFirst();
+                BigDecimal take = want.min(lot.getQuantityRemaining());
+                lot.setQuantityRemaining(lot.getQuantityRemaining().subtract(take));
+                cost = cost.add(take.multiply(lot.getUnitCost()));
+                want = want.subtract(take);
+                changed.add(lot);
+                if (lot.getQuantityRemaining().signum() <= 0) {
+                    lot.setDepleted(true);
+                    layers.pollFirst();
+                }
+            }
+            if (want.signum() > 0) {
+                cost = cost.add(want.multiply(buyPrice(m.getProduct())));
+                uncovered.merge(pid, want, BigDecimal::add);
+            }
+            m.setCostValue(cost.negate().setScale(4, RoundingMode.HALF_UP));
+        }
+        lotJdbc.updateRemaining(new ArrayList<>(changed));
+
+        // stock that predates lot tracking, or an oversell with the guard off
+        uncovered.forEach((pid, rest) ->
+                log.debug("No open lot for {} of product {} (business={}), costed at buy price", rest, pid, businessId));
+    }
+
+    private static BigDecimal cost(BigDecimal quantity, BigDecimal unitCost) {
+        return quantity.multiply(unitCost).setScale(4, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal buyPrice(Product p) {
+        return p.getBuyPrice() == null ? BigDecimal.ZERO : p.getBuyPrice();
+    }
+}
@@ -1,38 +1,62 @@
 // src/main/java/com/ipachi/pos/service/StockService.java
 package com.ipachi.pos.service;
 
+import com.ipachi.pos.dto.BulkRestockRequest;
+import com.ipachi.pos.dto.BulkRestockResponse;
 import com.ipachi.pos.dto.RestockRequest;
 import com.ipachi.pos.dto.RestockResponse;
 import com.ipachi.pos.dto.StockItemDto;
+import com.ipachi.pos.dto.StockMovementDto;
+import com.ipachi.pos.dto.StockMovementPage;
+import com.ipachi.pos.dto.StockTransferRequest;
+import com.ipachi.pos.dto.StockTransferResponse;
 import com.ipachi.pos.model.Product;
+import com.ipachi.pos.model.StockLocationBalance;
 import com.ipachi.pos.model.StockMovement;
 import com.ipachi.pos.model.StockReceipt;
+import com.ipachi.pos.repo.LocationRepository;
 import com.ipachi.pos.repo.ProductRepository;
-import com.ipachi.pos.repo.StockMovementRepository;
+import com.ipachi.pos.repo.StockLocationBalanceJdbcRepository;
+import com.ipachi.pos.repo.StockMovementJdbcRepository;
 import com.ipachi.pos.repo.StockReceiptRepository;
 import com.ipachi.pos.security.CurrentRequest;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class StockService {
     private final ProductRepository products;
-    private final StockMovementRepository movements;
+    private final StockLedgerService ledger;
     private final StockReceiptRepository receipts;
     private final CurrentRequest ctx;
+    private final StockMovementJdbcRepository movementJdbc;
+    private final StockLocationBalanceJdbcRepository locationBalances;
+    private final LocationRepository locations;
+    private final ProductSearchIndex searchIndex;
+
+    private static final int MAX_PAGE = 500;
 
     /* ===== Helpers: business scoping + audit who/terminal ===== */
     private Long biz() {
@@ -49,38 +73,76 @@ public class StockService {
 
     /** List stock items for the current business (optional search q). */
     public List<StockItemDto> list(String q) {
+        return list(q, null);
+    }
+
+    /**
+     * List stock items with the on-hand quantity at one location, or business-wide when
+     * {@code locationId} is null (0 = stock not booked to any location).
+     */
+    public List<StockItemDto> list(String q, Long locationId) {
         Long businessId = biz();
+        if (locationId != null) {
+            if (locationId != StockLocationBalance.UNASSIGNED && !locations.existsByIdAndBusinessId(locationId, businessId))
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Location not found");
+            List<StockItemDto> out = new ArrayList<>();
+            if (q == null || q.isBlank()) {
+                for (Object[] r : products.findWithLocationQuantity(businessId, locationId)) {
+                    out.add(toItem((Product) r[0], (BigDecimal) r[1]));
+                }
+                return out;
+            }
+            List<Long> hits = searchIndex.search(businessId, q);
+            if (hits.isEmpty()) return out;
+            Map<Long, StockItemDto> byId = new HashMap<>();
+            for (Object[] r : products.findWithLocationQuantityAmong(businessId, locationId, hits)) {
+                Product p = (Product) r[0];
+                byId.put(p.getId(), toItem(p, (BigDecimal) r[1]));
+            }
+            for (Long id : hits) { // relevance order
+                StockItemDto item = byId.get(id);
+                if (item != null) out.add(item);
+            }
+            return out;
+        }
 
-        // Products for this business (optionally filtered by q)
-        List<Product> base = (q == null || q.isBlank())
-                ? products.findByBusinessIdOrderByNameAsc(businessId)
-                : products.searchByBusiness(businessId, q.trim(), Pageable.unpaged()).getContent();
+        // Products for this business (optionally filtered by q, best matches first)
+        List<Product> base;
+        if (q == null || q.isBlank()) {
+            base = products.findByBusinessIdOrderByNameAsc(businessId);
+        } else {
+            List<Long> hits = searchIndex.search(businessId, q);
+            Map<Long, Product> byId = new HashMap<>();
+            if (!hits.isEmpty()) {
+                for (Product p : products.findByBusinessIdAndIdIn(businessId, hits)) byId.put(p.getId(), p);
+            }
+            base = hits.stream().map(byId::get).filter(Objects::nonNull).toList();
+        }
 
-        // One query to get totals for all products in this business
-        Map<Long, BigDecimal> totals = movements.totalsByProductIdAndBusinessId(businessId).stream()
-                .collect(Collectors.toMap(
-                        r -> ((Number) r[0]).longValue(),
-                        r -> (BigDecimal) r[1]
-                ));
+        // One query to get balances for all products in this business
+        Map<Long, BigDecimal> totals = ledger.levels(businessId);
 
         List<StockItemDto> out = new ArrayList<>(base.size());
         for (var p : base) {
-            var qty = totals.getOrDefault(p.getId(), BigDecimal.ZERO);
-            out.add(new StockItemDto(
-                    p.getId(),
-                    p.getSku(),
-                    p.getBarcode(),
-                    p.getName(),
-                    p.getUnit() == null ? null : p.getUnit().getId(),
-                    p.getUnit() == null ? null : p.getUnit().getName(),
-                    p.getUnit() == null ? null : p.getUnit().getAbbr(),
-                    qty,
-                    p.getLowStock()
-            ));
+            out.add(toItem(p, totals.getOrDefault(p.getId(), BigDecimal.ZERO)));
         }
         return out;
     }
 
+    private static StockItemDto toItem(Product p, BigDecimal qty) {
+        return new StockItemDto(
+                p.getId(),
+                p.getSku(),
+                p.getBarcode(),
+                p.getName(),
+                p.getUnit() == null ? null : p.getUnit().getId(),
+                p.getUnit() == null ? null : p.getUnit().getName(),
+                p.getUnit() == null ? null : p.getUnit().getAbbr(),
+                qty,
+                p.getLowStock()
+        );
+    }
+
     /** Restock a product for the current business, stamping who + terminal. */
     public RestockResponse restock(Long productId, RestockRequest req) {
         Long businessId = biz();
@@ -93,6 +155,9 @@ public class StockService {
         if (qty == null || qty.signum() <= 0) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be positive");
         }
+        if (req.unitCost() != null && req.unitCost().signum() < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unit cost must not be negative");
+        }
 
         StockReceipt receipt = null;
         if (req.receiptId() != null) {
@@ -107,13 +172,243 @@ public class StockService {
                 .terminalId(term())         // optional terminal audit
                 .product(p)
                 .quantityDelta(qty)
+                .costValue(costValue(qty, req.unitCost()))
                 .receipt(receipt)
                 .note(req.note())
                 .createdAt(OffsetDateTime.now())
                 .build();
-        movements.save(mv);
+        ledger.record(List.of(mv));
+
+        return new RestockResponse(p.getId(), ledger.level(businessId, p.getId()));
+    }
+
+    /**
+     * Book a whole delivery in one go: all products are validated with one query, all movements
+     * go out as one JDBC batch, and the new balances are read back with one query.
+     * Any invalid line rejects the whole request.
+     */
+    public BulkRestockResponse restockBulk(BulkRestockRequest req) {
+        Long businessId = biz();
+        Long userId = user();
+
+        var lines = req.lines() == null ? List.<BulkRestockRequest.Line>of() : req.lines();
+        if (lines.isEmpty()) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No lines to restock");
+
+        StockReceipt receipt = null;
+        if (req.receiptId() != null) {
+            receipt = receipts.findByIdAndBusinessId(req.receiptId(), businessId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Receipt not found"));
+        }
+
+        // one lookup for every product referenced by id or SKU
+        Catalog catalog = lookup(businessId,
+                lines.stream().map(BulkRestockRequest.Line::productId).toList(),
+                lines.stream().filter(l -> l.productId() == null).map(BulkRestockRequest.Line::sku).toList());
+
+        List<String> errors = new ArrayList<>();
+        List<StockMovement> movements = new ArrayList<>(lines.size());
+        OffsetDateTime now = OffsetDateTime.now();
+        for (int i = 0; i < lines.size(); i++) {
+            var l = lines.get(i);
+            Product p = catalog.find(l.productId(), l.sku());
+            if (p == null) {
+                errors.add("line %d: product %s not found".formatted(i + 1,
+                        l.productId() != null ? l.productId() : l.sku()));
+                continue;
+            }
+            if (l.quantity() == null || l.quantity().signum() <= 0) {
+                errors.add("line %d: quantity must be positive".formatted(i + 1));
+                continue;
+            }
+            if (l.unitCost() != null && l.unitCost().signum() < 0) {
+                errors.add("line %d: unit cost must not be negative".formatted(i + 1));
+                continue;
+            }
+            movements.add(StockMovement.builder()
+                    .businessId(businessId)
+                    .createdByUserId(userId)
+                    .userId(userId)
+                    .terminalId(term())
+                    .product(p)
+                    .quantityDelta(l.quantity())
+                    .costValue(costValue(l.quantity(), l.unitCost()))
+                    .receipt(receipt)
+                    .note(l.note())
+                    .createdAt(now)
+                    .build());
+        }
+        if (!errors.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.join("; ", errors));
+        }
+
+        ledger.record(movements);
+
+        // new balances, one row per product in delivery order
+        Set<Long> touched = new LinkedHashSet<>();
+        movements.forEach(m -> touched.add(m.getProduct().getId()));
+        Map<Long, BigDecimal> levels = ledger.levels(businessId, touched);
+        List<RestockResponse> balances = touched.stream()
+                .map(id -> new RestockResponse(id, levels.get(id)))
+                .toList();
+
+        return new BulkRestockResponse(req.receiptId(), movements.size(), balances);
+    }
+
+    /**
+     * Movement history, newest first, with keyset paging on (created_at, id).
+     * {@code direction} is IN or OUT; {@code cursor} is the {@code nextCursor} of the previous page.
+     */
+    @Transactional(readOnly = true)
+    public StockMovementPage movements(Long productId, String sku, Long receiptId, Long userId, Long terminalId,
+                                       String direction, String cursor, Integer limit) {
+        Integer dir = null;
+        if (direction != null && !direction.isBlank()) {
+            switch (direction.trim().toUpperCase()) {
+                case "IN" -> dir = 1;
+                case "OUT" -> dir = -1;
+                default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "direction must be IN or OUT");
+            }
+        }
+        int size = limit == null ? 50 : Math.max(1, Math.min(limit, MAX_PAGE));
+
+        OffsetDateTime beforeAt = null;
+        Long beforeId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.US_ASCII).split(":");
+                long micros = Long.parseLong(parts[0]);
+                beforeAt = Instant.EPOCH.plus(micros, ChronoUnit.MICROS).atOffset(ZoneOffset.UTC);
+                beforeId = Long.parseLong(parts[1]);
+            } catch (RuntimeException ex) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+
+        var filter = new StockMovementJdbcRepository.Filter(productId,
+                sku == null || sku.isBlank() ? null : sku.trim(), receiptId, userId, terminalId, dir);
+        // one extra row tells whether there is a next page
+        List<StockMovementDto> rows = movementJdbc.history(biz(), filter, beforeAt, beforeId, size + 1);
+        if (rows.size() <= size) return new StockMovementPage(rows, null);
+
+        List<StockMovementDto> page = rows.subList(0, size);
+        StockMovementDto last = page.get(size - 1);
+        Instant at = last.createdAt().toInstant();
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, at);
+        String next = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((micros + ":" + last.id()).getBytes(StandardCharsets.US_ASCII));
+        return new StockMovementPage(List.copyOf(page), next);
+    }
+
+    /**
+     * Move stock between locations as one batch: a pair of movements per line (out of the source,
+     * into the target), guarded so the source cannot go negative. Business-wide stock is unchanged.
+     */
+    public StockTransferResponse transfer(StockTransferRequest req) {
+        Long businessId = biz();
+        Long userId = user();
+
+        var lines = req.lines() == null ? List.<StockTransferRequest.Line>of() : req.lines();
+        if (lines.isEmpty()) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No lines to transfer");
+        Long from = location(businessId, req.fromLocationId());
+        Long to = location(businessId, req.toLocationId());
+        if (Objects.equals(from, to))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Source and target location are the same");
+
+        Catalog catalog = lookup(businessId,
+                lines.stream().map(StockTransferRequest.Line::productId).toList(),
+                lines.stream().filter(l -> l.productId() == null).map(StockTransferRequest.Line::sku).toList());
+
+        String note = "Transfer %s → %s".formatted(from == null ? "unassigned" : "location " + from,
+                to == null ? "unassigned" : "location " + to)
+                + (req.note() == null || req.note().isBlank() ? "" : " - " + req.note().trim());
+        List<String> errors = new ArrayList<>();
+        List<StockMovement> movements = new ArrayList<>(lines.size() * 2);
+        OffsetDateTime now = OffsetDateTime.now();
+        for (int i = 0; i < lines.size(); i++) {
+            var l = lines.get(i);
+            Product p = catalog.find(l.productId(), l.sku());
+            if (p == null) {
+                errors.add("line %d: product %s not found".formatted(i + 1,
+                        l.productId() != null ? l.productId() : l.sku()));
+                continue;
+            }
+            if (l.quantity() == null || l.quantity().signum() <= 0) {
+                errors.add("line %d: quantity must be positive".formatted(i + 1));
+                continue;
+            }
+            movements.add(leg(businessId, userId, from, p, l.quantity().negate(), note, now));
+            movements.add(leg(businessId, userId, to, p, l.quantity(), note, now));
+        }
+        if (!errors.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.join("; ", errors));
+        }
+
+        ledger.transfer(movements);
+
+        List<Long> touched = movements.stream().map(m -> m.getProduct().getId()).distinct().toList();
+        Map<Long, BigDecimal> fromLevels = locationBalances.levels(businessId, slot(from), touched);
+        Map<Long, BigDecimal> toLevels = locationBalances.levels(businessId, slot(to), touched);
+        List<StockTransferResponse.Level> levels = touched.stream()
+                .map(id -> new StockTransferResponse.Level(id,
+                        fromLevels.getOrDefault(id, BigDecimal.ZERO), toLevels.getOrDefault(id, BigDecimal.ZERO)))
+                .toList();
+        return new StockTransferResponse(from, to, lines.size(), levels);
+    }
+
+    private StockMovement leg(Long businessId, Long userId, Long locationId, Product p, BigDecimal qty,
+                              String note, OffsetDateTime at) {
+        return StockMovement.builder()
+                .businessId(businessId)
+                .createdByUserId(userId)
+                .userId(userId)
+                .terminalId(term())
+                .locationId(locationId)
+                .product(p)
+                .quantityDelta(qty)
+                .note(note)
+                .createdAt(at)
+                .build();
+    }
+
+    /** Null/0 = unassigned stock; anything else must be a location of this business. */
+    private Long location(Long businessId, Long locationId) {
+        if (locationId == null || locationId == StockLocationBalance.UNASSIGNED) return null;
+        if (!locations.existsByIdAndBusinessId(locationId, businessId))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Location " + locationId + " not found");
+        return locationId;
+    }
+
+    private static long slot(Long locationId) {
+        return locationId == null ? StockLocationBalance.UNASSIGNED : locationId;
+    }
 
-        var current = movements.sumByProductIdAndBusinessId(p.getId(), businessId);
-        return new RestockResponse(p.getId(), current == null ? BigDecimal.ZERO : current);
+    /** Value of a delivery line at its invoiced unit cost; null lets the ledger value it at the buy price. */
+    private static BigDecimal costValue(BigDecimal quantity, BigDecimal unitCost) {
+        return unitCost == null ? null : quantity.multiply(unitCost).setScale(4, RoundingMode.HALF_UP);
+    }
+
+    /** Products referenced by id or (case-insensitive) SKU. */
+    private record Catalog(Map<Long, Product> byId, Map<String, Product> bySku) {
+        Product find(Long productId, String sku) {
+            if (productId != null) return byId.get(productId);
+            return sku == null ? null : bySku.get(sku.trim().toLowerCase());
+        }
+    }
+
+    /** Load every referenced product with one query (nulls and blanks are ignored). */
+    private Catalog lookup(Long businessId, List<Long> productIds, List<String> skus) {
+        Set<Long> ids = new HashSet<>();
+        Set<String> lowered = new HashSet<>();
+        for (Long id : productIds) if (id != null) ids.add(id);
+        for (String sku : skus) if (sku != null && !sku.isBlank()) lowered.add(sku.trim().toLowerCase());
+
+        Map<Long, Product> byId = new HashMap<>();
+        Map<String, Product> bySku = new HashMap<>();
+        for (Product p : products.findByIdsOrSkus(businessId,
+                ids.isEmpty() ? List.of(-1L) : ids, lowered.isEmpty() ? List.of("") : lowered)) {
+            byId.put(p.getId(), p);
+            bySku.put(p.getSku().trim().toLowerCase(), p);
+        }
+        return new Catalog(byId, bySku);
     }
 }
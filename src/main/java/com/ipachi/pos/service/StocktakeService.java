@@ -0,0 +1,260 @@
+// src/main/java/com/ipachi/pos/service/StocktakeService.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.dto.StocktakeCountRequest;
+import com.ipachi.pos.dto.StocktakeStartRequest;
+import com.ipachi.pos.dto.StocktakeVarianceReport;
+import com.ipachi.pos.dto.StocktakeView;
+import com.ipachi.pos.model.Product;
+import com.ipachi.pos.model.StockLocationBalance;
+import com.ipachi.pos.model.StockMovement;
+import com.ipachi.pos.model.Stocktake;
+import com.ipachi.pos.repo.LocationRepository;
+import com.ipachi.pos.repo.ProductRepository;
+import com.ipachi.pos.repo.StocktakeJdbcRepository;
+import com.ipachi.pos.repo.StocktakeRepository;
+import com.ipachi.pos.security.CurrentRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stocktake sessions: freeze system quantities at start, take counts in chunks, then post every
+ * difference as one batch of adjustment movements, booked to the slot that was frozen (a location,
+ * or the unassigned pool). A business-wide count is only possible while the business has no locations.
+ * The adjustment is {@code counted - frozen}; sales and deliveries booked while the count runs
+ * are kept on top of it, so counters do not have to stop the tills.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class StocktakeService {
+
+    private final StocktakeRepository stocktakes;
+    private final StocktakeJdbcRepository lineJdbc;
+    private final ProductRepository products;
+    private final LocationRepository locations;
+    private final StockLedgerService ledger;
+    private final CurrentRequest ctx;
+
+    @Value("${inventory.stocktake.max-chunk:5000}")
+    private int maxChunk;
+
+    private Long biz() {
+        Long v = ctx.getBusinessId();
+        if (v == null) throw new IllegalStateException("X-Business-Id missing");
+        return v;
+    }
+    private Long user() {
+        Long v = ctx.getUserId();
+        if (v == null) throw new IllegalStateException("X-User-Id missing");
+        return v;
+    }
+
+    /** Open a count and freeze the system quantity of every product (one INSERT ... SELECT). */
+    public StocktakeView start(StocktakeStartRequest req) {
+        Long businessId = biz();
+        Long locationId = req == null ? null : req.locationId();
+        if (locationId != null && locationId != StockLocationBalance.UNASSIGNED
+                && !locations.existsByIdAndBusinessId(locationId, businessId))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Location " + locationId + " not found");
+        if (locationId == null) requireNoLocations(businessId);
+        boolean busy = locationId == null
+                ? stocktakes.existsByBusinessIdAndLocationIdIsNullAndStatus(businessId, Stocktake.Status.OPEN)
+                : stocktakes.existsByBusinessIdAndLocationIdAndStatus(businessId, locationId, Stocktake.Status.OPEN);
+        if (busy) throw new ResponseStatusException(HttpStatus.CONFLICT, "A stocktake is already open here");
+
+        Stocktake st = stocktakes.save(Stocktake.builder()
+                .businessId(businessId)
+                .locationId(locationId)
+                .status(Stocktake.Status.OPEN)
+                .note(req == null || req.note() == null || req.note().isBlank() ? null : req.note().trim())
+                .startedByUserId(user())
+                .startedAt(OffsetDateTime.now())
+                .build());
+        int lines = lineJdbc.snapshot(st.getId(), businessId, locationId);
+        log.info("Stocktake {} opened for business={}, location={}, {} products frozen", st.getId(), businessId, locationId, lines);
+        return view(st);
+    }
+
+    /** Record one chunk of counts (one product lookup, one batch write). */
+    public StocktakeView count(Long id, StocktakeCountRequest req) {
+        Long businessId = biz();
+        Stocktake st = open(id, businessId);
+
+        var lines = req == null || req.lines() == null ? List.<StocktakeCountRequest.Line>of() : req.lines();
+        if (lines.isEmpty()) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No counts");
+        if (lines.size() > maxChunk)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + maxChunk + " counts per request");
+        boolean add = req.mode() != null && req.mode().trim().equalsIgnoreCase("ADD");
+        if (!add && req.mode() != null && !req.mode().isBlank() && !req.mode().trim().equalsIgnoreCase("SET"))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "mode must be SET or ADD");
+
+        Set<Long> ids = new HashSet<>();
+        Set<String> skus = new HashSet<>();
+        for (var l : lines) {
+            if (l.productId() != null) ids.add(l.productId());
+            else if (l.sku() != null && !l.sku().isBlank()) skus.add(l.sku().trim().toLowerCase());
+        }
+        Map<Long, Long> byId = new HashMap<>();
+        Map<String, Long> bySku = new HashMap<>();
+        for (Product p : products.findByIdsOrSkus(businessId,
+                ids.isEmpty() ? List.of(-1L) : ids, skus.isEmpty() ? List.of("") : skus)) {
+            byId.put(p.getId(), p.getId());
+            bySku.put(p.getSku().trim().toLowerCase(), p.getId());
+        }
+
+        List<String> errors = new ArrayList<>();
+        Map<Long, BigDecimal> counted = new HashMap<>();
+        for (int i = 0; i < lines.size(); i++) {
+            var l = lines.get(i);
+            Long pid = l.productId() != null ? byId.get(l.productId())
+                    : (l.sku() == null ? null : bySku.get(l.sku().trim().toLowerCase()));
+            if (pid == null) {
+                errors.add("line %d: product %s not found".formatted(i + 1, l.productId() != null ? l.productId() : l.sku()));
+            } else if (l.counted() == null || l.counted().signum() < 0) {
+                errors.add("line %d: counted quantity must be zero or more".formatted(i + 1));
+            } else if (add) {
+                counted.merge(pid, l.counted(), BigDecimal::add);
+            } else {
+                counted.put(pid, l.counted());           // last one wins within a SET chunk
+            }
+        }
+        if (!errors.isEmpty()) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.join("; ", errors));
+
+        lineJdbc.recordCounts(st.getId(), counted, add);
+        return view(st);
+    }
+
+    /** Variances against the frozen quantities, computed in one streaming pass over the lines. */
+    @Transactional(readOnly = true)
+    public StocktakeVarianceReport variances(Long id, boolean uncountedAsZero) {
+        Stocktake st = stocktakes.findByIdAndBusinessId(id, biz())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Stocktake not found"));
+        return report(st, uncountedAsZero);
+    }
+
+    /**
+     * Close the count and post one adjustment movement per differing product as a single ledger
+     * batch. Uncounted products are left alone unless {@code uncountedAsZero}.
+     */
+    public StocktakeView commit(Long id, boolean uncountedAsZero) {
+        Long businessId = biz();
+        Long userId = user();
+        Stocktake st = open(id, businessId);
+        // business-wide variances cannot be split over locations added since the count started
+        if (st.getLocationId() == null) requireNoLocations(businessId);
+
+        StocktakeVarianceReport report = report(st, uncountedAsZero);
+        Map<Long, Product> byId = new HashMap<>();
+        List<Long> pids = report.items().stream().map(StocktakeVarianceReport.Item::productId).toList();
+        for (int from = 0; from < pids.size(); from += 1000) {
+            for (Product p : products.findAllById(pids.subList(from, Math.min(pids.size(), from + 1000)))) {
+                byId.put(p.getId(), p);
+            }
+        }
+
+        OffsetDateTime now = OffsetDateTime.now();
+        // the counted slot; null (unassigned pool) is not replaced by the counter's location
+        Long locationId = st.getLocationId() == null || st.getLocationId() == StockLocationBalance.UNASSIGNED
+                ? null : st.getLocationId();
+        String note = "Stocktake #" + st.getId() + (st.getNote() == null ? "" : " - " + st.getNote());
+        List<StockMovement> movements = new ArrayList<>(pids.size());
+        for (var item : report.items()) {
+            Product p = byId.get(item.productId());
+            if (p == null) continue;                     // deleted while counting
+            movements.add(StockMovement.builder()
+                    .businessId(businessId)
+                    .createdByUserId(userId)
+                    .userId(userId)
+                    .terminalId(ctx.getTerminalId())
+                    .locationId(locationId)
+                    .product(p)
+                    .quantityDelta(item.variance())
+                    .note(note)
+                    .createdAt(now)
+                    .build());
+        }
+        ledger.recordAtLocations(movements);
+
+        st.setStatus(Stocktake.Status.COMMITTED);
+        st.setClosedAt(now);
+        st.setAdjustments(movements.size());
+        stocktakes.save(st);
+        log.info("Stocktake {} committed for business={}: {} adjustments, value variance {}",
+                st.getId(), businessId, movements.size(), report.valueVariance());
+        return view(st);
+    }
+
+    public StocktakeView cancel(Long id) {
+        Stocktake st = open(id, biz());
+        OffsetDateTime now = OffsetDateTime.now();
+        stocktakes.close(st.getId(), Stocktake.Status.CANCELLED, now);
+        st.setStatus(Stocktake.Status.CANCELLED);
+        st.setClosedAt(now);
+        return view(st);
+    }
+
+    @Transactional(readOnly = true)
+    public StocktakeView get(Long id) {
+        return view(stocktakes.findByIdAndBusinessId(id, biz())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Stocktake not found")));
+    }
+
+    @Transactional(readOnly = true)
+    public List<StocktakeView> list() {
+        return stocktakes.findByBusinessIdOrderByIdDesc(biz()).stream().map(this::view).toList();
+    }
+
+    private void requireNoLocations(Long businessId) {
+        if (locations.existsByBusinessId(businessId))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "The business has locations: count each location (or the unassigned stock, location 0) separately");
+    }
+
+    /** Locks the stocktake row (serializes counts against commit/cancel) and requires it to be OPEN. */
+    private Stocktake open(Long id, Long businessId) {
+        Stocktake st = stocktakes.lockByIdAndBusinessId(id, businessId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Stocktake not found"));
+        if (st.getStatus() != Stocktake.Status.OPEN)
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Stocktake is " + st.getStatus());
+        return st;
+    }
+
+    private StocktakeVarianceReport report(Stocktake st, boolean uncountedAsZero) {
+        List<StocktakeVarianceReport.Item> items = new ArrayList<>();
+        BigDecimal[] totals = {BigDecimal.ZERO, BigDecimal.ZERO};
+        lineJdbc.streamVariances(st.getId(), uncountedAsZero, rs -> {
+            BigDecimal system = rs.getBigDecimal("system_qty");
+            BigDecimal counted = rs.getBigDecimal("counted_qty");
+            BigDecimal buy = rs.getBigDecimal("buy_price");
+            BigDecimal variance = counted.subtract(system);
+            BigDecimal value = buy == null ? BigDecimal.ZERO : variance.multiply(buy);
+            totals[0] = totals[0].add(variance);
+            totals[1] = totals[1].add(value);
+            items.add(new StocktakeVarianceReport.Item(rs.getLong("product_id"), rs.getString("sku"),
+                    rs.getString("name"), system, counted, variance, value));
+        });
+        return new StocktakeVarianceReport(st.getId(), st.getStatus().name(), items, totals[0], totals[1]);
+    }
+
+    private StocktakeView view(Stocktake st) {
+        long[] progress = lineJdbc.progress(st.getId());
+        return new StocktakeView(st.getId(), st.getLocationId(), st.getStatus().name(), st.getNote(),
+                st.getStartedAt(), st.getClosedAt(), progress[0], progress[1], st.getAdjustments());
+    }
+}
@@ -0,0 +1,72 @@
+// src/main/java/com/ipachi/pos/service/SyncCursor.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.model.Product;
+import com.ipachi.pos.model.ProductTombstone;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Catalog feed position: change timestamp (µs) and id of the last change handed out. */
+record SyncCursor(OffsetDateTime at, Long id) implements Comparable<SyncCursor> {
+
+    private static final OffsetDateTime START = OffsetDateTime.of(1970, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    /** One page of the feed; {@code last} is where the next pull starts. */
+    record Page(List<Product> upserts, List<Long> deletedIds, SyncCursor last, boolean hasMore) {}
+
+    static SyncCursor of(OffsetDateTime at, Long id) {
+        return new SyncCursor(at.truncatedTo(ChronoUnit.MICROS), id);
+    }
+
+    static SyncCursor parse(String s) {
+        if (s == null || s.isBlank()) return new SyncCursor(START, 0L);
+        try {
+            String[] parts = s.trim().split("_", 2);
+            long micros = Long.parseLong(parts[0]);
+            Instant at = Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+            return new SyncCursor(at.atOffset(ZoneOffset.UTC), Long.parseLong(parts[1]));
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid sync cursor");
+        }
+    }
+
+    /**
+     * Merge the changed products and the tombstones (each already in (timestamp, id) order, read
+     * after {@code from}) into one stream and cut it at {@code n}; on a tie the upsert goes first.
+     */
+    static Page merge(List<Product> changed, List<ProductTombstone> deleted, SyncCursor from, int n) {
+        List<Product> upserts = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        SyncCursor last = from;
+        int i = 0, j = 0;
+        while (upserts.size() + deletedIds.size() < n && (i < changed.size() || j < deleted.size())) {
+            SyncCursor pc = i < changed.size() ? of(changed.get(i).getUpdatedAt(), changed.get(i).getId()) : null;
+            SyncCursor tc = j < deleted.size() ? of(deleted.get(j).getDeletedAt(), deleted.get(j).getProductId()) : null;
+            if (tc == null || (pc != null && pc.compareTo(tc) <= 0)) {
+                upserts.add(changed.get(i++));
+                last = pc;
+            } else {
+                deletedIds.add(deleted.get(j++).getProductId());
+                last = tc;
+            }
+        }
+        return new Page(upserts, deletedIds, last, i < changed.size() || j < deleted.size());
+    }
+
+    String format() {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, at.toInstant()) + "_" + id;
+    }
+
+    @Override
+    public int compareTo(SyncCursor o) {
+        int c = at.toInstant().compareTo(o.at.toInstant());
+        return c != 0 ? c : Long.compare(id, o.id);
+    }
+}
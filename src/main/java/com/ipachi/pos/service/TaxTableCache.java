@@ -0,0 +1,97 @@
+// src/main/java/com/ipachi/pos/service/TaxTableCache.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.repo.ProductRepository;
+import com.ipachi.pos.repo.SettingsRepository;
+import com.ipachi.pos.tax.TaxTable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compiled {@link TaxTable} per business, loaded on first use (settings row + product overrides)
+ * and dropped when SettingsService or ProductService changes something that affects tax.
+ * Loads run outside the map in their own read-committed transaction, and a load is only kept when
+ * no invalidation landed while it ran (the same guard as {@link ProductSearchIndex}).
+ */
+@Component
+public class TaxTableCache {
+
+    private final SettingsRepository settingsRepo;
+    private final ProductRepository productRepo;
+    private final TransactionTemplate loadTx;
+
+    private final Map<Long, TaxTable> tables = new ConcurrentHashMap<>();
+    /** Per business, bumped by every invalidation. */
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    public TaxTableCache(SettingsRepository settingsRepo, ProductRepository productRepo,
+                         PlatformTransactionManager txManager) {
+        this.settingsRepo = settingsRepo;
+        this.productRepo = productRepo;
+        this.loadTx = new TransactionTemplate(txManager);
+        loadTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        loadTx.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        loadTx.setReadOnly(true);
+    }
+
+    /** Cached table, or a fresh load; a load that raced an invalidation serves this call but is not kept. */
+    public TaxTable forBusiness(Long businessId) {
+        TaxTable table = tables.get(businessId);
+        if (table != null) return table;
+        AtomicLong v = versions.computeIfAbsent(businessId, k -> new AtomicLong());
+        long seen = v.get();
+        TaxTable fresh = loadTx.execute(s -> load(businessId));
+        if (v.get() != seen) return fresh;
+        TaxTable prior = tables.putIfAbsent(businessId, fresh);
+        if (prior != null) return prior;
+        // an invalidation between the check and the put: take the stale table back out
+        if (v.get() != seen) tables.remove(businessId, fresh);
+        return fresh;
+    }
+
+    /**
+     * Forget the business's table. Inside a transaction this happens after commit, so a
+     * concurrent reader cannot re-cache the old rules in between.
+     */
+    public void invalidate(Long businessId) {
+        if (businessId == null) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    drop(businessId);
+                }
+            });
+        } else {
+            drop(businessId);
+        }
+    }
+
+    private void drop(Long businessId) {
+        versions.computeIfAbsent(businessId, k -> new AtomicLong()).incrementAndGet();
+        tables.remove(businessId);
+    }
+
+    private TaxTable load(Long businessId) {
+        var st = settingsRepo.findByBusinessId(businessId).orElse(null);
+        Map<Long, BigDecimal> overrides = new HashMap<>();
+        for (Object[] row : productRepo.findVatOverrides(businessId)) {
+            overrides.put((Long) row[0], (BigDecimal) row[1]);
+        }
+        return new TaxTable(
+                st != null && st.isEnableVat(),
+                st != null && st.isPricesIncludeVat(),
+                (st != null && st.getVatRate() != null) ? st.getVatRate() : BigDecimal.ZERO,
+                overrides);
+    }
+}
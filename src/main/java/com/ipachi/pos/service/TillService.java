@@ -5,6 +5,7 @@ package com.ipachi.pos.service;
 import com.ipachi.pos.dto.*;
 import com.ipachi.pos.model.CashMovement;
 import com.ipachi.pos.model.TillSession;
+import com.ipachi.pos.model.Transaction;
 import com.ipachi.pos.repo.CashMovementRepository;
 import com.ipachi.pos.repo.TillSessionRepository;
 import com.ipachi.pos.security.CurrentRequest;
@@ -14,6 +15,7 @@ import org.springframework.transaction.annotation.Transactional;
 
         import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
         @Service
@@ -42,6 +44,11 @@ public class TillService {
                                 .orElse(null);
             }
 
+            /** The session that was open on the terminal at {@code at}, or null (offline sales are booked by sale time). */
+            public TillSession sessionAt(Long terminalId, OffsetDateTime at) {
+                return tillRepo.findOpenAt(terminalId, at).stream().findFirst().orElse(null);
+            }
+
             @Transactional
             public CashMovement addMovement(Long tillId, CashMovementType type, MovementRequest req) {
                 TillSession s = tillRepo.findById(tillId).orElseThrow();
@@ -63,6 +70,47 @@ public class TillService {
 
                 return movRepo.save(m);
             }
+
+            /**
+             * SALE movement on the terminal's open till, if there is one. Does not read request
+             * headers, so it can run off the request thread (outbox). Returns false when no till is open.
+             */
+            @Transactional
+            public boolean recordSale(Long terminalId, BigDecimal amount, String reference, String reason, Long userId) {
+                TillSession s = getActive(terminalId);
+                if (s == null) return false;
+                OffsetDateTime now = OffsetDateTime.now();
+                movRepo.save(CashMovement.builder()
+                        .tillSession(s)
+                        .type(CashMovementType.SALE)
+                        .amount(amount)
+                        .reference(reference)
+                        .reason(reason)
+                        .userId(userId)
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .build());
+                return true;
+            }
+
+            /** One SALE movement per transaction, saved together (offline sync folds these into its chunk). */
+            @Transactional
+            public List<CashMovement> recordSales(TillSession s, List<Transaction> txs, String reason) {
+                List<CashMovement> out = new ArrayList<>(txs.size());
+                for (Transaction tx : txs) {
+                    out.add(CashMovement.builder()
+                            .tillSession(s)
+                            .type(CashMovementType.SALE)
+                            .amount(tx.getTotal())
+                            .reference("TX-" + tx.getId())
+                            .reason(reason)
+                            .userId(tx.getUserId())
+                            .createdAt(tx.getCreatedAt())
+                            .updatedAt(tx.getCreatedAt())
+                            .build());
+                }
+                return movRepo.saveAll(out);
+            }
             public TillSummary summary(Long tillId) {
                 TillSession s = tillRepo.findById(tillId).orElseThrow();
                 List<CashMovement> list = movRepo.findByTillSession(s);
@@ -1,8 +1,12 @@
 package com.ipachi.pos.sim;
 
+import com.ipachi.pos.model.StockLocationBalance;
+import com.ipachi.pos.repo.StockLocationBalanceJdbcRepository;
+import com.ipachi.pos.repo.StockLocationBalanceJdbcRepository.Slot;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -17,9 +21,11 @@ import java.util.concurrent.ThreadLocalRandom;
 public class SeedService {
 
     private final JdbcTemplate jdbc;
+    private final StockLocationBalanceJdbcRepository locationBalances;
 
-    public SeedService(JdbcTemplate jdbc) {
+    public SeedService(JdbcTemplate jdbc, StockLocationBalanceJdbcRepository locationBalances) {
         this.jdbc = jdbc;
+        this.locationBalances = locationBalances;
     }
 
     /** VAT = 10%; prices_include_vat = 1 → sell_price is GROSS */
@@ -49,7 +55,10 @@ public class SeedService {
 
     /** Run on demand: simulate last 3 months, ≤ maxPerMonth transactions per month, with receipts (BLOBs).
      *  STRONG GUARANTEE: Never insert a negative stock movement that would push quantity below zero.
-     *  We check DB quantity up to the sale time and auto-restock (with a dated receipt) if needed. */
+     *  We check DB quantity up to the sale time and auto-restock (with a dated receipt) if needed.
+     *  Runs in one transaction so every movement and its inv_stock_balances / inv_stock_location_balances
+     *  updates commit together. */
+    @Transactional
     public Map<String, Object> run(Long businessId, int maxPerMonth) {
         initColumnFlags();
 
@@ -82,7 +91,7 @@ public class SeedService {
                 if (running.getOrDefault(pid, BigDecimal.ZERO).compareTo(BigDecimal.ZERO) <= 0) {
                     int qty = 20 + rnd.nextInt(21); // 20..40
                     BigDecimal qtyBD = q(qty);
-                    stockMoveWithUser(businessId, pid, qtyBD, preWindow, rid, USER_ADMIN);
+                    stockMoveWithUser(businessId, pid, qtyBD, preWindow, rid, null, USER_ADMIN);
                     running.compute(pid, (k, v) -> (v == null ? BigDecimal.ZERO : v).add(qtyBD));
                     didInitial = true;
                 }
@@ -103,7 +112,7 @@ public class SeedService {
                 for (Long pid : pickRandom(PRODUCT_IDS, skuCount, rnd)) {
                     int qty = 10 + rnd.nextInt(21); // 10..30
                     BigDecimal qtyBD = q(qty);
-                    stockMoveWithUser(businessId, pid, qtyBD, when, rid, USER_ADMIN);
+                    stockMoveWithUser(businessId, pid, qtyBD, when, rid, null, USER_ADMIN);
                     running.compute(pid, (k, v) -> v.add(qtyBD));
                 }
             }
@@ -120,7 +129,7 @@ public class SeedService {
                 BigDecimal added = ensureStockAvailable(businessId, pid, when, need, "Adjustment " + (i + 1) + " " + ym);
                 if (added.signum() > 0) running.compute(pid, (k, v) -> v.add(added));
 
-                stockMoveWithUser(businessId, pid, need.negate(), when, null, USER_ADMIN);
+                stockMoveWithUser(businessId, pid, need.negate(), when, null, null, USER_ADMIN);
                 running.compute(pid, (k, v) -> v.subtract(need));
             }
 
@@ -173,7 +182,7 @@ public class SeedService {
                     // persist tx line
                     insertTxLine(businessId, txId, txAt, l);
                     // record a NEGATIVE stock movement for the sale line (user = STAFF, no receipt)
-                    stockMoveWithUser(businessId, l.productId, q(l.qty).negate(), txAt, null, USER_STAFF);
+                    stockMoveWithUser(businessId, l.productId, q(l.qty).negate(), txAt, null, txId, USER_STAFF);
                 }
             }
         }
@@ -257,7 +266,7 @@ public class SeedService {
 
         LocalDateTime topUpAt = when.minusMinutes(5);             // must be before the sale/adjustment
         long rid = createReceipt(biz, "Auto-ensure: " + label, topUpAt);
-        stockMoveWithUser(biz, productId, toAdd, topUpAt, rid, USER_ADMIN);
+        stockMoveWithUser(biz, productId, toAdd, topUpAt, rid, null, USER_ADMIN);
 
         return toAdd;
     }
@@ -289,13 +298,15 @@ public class SeedService {
     }
 
     /**
-     * INSERT stock movement with optional receipt link and actor user.
+     * INSERT stock movement with optional receipt / sale link and actor user.
      * Uses dynamic audit columns if present.
      */
-    private void stockMoveWithUser(Long biz, Long productId, BigDecimal delta, LocalDateTime when, Long receiptId, long actorUserId) {
-        StringBuilder cols = new StringBuilder("business_id, product_id, quantity_delta, created_at, updated_at");
-        StringBuilder vals = new StringBuilder("?, ?, ?, ?, ?");
-        List<Object> args = new ArrayList<>(List.of(biz, productId, delta, ts(when), ts(when)));
+    private void stockMoveWithUser(Long biz, Long productId, BigDecimal delta, LocalDateTime when, Long receiptId,
+                                   Long transactionId, long actorUserId) {
+        // seeded movements are valued at the product's buy price
+        StringBuilder cols = new StringBuilder("business_id, product_id, quantity_delta, cost_value, created_at, updated_at");
+        StringBuilder vals = new StringBuilder("?, ?, ?, ? * (SELECT COALESCE(buy_price, 0) FROM inv_products WHERE id = ?), ?, ?");
+        List<Object> args = new ArrayList<>(List.of(biz, productId, delta, delta, productId, ts(when), ts(when)));
 
         if (Boolean.TRUE.equals(smHasCreatedBy)) {
             cols.append(", created_by_user_id");
@@ -313,6 +324,12 @@ public class SeedService {
             args.add(actorUserId);
         }
 
+        if (transactionId != null) {   // sale lines: velocity recalibration finds sales by transaction
+            cols.append(", transaction_id");
+            vals.append(", ?");
+            args.add(transactionId);
+        }
+
         cols.append(", receipt_id");
         if (receiptId == null) {
             vals.append(", NULL");
@@ -323,6 +340,16 @@ public class SeedService {
 
         String sql = "INSERT INTO inv_stock_movements (" + cols + ") VALUES (" + vals + ")";
         jdbc.update(sql, args.toArray());
+
+        // keep the materialized balance in step with the ledger (same transaction/connection)
+        jdbc.update("""
+            INSERT INTO inv_stock_balances (business_id, product_id, quantity, stock_value, updated_at)
+            SELECT ?, ?, ?, ? * COALESCE(p.buy_price, 0), ? FROM inv_products p WHERE p.id = ?
+            ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), stock_value = stock_value + VALUES(stock_value),
+                                    updated_at = VALUES(updated_at)
+        """, biz, productId, delta, delta, ts(LocalDateTime.now()), productId);
+        // seeded movements carry no location: they belong to the unassigned pool
+        locationBalances.applyDeltas(biz, Map.of(new Slot(StockLocationBalance.UNASSIGNED, productId), delta));
     }
 
     /**
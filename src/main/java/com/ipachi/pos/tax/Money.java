@@ -0,0 +1,71 @@
+// src/main/java/com/ipachi/pos/tax/Money.java
+package com.ipachi.pos.tax;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money in minor units (cents, scale 2) held in a {@code long}.
+ * Rounding is HALF_UP (away from zero on ties), the same as the BigDecimal code it replaces;
+ * convert with {@link #toBigDecimal(long)} only where values are persisted or returned.
+ */
+public final class Money {
+    private Money() {}
+
+    public static final int SCALE = 2;
+
+    /** VAT rates are carried as percent * 10^4 (e.g. 14.00% = 140_000), exact for scale <= 4. */
+    public static final long RATE_ONE = 1_000_000L; // 100% in rate units
+
+    private static final double MAX_FAST_PRICE = 1e12;
+
+    /**
+     * Cents for a till price given as double, identical to
+     * {@code BigDecimal.valueOf(price).setScale(2, HALF_UP)} but without allocating for ordinary prices.
+     */
+    public static long ofPrice(double price) {
+        if (Math.abs(price) < MAX_FAST_PRICE) {
+            long cents = Math.round(price * 100d);
+            if (cents / 100d == price) return cents;    // price is exactly the nearest double to cents/100
+        }
+        return of(BigDecimal.valueOf(price));
+    }
+
+    /** Cents for a BigDecimal amount, rounded HALF_UP to scale 2; null counts as zero. */
+    public static long of(BigDecimal amount) {
+        if (amount == null) return 0L;
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * A VAT percentage in rate units (percent * 10^4), or -1 if it has more than four decimals
+     * (callers then fall back to {@link TaxCalculator#line}).
+     */
+    public static long rate(BigDecimal ratePercent) {
+        if (ratePercent == null) return 0L;
+        try {
+            return ratePercent.movePointRight(4).longValueExact();
+        } catch (ArithmeticException inexact) {
+            return -1L;
+        }
+    }
+
+    /** {@code round_half_up(cents * rate / RATE_ONE)}, i.e. the VAT on an exclusive amount. */
+    public static long percentOf(long cents, long rate) {
+        return divHalfUp(Math.multiplyExact(cents, rate), RATE_ONE);
+    }
+
+    /** {@code round_half_up(num / den)} for den > 0, rounding ties away from zero like BigDecimal HALF_UP. */
+    public static long divHalfUp(long num, long den) {
+        long q = num / den;
+        long r = num % den;
+        if (r == 0) return q;
+        long twice = Math.abs(r) * 2;                       // |r| < den, so no overflow for den < 2^62
+        if (twice >= den) q += (num < 0) ? -1 : 1;
+        return q;
+    }
+}
@@ -0,0 +1,66 @@
+// src/main/java/com/ipachi/pos/tax/TaxTable.java
+package com.ipachi.pos.tax;
+
+import com.ipachi.pos.dto.TaxCategory;
+import com.ipachi.pos.model.Product;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * A business's VAT rules compiled for lookups: rate per {@link TaxCategory} plus per-product
+ * overrides. Immutable; rebuilt when settings or products change.
+ * <p>
+ * Resolution: VAT disabled → 0; EXEMPT → 0; else product override if set; else the category
+ * rate (STANDARD = settings rate, ZERO = 0).
+ */
+public final class TaxTable {
+
+    /** A rate as percent (e.g. 14.00) and in {@link Money#rate} units for the fixed-point path. */
+    public record Rate(BigDecimal percent, long units) {
+        public static final Rate NONE = new Rate(BigDecimal.ZERO, 0L);
+
+        public static Rate of(BigDecimal percent) {
+            if (percent == null || percent.signum() == 0) return NONE;
+            return new Rate(percent, Money.rate(percent));
+        }
+    }
+
+    private final boolean enableVat;
+    private final boolean pricesIncludeVat;
+    private final Map<TaxCategory, Rate> byCategory;
+    private final Map<Long, Rate> overrides;
+
+    public TaxTable(boolean enableVat, boolean pricesIncludeVat, BigDecimal standardRatePct,
+                    Map<Long, BigDecimal> overridesByProduct) {
+        this.enableVat = enableVat;
+        this.pricesIncludeVat = pricesIncludeVat;
+
+        Map<TaxCategory, Rate> cats = new EnumMap<>(TaxCategory.class);
+        cats.put(TaxCategory.STANDARD, Rate.of(standardRatePct));
+        cats.put(TaxCategory.ZERO, Rate.NONE);
+        cats.put(TaxCategory.EXEMPT, Rate.NONE);
+        this.byCategory = cats;
+
+        Map<Long, Rate> ov = new java.util.HashMap<>();
+        if (overridesByProduct != null) overridesByProduct.forEach((id, pct) -> ov.put(id, Rate.of(pct)));
+        this.overrides = Map.copyOf(ov);
+    }
+
+    public boolean enableVat()        { return enableVat; }
+    public boolean pricesIncludeVat() { return pricesIncludeVat; }
+
+    /** Default (STANDARD) rate of the business, 0 when VAT is off. */
+    public Rate standardRate() {
+        return enableVat ? byCategory.get(TaxCategory.STANDARD) : Rate.NONE;
+    }
+
+    public Rate rateFor(Product p) {
+        if (!enableVat || p == null) return Rate.NONE;
+        TaxCategory cat = p.getTaxCategory() == null ? TaxCategory.STANDARD : p.getTaxCategory();
+        if (cat == TaxCategory.EXEMPT) return Rate.NONE;
+        Rate ov = overrides.get(p.getId());
+        return ov != null ? ov : byCategory.get(cat);
+    }
+}
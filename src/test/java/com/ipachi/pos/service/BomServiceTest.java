@@ -0,0 +1,164 @@
+// src/test/java/com/ipachi/pos/service/BomServiceTest.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.dto.ProductType;
+import com.ipachi.pos.model.Product;
+import com.ipachi.pos.model.ProductComponent;
+import com.ipachi.pos.repo.ProductComponentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** {@link BomService} over an in-memory recipe graph: per-unit quantities, nesting, cycles and the depth limit. */
+class BomServiceTest {
+
+    private static final long BIZ = 1L;
+
+    private final ProductComponentRepository componentRepo = mock(ProductComponentRepository.class);
+    private final BomService bom = new BomService(componentRepo);
+    private final List<ProductComponent> links = new ArrayList<>();
+    private long nextId = 1;
+
+    @BeforeEach
+    void graph() {
+        when(componentRepo.findLinkedByParentIds(anyCollection(), eq(BIZ))).thenAnswer(inv -> {
+            Collection<Long> parents = inv.getArgument(0);
+            return links.stream().filter(pc -> parents.contains(pc.getParent().getId())).toList();
+        });
+    }
+
+    @Test
+    void recipeExplodesToItsIngredientsPerUnit() {
+        Product bread = product("Bread", ProductType.SINGLE);
+        Product cheese = product("Cheese", ProductType.SINGLE);
+        Product toastie = product("Toastie", ProductType.RECIPE);
+        link(toastie, bread, "2");
+        link(toastie, cheese, "0.5");
+
+        BomService.Explosion x = bom.explode(BIZ, List.of(toastie, bread));
+
+        assertTrue(x.exploded(toastie));
+        assertEquals(Map.of(bread.getId(), new BigDecimal("2"), cheese.getId(), new BigDecimal("0.5")),
+                quantities(x.parts(toastie)));
+        // a plain product is stocked as itself
+        assertFalse(x.exploded(bread));
+        assertEquals(Map.of(bread.getId(), BigDecimal.ONE), quantities(x.parts(bread)));
+    }
+
+    @Test
+    void nestedRecipesMultiplyAndMergeSharedIngredients() {
+        Product bread = product("Bread", ProductType.SINGLE);
+        Product cheese = product("Cheese", ProductType.SINGLE);
+        Product toastie = product("Toastie", ProductType.RECIPE);
+        Product combo = product("Toastie combo", ProductType.RECIPE);
+        link(toastie, bread, "2");
+        link(toastie, cheese, "0.5");
+        link(combo, toastie, "2");
+        link(combo, bread, "1");
+
+        Map<Long, BigDecimal> parts = quantities(bom.explode(BIZ, List.of(combo)).parts(combo));
+
+        assertEquals(0, new BigDecimal("5").compareTo(parts.get(bread.getId())));
+        assertEquals(0, BigDecimal.ONE.compareTo(parts.get(cheese.getId())));
+        assertEquals(2, parts.size());
+    }
+
+    @Test
+    void missingOrNonPositiveQuantityCountsAsOne() {
+        Product flour = product("Flour", ProductType.SINGLE);
+        Product salt = product("Salt", ProductType.SINGLE);
+        Product loaf = product("Loaf", ProductType.RECIPE);
+        link(loaf, flour, null);
+        link(loaf, salt, "0");
+
+        assertEquals(Map.of(flour.getId(), BigDecimal.ONE, salt.getId(), BigDecimal.ONE),
+                quantities(bom.explode(BIZ, List.of(loaf)).parts(loaf)));
+    }
+
+    @Test
+    void cycleIsRejectedWithItsPath() {
+        Product a = product("Sauce A", ProductType.RECIPE);
+        Product b = product("Sauce B", ProductType.RECIPE);
+        link(a, b, "1");
+        link(b, a, "1");
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> bom.explode(BIZ, List.of(a)));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        assertTrue(ex.getReason().contains(a.getId() + " -> " + b.getId() + " -> " + a.getId()), ex.getReason());
+    }
+
+    @Test
+    void sixteenLevelsLoadOneQueryPerLevel() {
+        Product top = chain(16);
+
+        BomService.Explosion x = bom.explode(BIZ, List.of(top));
+
+        assertEquals(1, x.parts(top).size());
+        assertEquals("Leaf", x.parts(top).get(0).product().getName());
+        verify(componentRepo, times(16)).findLinkedByParentIds(anyCollection(), eq(BIZ));
+    }
+
+    @Test
+    void deeperNestingIsRejected() {
+        Product top = chain(17);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> bom.explode(BIZ, List.of(top)));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        assertTrue(ex.getReason().contains("deeper than 16"), ex.getReason());
+    }
+
+    /* ========= fixtures ========= */
+
+    /** {@code levels} recipes nested in a line, the innermost one made of a plain product. */
+    private Product chain(int levels) {
+        Product below = product("Leaf", ProductType.SINGLE);
+        for (int i = 0; i < levels; i++) {
+            Product r = product("Level " + i, ProductType.RECIPE);
+            link(r, below, "1");
+            below = r;
+        }
+        return below;
+    }
+
+    private Product product(String name, ProductType type) {
+        return Product.builder().id(nextId++).businessId(BIZ).name(name).productType(type).build();
+    }
+
+    private void link(Product parent, Product component, String quantity) {
+        links.add(ProductComponent.builder()
+                .id(nextId++)
+                .parent(parent)
+                .component(component)
+                .quantity(quantity == null ? null : new BigDecimal(quantity))
+                .build());
+    }
+
+    private static Map<Long, BigDecimal> quantities(List<BomService.Part> parts) {
+        Map<Long, BigDecimal> out = new HashMap<>();
+        for (BomService.Part p : parts) out.put(p.product().getId(), p.quantity());
+        return out;
+    }
+}
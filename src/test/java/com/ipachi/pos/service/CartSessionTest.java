@@ -0,0 +1,148 @@
+// src/test/java/com/ipachi/pos/service/CartSessionTest.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.dto.CartLineView;
+import com.ipachi.pos.dto.CartView;
+import com.ipachi.pos.dto.TaxCategory;
+import com.ipachi.pos.model.Product;
+import com.ipachi.pos.tax.Money;
+import com.ipachi.pos.tax.TaxCalculator;
+import com.ipachi.pos.tax.TaxTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Incremental totals of {@link CartSession}: after any sequence of quantity changes the running
+ * net/VAT/gross equal a from-scratch BigDecimal pricing of the lines left in the cart.
+ */
+class CartSessionTest {
+
+    private static final long SEED = 20240601L;
+
+    private final Product standard = product(1L, "STD", TaxCategory.STANDARD);
+    private final Product exempt = product(2L, "EXM", TaxCategory.EXEMPT);
+    private final Product fineRate = product(3L, "FINE", TaxCategory.STANDARD);   // override below Money's precision
+    private final Product zeroRated = product(4L, "ZR", TaxCategory.ZERO);
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void runningTotalsMatchFullRepricing(boolean pricesIncludeVat) {
+        TaxTable tax = new TaxTable(true, pricesIncludeVat, new BigDecimal("15.00"),
+                Map.of(fineRate.getId(), new BigDecimal("14.12345")));
+        CartSession cart = cart();
+        Map<String, Long> prices = Map.of("std", 1_999L, "exm", 250L, "fine", 33_333L, "zr", 7L);
+        Map<String, Integer> qty = new TreeMap<>();
+        List<String> skus = List.of("std", "exm", "fine", "zr");
+        Random rnd = new Random(SEED);
+        for (int i = 0; i < 500; i++) {
+            String sku = skus.get(rnd.nextInt(skus.size()));
+            if (cart.line(sku) == null) {                  // not in the cart (yet, or any more)
+                cart.addLine(sku, new CartSession.Line(byKey(sku), self(byKey(sku)), prices.get(sku)));
+            }
+            int q = rnd.nextInt(5) == 0 ? 0 : 1 + rnd.nextInt(40);
+            cart.setQty(sku, q, tax);
+            if (q > 0) qty.put(sku, q); else qty.remove(sku);
+
+            CartView view = cart.view(60);
+            BigDecimal net = BigDecimal.ZERO, vat = BigDecimal.ZERO, gross = BigDecimal.ZERO;
+            int items = 0;
+            for (var e : qty.entrySet()) {
+                TaxTable.Rate rate = tax.rateFor(byKey(e.getKey()));
+                TaxCalculator.Breakdown b = TaxCalculator.line(Money.toBigDecimal(prices.get(e.getKey())),
+                        e.getValue(), pricesIncludeVat, rate.percent());
+                net = net.add(b.net());
+                vat = vat.add(b.vat());
+                gross = gross.add(b.gross());
+                items += e.getValue();
+            }
+            String at = "step " + i + " " + qty;
+            assertEquals(0, net.compareTo(view.net()), at + " (net)");
+            assertEquals(0, vat.compareTo(view.vat()), at + " (vat)");
+            assertEquals(0, gross.compareTo(view.gross()), at + " (gross)");
+            assertEquals(items, view.itemCount(), at);
+            assertEquals(qty.size(), view.lines().size(), at);
+        }
+    }
+
+    @Test
+    void changingOneLineLeavesTheOthersAlone() {
+        TaxTable tax = new TaxTable(true, false, new BigDecimal("15.00"), Map.of());
+        CartSession cart = cart();
+        cart.addLine("std", new CartSession.Line(standard, self(standard), 1_000L));
+        cart.addLine("exm", new CartSession.Line(exempt, self(exempt), 500L));
+        cart.setQty("std", 2, tax);
+        cart.setQty("exm", 3, tax);
+        CartLineView before = cart.view(60).lines().get(1);
+
+        cart.setQty("std", 5, tax);
+
+        CartView view = cart.view(60);
+        assertEquals(before, view.lines().get(1));
+        assertEquals(0, new BigDecimal("65.00").compareTo(view.net()));     // 50.00 + 15.00
+        assertEquals(0, new BigDecimal("7.50").compareTo(view.vat()));      // 15% of 50.00 only
+        assertEquals(0, new BigDecimal("72.50").compareTo(view.gross()));
+
+        cart.setQty("std", 0, tax);
+        assertNull(cart.line("std"));
+        assertEquals(0, new BigDecimal("15.00").compareTo(cart.view(60).gross()));
+        cart.setQty("exm", 0, tax);
+        assertTrue(cart.isEmpty());
+        assertEquals(0, cart.view(60).gross().signum());
+    }
+
+    @Test
+    void recipeLinesReserveTheirPartsAndExplodeForCheckout() {
+        TaxTable tax = new TaxTable(false, false, BigDecimal.ZERO, Map.of());
+        Product flour = product(10L, "FLOUR", TaxCategory.STANDARD);
+        Product loaf = product(11L, "LOAF", TaxCategory.STANDARD);
+        CartSession cart = cart();
+        CartSession.Line loaves = cart.addLine("loaf",
+                new CartSession.Line(loaf, List.of(new BomService.Part(flour, new BigDecimal("0.5"))), 2_000L));
+        CartSession.Line bags = cart.addLine("flour", new CartSession.Line(flour, self(flour), 1_500L));
+        cart.setQty("loaf", 4, tax);
+        cart.setQty("flour", 1, tax);
+
+        assertEquals(0, new BigDecimal("2").compareTo(cart.reservedBy(flour.getId(), bags)));
+        assertEquals(0, BigDecimal.ONE.compareTo(cart.reservedBy(flour.getId(), loaves)));
+
+        BomService.Explosion x = cart.explosion();
+        assertTrue(x.exploded(loaf));
+        assertFalse(x.exploded(flour));
+        assertEquals(0, cart.view(60).vat().signum());                      // VAT off
+    }
+
+    /* ========= fixtures ========= */
+
+    private static CartSession cart() {
+        return new CartSession("cart-1", 1L, 1L, 1L, null);
+    }
+
+    private Product byKey(String sku) {
+        return switch (sku) {
+            case "std" -> standard;
+            case "exm" -> exempt;
+            case "fine" -> fineRate;
+            default -> zeroRated;
+        };
+    }
+
+    private static List<BomService.Part> self(Product p) {
+        return List.of(new BomService.Part(p, BigDecimal.ONE));
+    }
+
+    private static Product product(Long id, String sku, TaxCategory category) {
+        return Product.builder().id(id).businessId(1L).sku(sku).name("Product " + sku).taxCategory(category).build();
+    }
+}
@@ -0,0 +1,173 @@
+// src/test/java/com/ipachi/pos/service/CatalogSnapshotEncoderTest.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.dto.ProductDto;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Byte layout of {@link CatalogSnapshotEncoder}: LEB128 varints, zig-zag for signed values,
+ * length-prefixed UTF-8 strings, and the sellable-only filter. The decoder here is what a till does.
+ */
+class CatalogSnapshotEncoderTest {
+
+    @Test
+    void exactBytesOfASmallSnapshot() throws IOException {
+        ProductDto p = dto(1L, "A", null, "\u00e9", null, "0.01", "1.15");
+        byte[] raw = gunzip(CatalogSnapshotEncoder.encode(snapshot(300, p), levels(5, Map.of(1L, new BigDecimal("-0.5"))), 0L));
+
+        assertArrayEquals(bytes(
+                'I', 'P', 'C', 'S', 1,
+                0xAC, 0x02,             // catalog version 300
+                0x05,                   // stock version
+                0x00,                   // generated at
+                0x01,                   // count
+                0x01,                   // id
+                0x01, 'A',              // sku
+                0x00,                   // barcode null -> empty
+                0x02, 0xC3, 0xA9,       // name, UTF-8 length in bytes
+                0x02,                   // net 1 cent, zig-zag 2
+                0xE6, 0x01,             // gross 115 cents, zig-zag 230
+                0xE7, 0x07,             // stock -500 thousandths, zig-zag 999
+                0x00                    // no category
+        ), raw);
+    }
+
+    @Test
+    void roundTripsThroughATillDecoder() throws IOException {
+        ProductDto milk = dto(7L, "MILK-1L", "6001234567890", "Milk 1L", 3L, "12.50", "14.38");
+        ProductDto big = dto(Long.MAX_VALUE, "BIG", null, "Big numbers", Long.MAX_VALUE,
+                BigDecimal.valueOf(Long.MAX_VALUE, 2).toPlainString(), BigDecimal.valueOf(Long.MIN_VALUE, 2).toPlainString());
+        ProductDto free = dto(8L, "FREE", null, "Not for sale", null, "0", "0");
+        ProductDto unpriced = dto(9L, "NOPRICE", null, "No price", null, null, null);
+        Map<Long, BigDecimal> stock = new HashMap<>();
+        stock.put(7L, new BigDecimal("1.2345"));        // thousandths, HALF_UP
+        stock.put(Long.MAX_VALUE, new BigDecimal("-1.2345"));
+
+        Reader r = new Reader(gunzip(CatalogSnapshotEncoder.encode(
+                snapshot(12, milk, free, big, unpriced), levels(34, stock), 1_717_243_200_000L)));
+
+        assertEquals("IPCS", new String(r.raw(4), StandardCharsets.US_ASCII));
+        assertEquals(CatalogSnapshotEncoder.FORMAT, r.raw(1)[0]);
+        assertEquals(12L, r.unsigned());
+        assertEquals(34L, r.unsigned());
+        assertEquals(1_717_243_200_000L, r.unsigned());
+        assertEquals(2L, r.unsigned());                 // free and unpriced products are left out
+
+        assertEquals(7L, r.unsigned());
+        assertEquals("MILK-1L", r.string());
+        assertEquals("6001234567890", r.string());
+        assertEquals("Milk 1L", r.string());
+        assertEquals(1_250L, r.signed());
+        assertEquals(1_438L, r.signed());
+        assertEquals(1_235L, r.signed());
+        assertEquals(3L, r.unsigned());
+
+        assertEquals(Long.MAX_VALUE, r.unsigned());     // ten-byte varint
+        assertEquals("BIG", r.string());
+        assertEquals("", r.string());
+        assertEquals("Big numbers", r.string());
+        assertEquals(Long.MAX_VALUE, r.signed());
+        assertEquals(Long.MIN_VALUE, r.signed());
+        assertEquals(-1_235L, r.signed());
+        assertEquals(Long.MAX_VALUE, r.unsigned());
+        assertEquals(-1, r.in.read());                  // nothing after the last product
+    }
+
+    @Test
+    void zigZagKeepsSmallMagnitudesShort() throws IOException {
+        for (long v : new long[]{0, -1, 1, -64, 63}) {
+            Reader r = new Reader(gunzip(CatalogSnapshotEncoder.encode(
+                    snapshot(1, dto(1L, "S", null, "S", null, "1", BigDecimal.valueOf(v, 2).toPlainString())),
+                    levels(1, Map.of()), 0L)));
+            r.raw(4 + 1 + 4);                           // magic, format, versions, time, count
+            r.unsigned();
+            r.string();
+            r.string();
+            r.string();
+            r.signed();
+            byte[] gross = r.raw(1);
+            assertEquals(0, gross[0] & 0x80, "one byte for " + v);
+            assertEquals(v, (gross[0] >>> 1) ^ -(gross[0] & 1));
+        }
+    }
+
+    /* ========= fixtures ========= */
+
+    private static CatalogCache.Snapshot snapshot(long version, ProductDto... products) {
+        Map<Long, ProductDto> byId = new HashMap<>();
+        for (ProductDto p : products) byId.put(p.id(), p);
+        return new CatalogCache.Snapshot(version, List.of(products), byId);
+    }
+
+    private static CatalogCache.Levels levels(long version, Map<Long, BigDecimal> byProduct) {
+        return new CatalogCache.Levels(version, byProduct);
+    }
+
+    private static ProductDto dto(Long id, String sku, String barcode, String name, Long categoryId,
+                                  String priceExclVat, String priceInclVat) {
+        return new ProductDto(id, sku, barcode, name, null, null, categoryId, null, null, null, null,
+                false, null, null, null, null, null, null, null, null, null,
+                priceInclVat == null ? null : new BigDecimal(priceInclVat),
+                priceExclVat == null ? null : new BigDecimal(priceExclVat),
+                null, null, null);
+    }
+
+    private static byte[] gunzip(byte[] gz) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gz))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] bytes(int... values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int v : values) out.write(v);
+        return out.toByteArray();
+    }
+
+    /** The till side of the format. */
+    private static final class Reader {
+        final ByteArrayInputStream in;
+
+        Reader(byte[] raw) {
+            this.in = new ByteArrayInputStream(raw);
+        }
+
+        byte[] raw(int n) {
+            byte[] b = new byte[n];
+            assertEquals(n, in.read(b, 0, n));
+            return b;
+        }
+
+        long unsigned() {
+            long v = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = in.read();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+        }
+
+        long signed() {
+            long z = unsigned();
+            return (z >>> 1) ^ -(z & 1);
+        }
+
+        String string() {
+            return new String(raw((int) unsigned()), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+// src/test/java/com/ipachi/pos/service/ProductSearchIndexTest.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.repo.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link ProductSearchIndex} over a stubbed product table: tokenizing, prefix / substring / typo
+ * matching, ranking, and the guard that keeps a load which raced a write out of the cache.
+ */
+class ProductSearchIndexTest {
+
+    private static final long BIZ = 1L;
+
+    private final ProductRepository products = mock(ProductRepository.class);
+    private final ProductSearchIndex index = new ProductSearchIndex(products);
+    private final List<Object[]> rows = new ArrayList<>();
+
+    @BeforeEach
+    void catalog() {
+        row(1, "SUG-001", "6001234000011", "Sugar");
+        row(2, "SUG-002", null, "Sugar Brown");
+        row(3, "JCE-010", null, "Sugarcane Juice");
+        row(4, "SUG-003", null, "Icing Sugar");
+        row(5, "CHO-100", "6001234000028", "Dark Chocolate 70%");
+        row(6, "BAN-001", null, "Bananas");
+        row(7, "CC-2L", null, "Coca-Cola 2L");
+        row(10, "MLO-500", null, "Milo 500g");
+        row(11, "CHD-001", null, "Mild Cheddar");
+        when(products.findSearchRows(BIZ)).thenReturn(rows);
+    }
+
+    @Test
+    void tokensSplitOnPunctuationAndIgnoreCase() {
+        // "cola" is also a substring of "chocolate"
+        assertEquals(List.of(7L, 5L), index.search(BIZ, "COLA"));
+        assertEquals(List.of(7L), index.search(BIZ, "coca cola 2l"));
+        assertEquals(List.of(5L), index.search(BIZ, "70"));
+        assertEquals(List.of(), index.search(BIZ, "  -- "));
+        assertEquals(List.of(), index.search(BIZ, null));
+    }
+
+    @Test
+    void prefixMatchesRankBelowExactOnes() {
+        // exact "sugar" tokens tie and sort by name; "sugarcane" is only a prefix match
+        assertEquals(List.of(4L, 1L, 2L, 3L), index.search(BIZ, "sugar"));
+        assertEquals(List.of(5L), index.search(BIZ, "choc"));
+    }
+
+    @Test
+    void trigramsFindSubstrings() {
+        assertEquals(List.of(3L), index.search(BIZ, "cane"));
+        assertEquals(List.of(5L), index.search(BIZ, "colate"));
+        // two-letter terms are checked against every token
+        assertTrue(index.search(BIZ, "ug").containsAll(List.of(1L, 2L, 3L, 4L)));
+    }
+
+    @Test
+    void everyTermMustMatch() {
+        assertEquals(List.of(2L), index.search(BIZ, "brown sugar"));
+        assertEquals(List.of(), index.search(BIZ, "brown juice"));
+    }
+
+    @Test
+    void typosWithinOsaDistance() {
+        // adjacent swap is one edit (plain Levenshtein would need two, over the limit for 7 letters)
+        assertEquals(List.of(6L), index.search(BIZ, "banansa"));
+        // 8+ letters allow two edits, shorter terms one
+        assertEquals(List.of(5L), index.search(BIZ, "chokolste"));
+        assertEquals(List.of(), index.search(BIZ, "bxnxnas"));
+        // no typo search below four letters
+        assertEquals(List.of(), index.search(BIZ, "sgr"));
+    }
+
+    @Test
+    void typosOnlyWhenNothingMatchesBetter() {
+        // "mild" is one edit from "milo", but an exact match wins outright
+        assertEquals(List.of(10L), index.search(BIZ, "milo"));
+        assertEquals(List.of(11L, 10L), index.search(BIZ, "mile"));
+    }
+
+    @Test
+    void wholeCodeMatchRanksFirst() {
+        assertEquals(2L, index.search(BIZ, "sug-002").get(0));
+        assertEquals(List.of(1L), index.search(BIZ, "6001234000011"));
+    }
+
+    @Test
+    void upsertAndRemoveUpdateTheLoadedIndex() {
+        assertEquals(List.of(6L), index.search(BIZ, "bananas"));
+        index.upsert(BIZ, 8L, "BAN-002", null, "Bananas Dried");
+        index.remove(BIZ, 6L);
+        assertEquals(List.of(8L), index.search(BIZ, "bananas"));
+        index.upsert(BIZ, 8L, "BAN-002", null, "Plantain Chips");
+        assertEquals(List.of(), index.search(BIZ, "bananas"));
+        verify(products, times(1)).findSearchRows(BIZ);
+    }
+
+    @Test
+    void loadThatRacedAWriteIsNotKept() {
+        // a product write commits while the first load is reading the table
+        when(products.findSearchRows(BIZ)).thenAnswer(inv -> {
+            index.upsert(BIZ, 9L, "NEW-1", null, "Rooibos Tea");
+            return rows;
+        }).thenReturn(withRow(9, "NEW-1", null, "Rooibos Tea"));
+
+        assertEquals(List.of(), index.search(BIZ, "rooibos"));      // served from the stale load
+        assertEquals(List.of(9L), index.search(BIZ, "rooibos"));    // reloaded, not cached stale
+        assertEquals(List.of(9L), index.search(BIZ, "rooibos"));
+        verify(products, times(2)).findSearchRows(BIZ);
+    }
+
+    private void row(long id, String sku, String barcode, String name) {
+        rows.add(new Object[]{id, sku, barcode, name});
+    }
+
+    private List<Object[]> withRow(long id, String sku, String barcode, String name) {
+        List<Object[]> out = new ArrayList<>(rows);
+        out.add(new Object[]{id, sku, barcode, name});
+        return out;
+    }
+}
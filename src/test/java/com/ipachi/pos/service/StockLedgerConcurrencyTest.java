@@ -0,0 +1,193 @@
+// src/test/java/com/ipachi/pos/service/StockLedgerConcurrencyTest.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.dto.ProductSaleMode;
+import com.ipachi.pos.dto.ProductType;
+import com.ipachi.pos.model.Product;
+import com.ipachi.pos.model.StockMovement;
+import com.ipachi.pos.repo.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Oversell guard of {@link StockLedgerService#deduct} against a real MySQL (InnoDB row locks):
+ * tills racing for the last units of a SKU never take more than there is, and sales of
+ * different SKUs of the same business do not wait on each other.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.root=WARN",
+        "logging.level.com.ipachi.pos=WARN",
+        "spring.datasource.hikari.maximum-pool-size=40",
+        "inventory.oversell-guard=true"
+})
+class StockLedgerConcurrencyTest {
+
+    private static final long USER = 1L;
+
+    @Container
+    static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0")
+            .withUrlParam("serverTimezone", "UTC")
+            .withUrlParam("rewriteBatchedStatements", "true");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+    }
+
+    @Autowired StockLedgerService ledger;
+    @Autowired ProductRepository products;
+    @Autowired TransactionTemplate tx;
+
+    @Test
+    void racingTillsSellExactlyTheStockOnHand() throws Exception {
+        long biz = 9101L;
+        int stock = 7, tills = 32;
+        Product p = product(biz, "LAST-UNITS");
+        receive(p, stock);
+
+        ExecutorService pool = Executors.newFixedThreadPool(tills);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger sold = new AtomicInteger(), refused = new AtomicInteger();
+        List<Future<?>> sales = new ArrayList<>();
+        try {
+            for (int i = 0; i < tills; i++) {
+                sales.add(pool.submit((Callable<Void>) () -> {
+                    start.await();
+                    try {
+                        sell(p, 1);
+                        sold.incrementAndGet();
+                    } catch (ResponseStatusException e) {
+                        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+                        assertTrue(e.getReason().contains(p.getName()), e.getReason());
+                        refused.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : sales) f.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(stock, sold.get());
+        assertEquals(tills - stock, refused.get());
+        assertEquals(0, ledger.level(biz, p.getId()).signum());
+        assertTrue(ledger.verify(biz).consistent(), "balances drifted from the ledger");
+    }
+
+    @Test
+    void salesOfDifferentSkusDoNotSerialize() throws Exception {
+        long biz = 9102L;
+        Product a = product(biz, "SKU-A");
+        Product b = product(biz, "SKU-B");
+        receive(a, 5);
+        receive(b, 5);
+
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        CountDownLatch aDeducted = new CountDownLatch(1), releaseA = new CountDownLatch(1);
+        try {
+            // till 1 sells A and keeps its transaction (and A's balance row lock) open
+            Future<?> holdA = pool.submit(() -> tx.executeWithoutResult(s -> {
+                ledger.deduct(List.of(sale(a, 1)));
+                aDeducted.countDown();
+                await(releaseA);
+            }));
+            assertTrue(aDeducted.await(30, TimeUnit.SECONDS));
+
+            // till 2 sells B meanwhile: must not wait for till 1
+            pool.submit(() -> sell(b, 1)).get(5, TimeUnit.SECONDS);
+
+            // control: a sale of A does wait, so the row lock really is held
+            Future<?> secondA = pool.submit(() -> sell(a, 1));
+            assertThrows(TimeoutException.class, () -> secondA.get(1, TimeUnit.SECONDS));
+
+            releaseA.countDown();
+            holdA.get(30, TimeUnit.SECONDS);
+            secondA.get(30, TimeUnit.SECONDS);
+        } finally {
+            releaseA.countDown();
+            pool.shutdownNow();
+        }
+
+        assertEquals(0, ledger.level(biz, a.getId()).compareTo(new BigDecimal("3")));
+        assertEquals(0, ledger.level(biz, b.getId()).compareTo(new BigDecimal("4")));
+    }
+
+    /* ========= fixtures ========= */
+
+    private Product product(long biz, String sku) {
+        return products.save(Product.builder()
+                .businessId(biz)
+                .userId(USER)
+                .createdByUserId(USER)
+                .sku(sku)
+                .name("Product " + sku)
+                .buyPrice(new BigDecimal("10.00"))
+                .sellPrice(new BigDecimal("15.00"))
+                .productType(ProductType.SINGLE)
+                .saleMode(ProductSaleMode.PER_UNIT)
+                .onSpecial(false)
+                .build());
+    }
+
+    private void receive(Product p, int qty) {
+        tx.executeWithoutResult(s -> ledger.record(List.of(movement(p, BigDecimal.valueOf(qty), "Stock receipt"))));
+    }
+
+    private void sell(Product p, int qty) {
+        tx.executeWithoutResult(s -> ledger.deduct(List.of(sale(p, qty))));
+    }
+
+    private static StockMovement sale(Product p, int qty) {
+        return movement(p, BigDecimal.valueOf(-qty), "Sale");
+    }
+
+    private static StockMovement movement(Product p, BigDecimal delta, String note) {
+        return StockMovement.builder()
+                .businessId(p.getBusinessId())
+                .userId(USER)
+                .createdByUserId(USER)
+                .product(p)
+                .quantityDelta(delta)
+                .note(note)
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(60, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
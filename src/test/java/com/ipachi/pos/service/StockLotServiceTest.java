@@ -0,0 +1,190 @@
+// src/test/java/com/ipachi/pos/service/StockLotServiceTest.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.model.Product;
+import com.ipachi.pos.model.StockLot;
+import com.ipachi.pos.model.StockMovement;
+import com.ipachi.pos.repo.StockLotJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * FIFO cost layers of {@link StockLotService} over an in-memory lot table: receipts open lots,
+ * sales consume them oldest first and are costed at what they consumed, and stock no lot covers
+ * falls back to the buy price.
+ */
+class StockLotServiceTest {
+
+    private static final long BIZ = 1L;
+    private static final OffsetDateTime T0 = OffsetDateTime.of(2024, 6, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+
+    private final InMemoryLots lotTable = new InMemoryLots();
+    private final StockLotService lots = new StockLotService(lotTable, null);
+
+    private final Product milk = product(10L, "4.00", 7);
+    private final Product rice = product(11L, "20.00", null);
+
+    @BeforeEach
+    void enable() {
+        ReflectionTestUtils.setField(lots, "enabled", true);
+    }
+
+    @Test
+    void receiptsOpenLotsAtTheirUnitCost() {
+        StockMovement priced = in(milk, "10", "35.00", T0);          // delivery priced on the receipt
+        StockMovement unpriced = in(rice, "4", null, T0);            // valued at the buy price
+
+        lots.apply(List.of(priced, unpriced));
+
+        assertAmount("35.00", priced.getCostValue());
+        assertAmount("80.00", unpriced.getCostValue());
+        StockLot milkLot = lotTable.of(milk).get(0);
+        assertAmount("3.50", milkLot.getUnitCost());
+        assertAmount("10", milkLot.getQuantityRemaining());
+        assertEquals(T0.plusDays(7), milkLot.getExpiresAt());
+        assertNull(lotTable.of(rice).get(0).getExpiresAt());        // no shelf life
+    }
+
+    @Test
+    void salesConsumeOldestLotsFirst() {
+        lots.apply(List.of(in(milk, "10", "30.00", T0)));                  // 3.00 each
+        lots.apply(List.of(in(milk, "10", "50.00", T0.plusDays(1))));     // 5.00 each
+
+        StockMovement first = out(milk, "4");
+        StockMovement second = out(milk, "8");                             // 6 from lot 1, 2 from lot 2
+        lots.apply(List.of(first, second));
+
+        assertAmount("-12.00", first.getCostValue());
+        assertAmount("-28.00", second.getCostValue());                     // 6 x 3.00 + 2 x 5.00
+        List<StockLot> milkLots = lotTable.of(milk);
+        assertTrue(milkLots.get(0).isDepleted());
+        assertAmount("0", milkLots.get(0).getQuantityRemaining());
+        assertFalse(milkLots.get(1).isDepleted());
+        assertAmount("8", milkLots.get(1).getQuantityRemaining());
+    }
+
+    @Test
+    void stockNoLotCoversIsCostedAtBuyPrice() {
+        lots.apply(List.of(in(rice, "2", "30.00", T0)));                   // 15.00 each
+
+        StockMovement sale = out(rice, "5");
+        lots.apply(List.of(sale));
+
+        assertAmount("-90.00", sale.getCostValue());                       // 2 x 15.00 + 3 x 20.00
+        assertTrue(lotTable.of(rice).get(0).isDepleted());
+    }
+
+    @Test
+    void productsKeepTheirOwnLayers() {
+        lots.apply(List.of(in(milk, "5", "10.00", T0), in(rice, "5", "50.00", T0)));
+
+        StockMovement milkSale = out(milk, "1");
+        StockMovement riceSale = out(rice, "1");
+        lots.apply(List.of(milkSale, riceSale));
+
+        assertAmount("-2.00", milkSale.getCostValue());
+        assertAmount("-10.00", riceSale.getCostValue());
+    }
+
+    @Test
+    void disabledLotsCostAtBuyPriceAndOpenNothing() {
+        ReflectionTestUtils.setField(lots, "enabled", false);
+        StockMovement receipt = in(milk, "10", "35.00", T0);
+        StockMovement sale = out(milk, "3");
+        StockMovement zero = StockMovement.builder().businessId(BIZ).product(milk).quantityDelta(BigDecimal.ZERO).build();
+
+        lots.apply(List.of(receipt, sale, zero));
+
+        assertAmount("35.00", receipt.getCostValue());
+        assertAmount("-12.00", sale.getCostValue());
+        assertAmount("0", zero.getCostValue());
+        assertTrue(lotTable.rows.isEmpty());
+    }
+
+    /* ========= fixtures ========= */
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "expected " + expected + " but was " + actual);
+    }
+
+    private static Product product(Long id, String buyPrice, Integer lifetimeDays) {
+        return Product.builder().id(id).businessId(BIZ).name("Product " + id)
+                .buyPrice(new BigDecimal(buyPrice)).lifetimeDays(lifetimeDays).build();
+    }
+
+    private static StockMovement in(Product p, String qty, String costValue, OffsetDateTime at) {
+        StockMovement m = StockMovement.builder()
+                .businessId(BIZ)
+                .product(p)
+                .quantityDelta(new BigDecimal(qty))
+                .costValue(costValue == null ? null : new BigDecimal(costValue))
+                .build();
+        m.setCreatedAt(at);
+        return m;
+    }
+
+    private static StockMovement out(Product p, String qty) {
+        return StockMovement.builder().businessId(BIZ).product(p).quantityDelta(new BigDecimal(qty).negate()).build();
+    }
+
+    /** inv_stock_lots as a list; reads hand out copies, as rows read from the database would be. */
+    private static final class InMemoryLots extends StockLotJdbcRepository {
+        final List<StockLot> rows = new ArrayList<>();
+
+        InMemoryLots() {
+            super(null);
+        }
+
+        @Override
+        public void insertAll(List<StockLot> lots) {
+            for (StockLot l : lots) {
+                l.setId((long) rows.size() + 1);
+                rows.add(copy(l));
+            }
+        }
+
+        @Override
+        public List<StockLot> openLotsForUpdate(Long businessId, Collection<Long> productIds) {
+            return rows.stream()
+                    .filter(l -> l.getBusinessId().equals(businessId) && productIds.contains(l.getProductId()) && !l.isDepleted())
+                    .sorted(Comparator.comparing(StockLot::getProductId).thenComparing(StockLot::getReceivedAt)
+                            .thenComparing(StockLot::getId))
+                    .map(InMemoryLots::copy)
+                    .toList();
+        }
+
+        @Override
+        public void updateRemaining(List<StockLot> lots) {
+            for (StockLot l : lots) {
+                StockLot row = rows.get((int) (l.getId() - 1));
+                row.setQuantityRemaining(l.getQuantityRemaining());
+                row.setDepleted(l.isDepleted());
+            }
+        }
+
+        List<StockLot> of(Product p) {
+            return rows.stream().filter(l -> l.getProductId().equals(p.getId())).toList();
+        }
+
+        private static StockLot copy(StockLot l) {
+            return StockLot.builder().id(l.getId()).businessId(l.getBusinessId()).productId(l.getProductId())
+                    .receiptId(l.getReceiptId()).receivedAt(l.getReceivedAt()).expiresAt(l.getExpiresAt())
+                    .quantityReceived(l.getQuantityReceived()).quantityRemaining(l.getQuantityRemaining())
+                    .unitCost(l.getUnitCost()).depleted(l.isDepleted()).build();
+        }
+    }
+}
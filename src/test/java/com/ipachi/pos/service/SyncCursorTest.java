@@ -0,0 +1,118 @@
+// src/test/java/com/ipachi/pos/service/SyncCursorTest.java
+package com.ipachi.pos.service;
+
+import com.ipachi.pos.model.Product;
+import com.ipachi.pos.model.ProductTombstone;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Catalog feed cursor: format round trip and the merge of product changes with tombstones. */
+class SyncCursorTest {
+
+    private static final OffsetDateTime T = OffsetDateTime.of(2024, 6, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+
+    @Test
+    void formatRoundTripsAtMicrosecondPrecision() {
+        SyncCursor c = SyncCursor.of(T.plusNanos(123_456_789), 42L);
+
+        assertEquals(T.plusNanos(123_456_000), c.at());
+        assertEquals(c, SyncCursor.parse(c.format()));
+        assertEquals(0, SyncCursor.parse(c.format()).compareTo(SyncCursor.of(T.plusNanos(123_456_999), 42L)));
+    }
+
+    @Test
+    void blankCursorStartsAtTheBeginning() {
+        SyncCursor start = SyncCursor.parse(null);
+
+        assertEquals("0_0", start.format());
+        assertEquals(start, SyncCursor.parse("  "));
+        assertTrue(start.compareTo(SyncCursor.of(T, 1L)) < 0);
+    }
+
+    @Test
+    void malformedCursorIsABadRequest() {
+        for (String bad : List.of("abc", "123", "12_x", "_5")) {
+            ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> SyncCursor.parse(bad));
+            assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        }
+    }
+
+    @Test
+    void cursorsOrderByTimeThenIdAcrossOffsets() {
+        SyncCursor utc = SyncCursor.of(T, 5L);
+        SyncCursor sameInstant = SyncCursor.of(T.withOffsetSameInstant(ZoneOffset.ofHours(2)), 5L);
+
+        assertEquals(0, utc.compareTo(sameInstant));
+        assertTrue(SyncCursor.of(T, 4L).compareTo(utc) < 0);
+        assertTrue(SyncCursor.of(T.plusNanos(1_000), 1L).compareTo(utc) > 0);
+    }
+
+    @Test
+    void mergeInterleavesUpsertsAndTombstonesInOrder() {
+        List<Product> changed = List.of(product(1L, T), product(3L, T.plusSeconds(2)));
+        List<ProductTombstone> deleted = List.of(tombstone(2L, T.plusSeconds(1)), tombstone(9L, T.plusSeconds(3)));
+
+        SyncCursor.Page page = SyncCursor.merge(changed, deleted, SyncCursor.parse(null), 10);
+
+        assertEquals(List.of(1L, 3L), page.upserts().stream().map(Product::getId).toList());
+        assertEquals(List.of(2L, 9L), page.deletedIds());
+        assertEquals(SyncCursor.of(T.plusSeconds(3), 9L), page.last());
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    void tieOnTimestampGoesByIdThenUpsertFirst() {
+        List<Product> changed = List.of(product(5L, T), product(7L, T));
+        List<ProductTombstone> deleted = List.of(tombstone(5L, T), tombstone(6L, T));
+
+        // 5 (upsert), 5 (tombstone), 6 (tombstone): cut after three
+        SyncCursor.Page page = SyncCursor.merge(changed, deleted, SyncCursor.parse(null), 3);
+
+        assertEquals(List.of(5L), page.upserts().stream().map(Product::getId).toList());
+        assertEquals(List.of(5L, 6L), page.deletedIds());
+        assertEquals(SyncCursor.of(T, 6L), page.last());
+        assertTrue(page.hasMore());
+    }
+
+    @Test
+    void cutAtPageSizeLeavesTheCursorOnTheLastChangeHandedOut() {
+        List<Product> changed = List.of(product(1L, T), product(2L, T.plusSeconds(1)), product(3L, T.plusSeconds(2)));
+
+        SyncCursor.Page first = SyncCursor.merge(changed, List.of(), SyncCursor.parse(null), 2);
+
+        assertEquals(2, first.upserts().size());
+        assertTrue(first.hasMore());
+        assertEquals(SyncCursor.of(T.plusSeconds(1), 2L), SyncCursor.parse(first.last().format()));
+    }
+
+    @Test
+    void emptyFeedKeepsTheCursor() {
+        SyncCursor from = SyncCursor.of(T, 8L);
+
+        SyncCursor.Page page = SyncCursor.merge(List.of(), List.of(), from, 5);
+
+        assertEquals(from, page.last());
+        assertTrue(page.upserts().isEmpty() && page.deletedIds().isEmpty());
+        assertFalse(page.hasMore());
+    }
+
+    private static Product product(Long id, OffsetDateTime updatedAt) {
+        Product p = Product.builder().id(id).name("Product " + id).build();
+        p.setUpdatedAt(updatedAt);
+        return p;
+    }
+
+    private static ProductTombstone tombstone(Long productId, OffsetDateTime deletedAt) {
+        return ProductTombstone.builder().productId(productId).businessId(1L).deletedAt(deletedAt).build();
+    }
+}
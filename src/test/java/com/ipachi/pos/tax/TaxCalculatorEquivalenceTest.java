@@ -0,0 +1,120 @@
+// src/test/java/com/ipachi/pos/tax/TaxCalculatorEquivalenceTest.java
+package com.ipachi.pos.tax;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Randomized equivalence of the fixed-point path ({@link Money}, {@link TaxCalculator#lineCents}) with the
+ * BigDecimal calculator it replaced. The seed is fixed so every build checks the same cases; it is
+ * printed in every failure message. Explore other cases with {@code -Dtax.seed=<seed>}.
+ */
+class TaxCalculatorEquivalenceTest {
+
+    private static final int CASES = 200_000;
+
+    private final long seed = Long.getLong("tax.seed", 20240601L);
+    private final Random rnd = new Random(seed);
+
+    @Test
+    void lineCentsMatchesLine() {
+        for (int i = 0; i < CASES; i++) {
+            long unitCents = switch (rnd.nextInt(4)) {
+                case 0 -> rnd.nextInt(100);                           // small change
+                case 1 -> rnd.nextInt(1_000_000);                     // till prices
+                case 2 -> -rnd.nextInt(100_000);                      // refunds / negative lines
+                default -> rnd.nextLong() % 1_000_000_000L;           // large, either sign
+            };
+            int qty = rnd.nextInt(10) == 0 ? -rnd.nextInt(5) : rnd.nextInt(1_000);
+            assertSame(unitCents, qty, rnd.nextBoolean(), rate());
+        }
+    }
+
+    @Test
+    void overflowFallbackMatchesLine() {
+        // base >= 10^13 cents: base * RATE_ONE (inclusive) overflows a long, as does base * rate (exclusive)
+        // for all but the smallest rates; the results still fit
+        for (int i = 0; i < CASES / 10; i++) {
+            long unitCents = (10_000_000_000_000L + (long) (rnd.nextDouble() * 990_000_000_000_000L)) * (rnd.nextBoolean() ? 1 : -1);
+            int qty = 1 + rnd.nextInt(1_000);
+            BigDecimal percent = BigDecimal.valueOf(1 + rnd.nextInt(1_000_000), 4); // (0, 100%]
+            assertSame(unitCents, qty, rnd.nextBoolean(), percent);
+        }
+        assertSame(Long.MAX_VALUE / 1_000, 1_000, true, new BigDecimal("15"));
+        assertSame(Long.MIN_VALUE / 2_000, 1_000, false, new BigDecimal("14"));
+    }
+
+    @Test
+    void edgeCases() {
+        assertSame(0, 5, true, new BigDecimal("14"));
+        assertSame(1, 1, true, new BigDecimal("14"));                // 0.01 incl. VAT is all net
+        assertSame(1, 1, false, new BigDecimal("50"));               // exact half cent rounds up
+        assertSame(-1, 1, false, new BigDecimal("50"));              // ... and away from zero
+        assertSame(999, 0, false, new BigDecimal("14"));
+        assertSame(999, -3, true, new BigDecimal("14"));
+        assertSame(999, 3, true, BigDecimal.ZERO);
+        assertSame(999, 3, false, new BigDecimal("-5"));
+        assertSame(999, 3, true, null);
+    }
+
+    @Test
+    void rateRejectsMoreThanFourDecimals() {
+        assertEquals(140_000L, Money.rate(new BigDecimal("14.00")));
+        assertEquals(1L, Money.rate(new BigDecimal("0.0001")));
+        assertEquals(-1L, Money.rate(new BigDecimal("14.00001")));
+        assertEquals(0L, Money.rate(null));
+    }
+
+    @Test
+    void ofPriceMatchesBigDecimal() {
+        for (int i = 0; i < CASES; i++) {
+            double price = switch (rnd.nextInt(3)) {
+                case 0 -> (rnd.nextInt(2_000_000) - 1_000_000) / 100d;          // on the cent grid
+                case 1 -> (rnd.nextLong() % 100_000_000_000_000L) / 100d;       // large, near the fast-path limit
+                default -> (rnd.nextDouble() - 0.5) * 1e6;                      // off the grid
+            };
+            long expected = BigDecimal.valueOf(price).setScale(2, RoundingMode.HALF_UP)
+                    .unscaledValue().longValueExact();
+            assertEquals(expected, Money.ofPrice(price), () -> "seed=" + seed + " price=" + price);
+        }
+        assertThrows(ArithmeticException.class, () -> Money.ofPrice(1e30));
+    }
+
+    @Test
+    void divHalfUpMatchesBigDecimal() {
+        for (int i = 0; i < CASES; i++) {
+            long num = rnd.nextLong() >> rnd.nextInt(63);
+            long den = 1 + (Math.abs(rnd.nextLong() >> rnd.nextInt(63)) % Long.MAX_VALUE / 2);
+            long expected = BigDecimal.valueOf(num)
+                    .divide(BigDecimal.valueOf(den), 0, RoundingMode.HALF_UP).longValueExact();
+            assertEquals(expected, Money.divHalfUp(num, den), () -> "seed=" + seed + " " + num + "/" + den);
+        }
+    }
+
+    /** Percent with 0 to 4 decimals, mostly in [0, 100], sometimes negative (treated as no VAT). */
+    private BigDecimal rate() {
+        return switch (rnd.nextInt(6)) {
+            case 0 -> BigDecimal.ZERO;
+            case 1 -> BigDecimal.valueOf(rnd.nextInt(31));                             // whole percent
+            case 2 -> BigDecimal.valueOf(-rnd.nextInt(1_000), 2);
+            default -> BigDecimal.valueOf(rnd.nextInt(1_000_001), rnd.nextInt(5));
+        };
+    }
+
+    private void assertSame(long unitCents, int qty, boolean inclusive, BigDecimal percent) {
+        long units = Money.rate(percent);
+        TaxCalculator.Breakdown b = TaxCalculator.line(Money.toBigDecimal(unitCents), qty, inclusive, percent);
+        TaxCalculator.Cents c = TaxCalculator.lineCents(unitCents, qty, inclusive, units);
+        String at = "seed=" + seed + " unitCents=" + unitCents + " qty=" + qty
+                + " inclusive=" + inclusive + " rate=" + percent;
+        assertEquals(b.net(), Money.toBigDecimal(c.net()), at + " (net)");
+        assertEquals(b.vat(), Money.toBigDecimal(c.vat()), at + " (vat)");
+        assertEquals(b.gross(), Money.toBigDecimal(c.gross()), at + " (gross)");
+    }
+}